@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the number of rows parsed per second. Use the "-p labels=..." option to change the number of distinct
+ * labels, which affects the label cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JTLRowParserBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Param({"10", "10000"})
+    public int labels;
+
+    private final JTLRowParser rowParser = new JTLRowParser();
+    private ByteBuffer buffer;
+    private int[] lineStarts;
+    private int[] lineEnds;
+
+    @Setup
+    public void setup() {
+        buffer = ByteBuffer.wrap(SyntheticJTL.generate(ROWS, labels));
+        lineStarts = new int[ROWS];
+        lineEnds = new int[ROWS];
+        // Skip header
+        int position = SyntheticJTL.HEADER.length() + 1;
+        for (int i = 0; i < ROWS; i++) {
+            lineStarts[i] = position;
+            while (buffer.get(position) != '\n') {
+                position++;
+            }
+            lineEnds[i] = position++;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void parseColumns(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(rowParser.parse(buffer, lineStarts[i], lineEnds[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void parseValues(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            rowParser.parse(buffer, lineStarts[i], lineEnds[i]);
+            blackhole.consume(rowParser.getTimestamp());
+            blackhole.consume(rowParser.getElapsed());
+            blackhole.consume(rowParser.getLabel());
+            blackhole.consume(rowParser.isSuccess());
+            blackhole.consume(rowParser.getBytes());
+            blackhole.consume(rowParser.getSentBytes());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measure end-to-end split throughput of a generated JTL file in rows per second and megabytes per second. Use the
+ * "-p rows=..." and "-p labels=..." options to change the size of the JTL file and the number of distinct labels.
+ * <p>
+ * The output of the JTL splitter is discarded while running the benchmark.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JTLSplitterBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"10", "1000"})
+    public int labels;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"false", "true"})
+    public boolean summaryOnly;
+
+    private Path jtlFile;
+    private long fileSize;
+    private String[] args;
+    private PrintStream standardOutput;
+    private PrintStream errorOutput;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        jtlFile = SyntheticJTL.createFile(rows, labels);
+        fileSize = Files.size(jtlFile);
+        List<String> argList = new ArrayList<>(Arrays.asList("-f", jtlFile.toString(), "-t", "30", "-u", "SECONDS",
+                "-s", "-j", String.valueOf(threads)));
+        if (summaryOnly) {
+            argList.add("--summary-only");
+        }
+        args = argList.toArray(new String[0]);
+        // The JTL splitter uses the streams set before the class is initialized
+        standardOutput = System.out;
+        errorOutput = System.err;
+        PrintStream nullOutput = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        System.setOut(nullOutput);
+        System.setErr(nullOutput);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(standardOutput);
+        System.setErr(errorOutput);
+        try (Stream<Path> files = Files.list(jtlFile.getParent())) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(jtlFile.getParent());
+    }
+
+    @Benchmark
+    public void split(SplitCounters counters) {
+        JTLSplitter.main(args);
+        counters.rows += rows;
+        counters.bytes += fileSize;
+    }
+
+    /**
+     * Rows and bytes split. JMH reports these counters per second.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class SplitCounters {
+
+        public long rows;
+        private long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+            bytes = 0;
+        }
+
+        public double megabytes() {
+            return bytes / (1024D * 1024D);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure adding samples to a {@link StatCalculator} and calculating summary statistics from a single thread.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StatCalculatorBenchmark {
+
+    private static final int SIZE = 1024;
+
+    @Param({"2", "3"})
+    public int precision;
+
+    @Param({"false", "true"})
+    public boolean packed;
+
+    // Number of samples in the StatCalculator used to calculate summary statistics
+    @Param({"1000000"})
+    public int samples;
+
+    private final long[] timestamps = new long[SIZE];
+    private final int[] values = new int[SIZE];
+    private int index;
+    private StatCalculator statCalculator;
+    private StatCalculator filledStatCalculator;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(SIZE);
+        long startTimestamp = System.currentTimeMillis();
+        for (int i = 0; i < SIZE; i++) {
+            timestamps[i] = startTimestamp + random.nextInt(60_000);
+            values[i] = random.nextInt(10_000);
+        }
+        statCalculator = new StatCalculator(precision, packed);
+        filledStatCalculator = new StatCalculator(precision, packed);
+        for (int i = 0; i < samples; i++) {
+            filledStatCalculator.addSample(startTimestamp + i / 10, random.nextInt(10_000), random.nextInt(10) > 0,
+                    1024, 1024);
+        }
+    }
+
+    @Benchmark
+    public void addSample() {
+        index = (index + 1) & (SIZE - 1);
+        int value = values[index];
+        statCalculator.addSample(timestamps[index], value, value % 10 > 0, value, value);
+    }
+
+    @Benchmark
+    public SummaryStats calculate() {
+        return filledStatCalculator.calculate();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare adding samples to the same label from multiple threads using {@link StatCalculator} and
+ * {@link ConcurrentStatCalculator}. Use the "-t" option to change the number of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class StatCalculatorContentionBenchmark {
+
+    private StatCalculator statCalculator;
+    private ConcurrentStatCalculator concurrentStatCalculator;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        statCalculator = new StatCalculator(2);
+        concurrentStatCalculator = new ConcurrentStatCalculator(2);
+    }
+
+    @Benchmark
+    public void synchronizedAddSample(Samples samples) {
+        statCalculator.addSample(samples.timestamp(), samples.elapsed(), samples.success(), samples.bytes(),
+                samples.bytes());
+    }
+
+    @Benchmark
+    public void concurrentAddSample(Samples samples) {
+        concurrentStatCalculator.addSample(samples.timestamp(), samples.elapsed(), samples.success(),
+                samples.bytes(), samples.bytes());
+    }
+
+    /**
+     * Generate random sample values for each thread.
+     */
+    @State(Scope.Thread)
+    public static class Samples {
+
+        private static final int SIZE = 1024;
+
+        private final long[] timestamps = new long[SIZE];
+        private final int[] values = new int[SIZE];
+        private int index;
+
+        @Setup
+        public void setup() {
+            SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+            long startTimestamp = System.currentTimeMillis();
+            for (int i = 0; i < SIZE; i++) {
+                timestamps[i] = startTimestamp + random.nextInt(60_000);
+                values[i] = random.nextInt(1_000);
+            }
+        }
+
+        long timestamp() {
+            index = (index + 1) & (SIZE - 1);
+            return timestamps[index];
+        }
+
+        int elapsed() {
+            return values[index];
+        }
+
+        boolean success() {
+            return values[index] % 10 > 0;
+        }
+
+        int bytes() {
+            return values[index] * 10;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Generate JTL files with random samples. Rows are written slightly out of order as in JTL files written by JMeter.
+ */
+final class SyntheticJTL {
+
+    static final String HEADER = "timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType," +
+            "success,failureMessage,bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect";
+
+    private static final long START_TIMESTAMP = 1_545_123_456_789L;
+
+    // Number of rows written in each millisecond
+    private static final int ROWS_PER_MILLISECOND = 10;
+
+    private SyntheticJTL() {
+    }
+
+    /**
+     * Generate JTL content.
+     *
+     * @param rows   Number of rows excluding the header
+     * @param labels Number of distinct labels
+     * @return The JTL content
+     */
+    static byte[] generate(int rows, int labels) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(rows * 128);
+        try {
+            write(outputStream, rows, labels);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Generate a temporary JTL file. The file is deleted on exit.
+     *
+     * @param rows   Number of rows excluding the header
+     * @param labels Number of distinct labels
+     * @return The path of the JTL file
+     * @throws IOException If an I/O error occurs
+     */
+    static Path createFile(int rows, int labels) throws IOException {
+        Path dir = Files.createTempDirectory("jtl-splitter-benchmark");
+        dir.toFile().deleteOnExit();
+        Path jtlFile = dir.resolve("results.jtl");
+        jtlFile.toFile().deleteOnExit();
+        try (OutputStream outputStream = Files.newOutputStream(jtlFile)) {
+            write(outputStream, rows, labels);
+        }
+        return jtlFile;
+    }
+
+    private static void write(OutputStream outputStream, int rows, int labels) throws IOException {
+        SplittableRandom random = new SplittableRandom(rows * 31L + labels);
+        StringBuilder row = new StringBuilder(256);
+        outputStream.write((HEADER + '\n').getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < rows; i++) {
+            long timestamp = START_TIMESTAMP + i / ROWS_PER_MILLISECOND - random.nextInt(1_000);
+            int elapsed = random.nextInt(1_000);
+            boolean success = random.nextInt(100) > 0;
+            row.setLength(0);
+            row.append(timestamp).append(',').append(elapsed).append(",Label ").append(random.nextInt(labels))
+                    .append(',').append(success ? 200 : 500).append(',').append(success ? "OK" : "Error")
+                    .append(",Thread Group 1-").append(random.nextInt(100)).append(",text,").append(success)
+                    .append(",,").append(random.nextInt(10_000)).append(',').append(random.nextInt(10_000))
+                    .append(",100,100,null,").append(elapsed).append(",0,").append(random.nextInt(10))
+                    .append('\n');
+            outputStream.write(row.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Calculate summary statistics from samples added concurrently by multiple threads.
+ * <p>
+ * Unlike {@link StatCalculator}, samples are added without locking. Latencies are recorded in striped HdrHistogram
+ * recorders selected by the current thread and the counters are kept in {@link LongAdder} and
+ * {@link LongAccumulator} instances. The stripes are merged only when {@link #calculate()} is called.
+ */
+public class ConcurrentStatCalculator {
+
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+    private final int precision;
+    // Recorders are created when a thread first records a value in the stripe
+    private final AtomicReferenceArray<Recorder> recorders = new AtomicReferenceArray<>(STRIPES);
+    private final Histogram intervalHistogram;
+    private final Histogram accumulatedHistogram;
+
+    private final LongAccumulator startTimestamp = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator endTimestamp = new LongAccumulator(Math::max, 0L);
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalBytes = new LongAdder();
+    private final LongAdder totalSentBytes = new LongAdder();
+
+    /**
+     * Create ConcurrentStatCalculator with given precision.
+     *
+     * @param precision Precision to use in HdrHistogram recorders
+     */
+    public ConcurrentStatCalculator(int precision) {
+        this.precision = precision;
+        intervalHistogram = new Histogram(precision);
+        accumulatedHistogram = new Histogram(precision);
+    }
+
+    public void addSample(long timestamp, int elapsed, boolean success, int bytes, int sentBytes) {
+        getRecorder().recordValue(elapsed);
+        // Update timestamps to calculate throughput
+        startTimestamp.accumulate(timestamp);
+        endTimestamp.accumulate(timestamp + elapsed);
+        min.accumulate(elapsed);
+        max.accumulate(elapsed);
+        if (!success) {
+            errors.increment();
+        }
+        totalBytes.add(bytes);
+        totalSentBytes.add(sentBytes);
+    }
+
+    private Recorder getRecorder() {
+        // Thread IDs are assigned sequentially. Therefore threads are spread across the stripes.
+        int index = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+        Recorder recorder = recorders.get(index);
+        if (recorder == null) {
+            recorder = new Recorder(precision);
+            if (!recorders.compareAndSet(index, null, recorder)) {
+                recorder = recorders.get(index);
+            }
+        }
+        return recorder;
+    }
+
+    /**
+     * Calculate summary statistics. Samples added while calculating may or may not be included.
+     *
+     * @return Summary statistics of all samples
+     */
+    public synchronized SummaryStats calculate() {
+        for (int i = 0; i < STRIPES; i++) {
+            Recorder recorder = recorders.get(i);
+            if (recorder != null) {
+                recorder.getIntervalHistogramInto(intervalHistogram);
+                accumulatedHistogram.add(intervalHistogram);
+            }
+        }
+        return StatCalculator.calculate(accumulatedHistogram, startTimestamp.get(), endTimestamp.get(), min.get(),
+                max.get(), errors.sum(), totalBytes.sum(), totalSentBytes.sum());
+    }
+
+    private static int stripes(int processors) {
+        // Use a power of two to select the stripe using a mask
+        int stripes = 1;
+        while (stripes < processors) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Calculate statistics of each label for fixed intervals of the sample timestamp.
+ * <p>
+ * JMeter writes rows out of order. Therefore an interval is kept in memory until a sample with a timestamp later than
+ * the end of the interval plus {@link #MAX_DELAY_MILLIS} is seen. Samples of intervals which have already been
+ * written are counted as late samples and ignored.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class IntervalStatCalculator {
+
+    static final long MAX_DELAY_MILLIS = 60_000L;
+    // Completed intervals are written after every this many lines of the JTL file, including the header. The parallel
+    // splitter writes at the same lines, so that the same samples are counted as late.
+    static final int WRITE_INTERVAL_LINES = 10_000;
+
+    private final long intervalMillis;
+    private final int precision;
+    private final TreeMap<Long, Map<String, Interval>> intervals = new TreeMap<>();
+    // Reuse histograms of written intervals
+    private final Deque<Histogram> freeHistograms = new ArrayDeque<>();
+    private long maxTimestamp = Long.MIN_VALUE;
+    // The first interval which has not been written
+    private long nextInterval = Long.MIN_VALUE;
+    private long lateSamples;
+
+    IntervalStatCalculator(long intervalMillis, int precision) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Interval should be greater than zero");
+        }
+        this.intervalMillis = intervalMillis;
+        this.precision = precision;
+    }
+
+    long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Get the number of samples ignored as the interval had already been written.
+     */
+    long getLateSamples() {
+        return lateSamples;
+    }
+
+    void addSample(String label, long timestamp, int elapsed, boolean success) {
+        long index = Math.floorDiv(timestamp, intervalMillis);
+        if (index < nextInterval) {
+            lateSamples++;
+            return;
+        }
+        if (maxTimestamp < timestamp) {
+            maxTimestamp = timestamp;
+        }
+        Interval interval = getInterval(index, label);
+        interval.histogram.recordValue(elapsed);
+        if (!success) {
+            interval.errors++;
+        }
+    }
+
+    /**
+     * Merge all samples of another IntervalStatCalculator, which has not written any intervals.
+     *
+     * @param other The IntervalStatCalculator to merge
+     */
+    void merge(IntervalStatCalculator other) {
+        lateSamples += other.lateSamples;
+        for (Map.Entry<Long, Map<String, Interval>> entry : other.intervals.entrySet()) {
+            long index = entry.getKey();
+            for (Map.Entry<String, Interval> labelEntry : entry.getValue().entrySet()) {
+                Interval otherInterval = labelEntry.getValue();
+                if (index < nextInterval) {
+                    lateSamples += otherInterval.histogram.getTotalCount();
+                    continue;
+                }
+                Interval interval = getInterval(index, labelEntry.getKey());
+                interval.histogram.add(otherInterval.histogram);
+                interval.errors += otherInterval.errors;
+            }
+        }
+        if (maxTimestamp < other.maxTimestamp) {
+            maxTimestamp = other.maxTimestamp;
+        }
+    }
+
+    /**
+     * Move all samples to a new IntervalStatCalculator, which can be merged later. This IntervalStatCalculator
+     * should not have written any intervals.
+     *
+     * @return An IntervalStatCalculator with the samples added since the last call
+     */
+    IntervalStatCalculator takeSamples() {
+        IntervalStatCalculator samples = new IntervalStatCalculator(intervalMillis, precision);
+        samples.intervals.putAll(intervals);
+        samples.maxTimestamp = maxTimestamp;
+        samples.lateSamples = lateSamples;
+        intervals.clear();
+        maxTimestamp = Long.MIN_VALUE;
+        lateSamples = 0;
+        return samples;
+    }
+
+    /**
+     * Write intervals which cannot receive more samples.
+     *
+     * @param writer The writer
+     * @throws IOException If an I/O error occurs
+     */
+    void writeCompleted(IntervalStatsWriter writer) throws IOException {
+        if (maxTimestamp == Long.MIN_VALUE) {
+            return;
+        }
+        long watermark = Math.floorDiv(maxTimestamp - MAX_DELAY_MILLIS, intervalMillis);
+        write(writer, watermark);
+        if (nextInterval < watermark) {
+            nextInterval = watermark;
+        }
+    }
+
+    /**
+     * Write all remaining intervals.
+     *
+     * @param writer The writer
+     * @throws IOException If an I/O error occurs
+     */
+    void writeAll(IntervalStatsWriter writer) throws IOException {
+        write(writer, Long.MAX_VALUE);
+    }
+
+    private void write(IntervalStatsWriter writer, long endIndex) throws IOException {
+        while (!intervals.isEmpty() && intervals.firstKey() < endIndex) {
+            Map.Entry<Long, Map<String, Interval>> entry = intervals.pollFirstEntry();
+            long index = entry.getKey();
+            long startTimestamp = index * intervalMillis;
+            for (Map.Entry<String, Interval> labelEntry : entry.getValue().entrySet()) {
+                Interval interval = labelEntry.getValue();
+                writer.write(labelEntry.getKey(), startTimestamp, startTimestamp + intervalMillis,
+                        interval.histogram, interval.errors);
+                interval.histogram.reset();
+                freeHistograms.add(interval.histogram);
+            }
+            nextInterval = index + 1;
+        }
+    }
+
+    private Interval getInterval(long index, String label) {
+        Map<String, Interval> labelIntervals = intervals.get(index);
+        if (labelIntervals == null) {
+            labelIntervals = new LinkedHashMap<>();
+            intervals.put(index, labelIntervals);
+        }
+        Interval interval = labelIntervals.get(label);
+        if (interval == null) {
+            Histogram histogram = freeHistograms.poll();
+            interval = new Interval(histogram != null ? histogram : new Histogram(precision));
+            labelIntervals.put(label, interval);
+        }
+        return interval;
+    }
+
+    /**
+     * Samples of a label in an interval.
+     */
+    private static final class Interval {
+        private final Histogram histogram;
+        private long errors;
+
+        private Interval(Histogram histogram) {
+            this.histogram = histogram;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+/**
+ * Write statistics of each label for each interval.
+ */
+final class IntervalStatsWriter implements Closeable {
+
+    /**
+     * Output formats of interval statistics.
+     */
+    enum Format {
+        /**
+         * CSV file with throughput, error rate and latency percentiles. The label is quoted as described in RFC 4180
+         * if it contains commas, quotes or line breaks.
+         */
+        CSV(".csv"),
+        /**
+         * HdrHistogram interval log. The label is used as the tag of each histogram. Whitespace and commas in the
+         * label are replaced with underscores as tags cannot contain them.
+         */
+        HDR(".hlog");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final String CSV_HEADER = "timestamp,label,samples,errors,errorPercentage,throughput,p50,p90,p99,"
+            + "max";
+
+    private static final Pattern INVALID_TAG_CHARACTERS = Pattern.compile("[\\s,]");
+
+    private static final Pattern CSV_SPECIAL_CHARACTERS = Pattern.compile("[,\"\r\n]");
+
+    private final Writer csvWriter;
+    private final HistogramLogWriter histogramLogWriter;
+    private final PrintStream histogramLogStream;
+    private boolean started;
+
+    IntervalStatsWriter(Path path, Format format) throws IOException {
+        if (format == Format.CSV) {
+            csvWriter = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path),
+                    StandardCharsets.UTF_8));
+            histogramLogStream = null;
+            histogramLogWriter = null;
+        } else {
+            csvWriter = null;
+            histogramLogStream = new PrintStream(new BufferedOutputStream(Files.newOutputStream(path)), false,
+                    StandardCharsets.UTF_8.name());
+            histogramLogWriter = new HistogramLogWriter(histogramLogStream);
+        }
+    }
+
+    /**
+     * Write statistics of a label in an interval.
+     *
+     * @param label          The label
+     * @param startTimestamp The start timestamp of the interval in milliseconds
+     * @param endTimestamp   The end timestamp of the interval in milliseconds
+     * @param histogram      The histogram of latencies in milliseconds
+     * @param errors         The number of errors
+     * @throws IOException If an I/O error occurs
+     */
+    void write(String label, long startTimestamp, long endTimestamp, Histogram histogram, long errors)
+            throws IOException {
+        if (csvWriter != null) {
+            writeCSV(label, startTimestamp, endTimestamp, histogram, errors);
+        } else {
+            writeHistogram(label, startTimestamp, endTimestamp, histogram);
+        }
+    }
+
+    private void writeCSV(String label, long startTimestamp, long endTimestamp, Histogram histogram, long errors)
+            throws IOException {
+        if (!started) {
+            csvWriter.write(CSV_HEADER);
+            csvWriter.write('\n');
+            started = true;
+        }
+        RoundingMode roundingMode = RoundingMode.HALF_EVEN;
+        long samples = histogram.getTotalCount();
+        double duration = (endTimestamp - startTimestamp) / 1_000D;
+        csvWriter.write(startTimestamp + "," + escapeCSV(label) + "," + samples + "," + errors + ","
+                + new BigDecimal(((double) errors / samples) * 100D).setScale(2, roundingMode) + ","
+                + new BigDecimal(samples / duration).setScale(2, roundingMode) + ","
+                + histogram.getValueAtPercentile(50) + "," + histogram.getValueAtPercentile(90) + ","
+                + histogram.getValueAtPercentile(99) + "," + histogram.getMaxValue());
+        csvWriter.write('\n');
+    }
+
+    private static String escapeCSV(String value) {
+        if (!CSV_SPECIAL_CHARACTERS.matcher(value).find()) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private void writeHistogram(String label, long startTimestamp, long endTimestamp, Histogram histogram)
+            throws IOException {
+        if (!started) {
+            histogramLogWriter.outputLogFormatVersion();
+            histogramLogWriter.outputComment("Latencies of JTL samples in milliseconds");
+            histogramLogWriter.outputStartTime(startTimestamp);
+            histogramLogWriter.setBaseTime(startTimestamp);
+            histogramLogWriter.outputBaseTime(startTimestamp);
+            histogramLogWriter.outputLegend();
+            started = true;
+        }
+        long baseTime = histogramLogWriter.getBaseTime();
+        histogram.setTag(INVALID_TAG_CHARACTERS.matcher(label).replaceAll("_"));
+        histogram.setStartTimeStamp(startTimestamp);
+        histogram.setEndTimeStamp(endTimestamp);
+        // Values are in milliseconds
+        histogramLogWriter.outputIntervalHistogram((startTimestamp - baseTime) / 1_000D,
+                (endTimestamp - baseTime) / 1_000D, histogram, 1D);
+        if (histogramLogStream.checkError()) {
+            throw new IOException("Failed to write the interval log");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (csvWriter != null) {
+            csvWriter.close();
+        } else {
+            histogramLogWriter.close();
+            if (histogramLogStream.checkError()) {
+                throw new IOException("Failed to write the interval log");
+            }
+        }
+    }
+}
@@ -19,17 +19,19 @@ import com.beust.jcommander.IValueValidator;
 import com.beust.jcommander.ParameterException;
 
 import java.io.File;
+import java.nio.file.Path;
 
 /**
- * Validate JTL file extension
+ * Validate JTL file extension. Gzip compressed JTL files are also accepted.
  */
 public class JTLFileValidator implements IValueValidator<File> {
 
     @Override
     public void validate(String name, File file) throws ParameterException {
-        String fileName = file.toPath().getFileName().toString();
-        String ext = fileName.substring(fileName.lastIndexOf('.') + 1);
-        if (!file.exists() || !"jtl".equals(ext)) {
+        Path path = file.toPath();
+        boolean validExtension = path.getFileName().toString().endsWith(JTLStreams.JTL_EXTENSION)
+                || JTLStreams.isCompressed(path);
+        if (!file.exists() || !validExtension) {
             throw new ParameterException("Parameter " + name + " should be a valid JTL file");
         }
     }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Read lines as bytes from an input stream. A line is terminated by "\n", "\r" or "\r\n" as in
+ * {@link java.io.BufferedReader#readLine()}. The line is available in the buffer until the next line is read.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class JTLLineReader implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private final InputStream inputStream;
+    private byte[] bytes;
+    private ByteBuffer buffer;
+    private int position;
+    private int limit;
+    private boolean endOfStream;
+    private int lineStart;
+    private int lineEnd;
+
+    JTLLineReader(InputStream inputStream) {
+        this(inputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    JTLLineReader(InputStream inputStream, int bufferSize) {
+        this.inputStream = inputStream;
+        this.bytes = new byte[bufferSize];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Read the next line.
+     *
+     * @return {@code false} if the end of the stream has been reached
+     * @throws IOException If an I/O error occurs
+     */
+    boolean readLine() throws IOException {
+        while (true) {
+            for (int i = position; i < limit; i++) {
+                byte b = bytes[i];
+                if (b == '\n') {
+                    lineStart = position;
+                    lineEnd = i;
+                    position = i + 1;
+                    return true;
+                } else if (b == '\r') {
+                    if (i + 1 < limit) {
+                        lineStart = position;
+                        lineEnd = i;
+                        position = bytes[i + 1] == '\n' ? i + 2 : i + 1;
+                        return true;
+                    } else if (endOfStream) {
+                        lineStart = position;
+                        lineEnd = i;
+                        position = i + 1;
+                        return true;
+                    }
+                    // Need the next byte to check for "\r\n"
+                    break;
+                }
+            }
+            if (endOfStream) {
+                if (position < limit) {
+                    lineStart = position;
+                    lineEnd = limit;
+                    position = limit;
+                    return true;
+                }
+                return false;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Get the buffer containing the current line.
+     */
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Get the start position of the current line.
+     */
+    int getLineStart() {
+        return lineStart;
+    }
+
+    /**
+     * Get the end position of the current line excluding the line terminator.
+     */
+    int getLineEnd() {
+        return lineEnd;
+    }
+
+    private void fill() throws IOException {
+        // Move the remaining bytes to the beginning of the buffer
+        int remaining = limit - position;
+        if (position > 0) {
+            System.arraycopy(bytes, position, bytes, 0, remaining);
+        } else if (remaining == bytes.length) {
+            // The line is longer than the buffer
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            buffer = ByteBuffer.wrap(bytes);
+        }
+        position = 0;
+        limit = remaining;
+        int read = inputStream.read(bytes, limit, bytes.length - limit);
+        if (read < 0) {
+            endOfStream = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
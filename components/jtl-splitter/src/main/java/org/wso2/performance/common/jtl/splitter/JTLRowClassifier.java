@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Classify JTL rows into warmup and measurement and update the statistics of each label.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class JTLRowClassifier {
+
+    /**
+     * The result of classifying a row.
+     */
+    enum RowType {
+        WARMUP,
+        MEASUREMENT,
+        INVALID
+    }
+
+    private final JTLRowParser rowParser;
+    private final long timeLimit;
+    private final boolean summarize;
+    private final LabelStatCalculators warmupStatCalculators;
+    private final LabelStatCalculators measurementStatCalculators;
+    private final IntervalStatCalculator intervalStatCalculator;
+    private final Consumer<String> messageConsumer;
+    private long startTimestamp;
+    private long reorderedRows;
+
+    /**
+     * Create a row classifier.
+     *
+     * @param rowParser                  The parser to use
+     * @param timeLimit                  The warmup time in milliseconds
+     * @param summarize                  Whether to update statistics
+     * @param startTimestamp             The minimum timestamp seen before the first row
+     * @param warmupStatCalculators      StatCalculators for warmup samples
+     * @param measurementStatCalculators StatCalculators for measurement samples
+     * @param intervalStatCalculator     Calculator for interval statistics or {@code null} if not required
+     * @param messageConsumer            Consumer for warning and error messages
+     */
+    JTLRowClassifier(JTLRowParser rowParser, long timeLimit, boolean summarize, long startTimestamp,
+                     LabelStatCalculators warmupStatCalculators, LabelStatCalculators measurementStatCalculators,
+                     IntervalStatCalculator intervalStatCalculator, Consumer<String> messageConsumer) {
+        this.rowParser = rowParser;
+        this.timeLimit = timeLimit;
+        this.summarize = summarize;
+        this.startTimestamp = startTimestamp;
+        this.warmupStatCalculators = warmupStatCalculators;
+        this.measurementStatCalculators = measurementStatCalculators;
+        this.intervalStatCalculator = intervalStatCalculator;
+        this.messageConsumer = messageConsumer;
+    }
+
+    /**
+     * Classify a row and update statistics.
+     *
+     * @param buffer     The buffer containing the row
+     * @param start      The start position of the row
+     * @param end        The end position of the row excluding the line terminator
+     * @param lineNumber The line number used in messages
+     * @return The type of the row
+     * @throws RuntimeException If the row cannot be parsed
+     */
+    RowType classify(ByteBuffer buffer, int start, int end, long lineNumber) {
+        int i = rowParser.parse(buffer, start, end);
+        if (i < 0) {
+            // Validate number of columns
+            messageConsumer.accept(String.format("WARNING: Line %d has more columns than expected: %s%n",
+                    lineNumber, rowParser.getLine()));
+            return RowType.INVALID;
+        }
+        if (i < JTLRowParser.MINIMUM_COLUMNS) {
+            // Validate number of columns
+            messageConsumer.accept(String.format("WARNING: Line %d has less columns than expected: %s%n",
+                    lineNumber, rowParser.getLine()));
+            return RowType.INVALID;
+        }
+        long timestamp;
+        try {
+            timestamp = rowParser.getTimestamp();
+        } catch (Throwable parseError) {
+            messageConsumer.accept(String.format("ERROR: Failed to parse timestamp in line %d: %s%n",
+                    lineNumber, rowParser.getLine()));
+            throw new RuntimeException(parseError);
+        }
+        if (startTimestamp > timestamp) {
+            if (startTimestamp != Long.MAX_VALUE) {
+                // Previous rows were classified using a later start timestamp
+                reorderedRows++;
+            }
+            startTimestamp = timestamp;
+        }
+        long diff = timestamp - startTimestamp;
+        final RowType rowType;
+        final LabelStatCalculators statCalculators;
+        if (diff <= timeLimit) {
+            rowType = RowType.WARMUP;
+            statCalculators = warmupStatCalculators;
+        } else {
+            rowType = RowType.MEASUREMENT;
+            statCalculators = measurementStatCalculators;
+        }
+        if (summarize || intervalStatCalculator != null) {
+            try {
+                String label = rowParser.getLabel();
+                if (summarize) {
+                    statCalculators.get(label).addSample(timestamp, rowParser.getElapsed(), rowParser.isSuccess(),
+                            rowParser.getBytes(), rowParser.getSentBytes());
+                }
+                if (intervalStatCalculator != null) {
+                    intervalStatCalculator.addSample(label, timestamp, rowParser.getElapsed(),
+                            rowParser.isSuccess());
+                }
+            } catch (Throwable parseError) {
+                messageConsumer.accept(String.format("ERROR: Failed to parse values in line %d: %s%n",
+                        lineNumber, rowParser.getLine()));
+                throw new RuntimeException(parseError);
+            }
+        }
+        return rowType;
+    }
+
+    /**
+     * Get the number of rows with a timestamp earlier than the start timestamp used to classify previous rows.
+     */
+    long getReorderedRows() {
+        return reorderedRows;
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Parse JTL rows directly from bytes. The parser is reused for all rows and records the column offsets of the current
+ * row without creating a String for each column. Only the label is converted to a String and labels are cached.
+ * <p>
+ * Numeric and boolean values are parsed with the same rules as {@link Long#parseLong(String)},
+ * {@link Integer#parseInt(String)} and {@link Boolean#parseBoolean(String)} for ASCII values.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class JTLRowParser {
+
+    static final int MINIMUM_COLUMNS = 11;
+    // Support JMeter 5.0
+    static final int MAXIMUM_COLUMNS = 17;
+
+    private static final int TIMESTAMP_COLUMN = 0;
+    private static final int ELAPSED_COLUMN = 1;
+    private static final int LABEL_COLUMN = 2;
+    private static final int SUCCESS_COLUMN = 7;
+    private static final int BYTES_COLUMN = 9;
+    private static final int SENT_BYTES_COLUMN = 10;
+
+    private static final int DEFAULT_LABEL_CACHE_SIZE = 1024;
+
+    // Use the default charset as JTL files are written using the default charset
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    // Start offset of each column. The column end is the start of next column minus one.
+    private final int[] columnStarts = new int[MAXIMUM_COLUMNS + 1];
+
+    private final LabelCache labelCache;
+
+    private ByteBuffer buffer;
+    private int lineStart;
+    private int lineEnd;
+
+    JTLRowParser() {
+        this(DEFAULT_LABEL_CACHE_SIZE);
+    }
+
+    JTLRowParser(int labelCacheSize) {
+        labelCache = new LabelCache(labelCacheSize);
+    }
+
+    /**
+     * Parse column offsets of a row.
+     *
+     * @param buffer The buffer containing the row
+     * @param start  The start position of the row
+     * @param end    The end position of the row excluding the line terminator
+     * @return The index of the last column or -1 if the row has more columns than expected
+     */
+    int parse(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.lineStart = start;
+        this.lineEnd = end;
+        int i = 0;
+        columnStarts[0] = start;
+        for (int p = start; p < end; p++) {
+            if (buffer.get(p) == ',') {
+                if (i < MAXIMUM_COLUMNS - 1) {
+                    columnStarts[++i] = p + 1;
+                } else {
+                    return -1;
+                }
+            }
+        }
+        columnStarts[i + 1] = end + 1;
+        return i;
+    }
+
+    long getTimestamp() {
+        return parseLong(TIMESTAMP_COLUMN);
+    }
+
+    int getElapsed() {
+        return parseInt(ELAPSED_COLUMN);
+    }
+
+    String getLabel() {
+        return labelCache.get(buffer, columnStarts[LABEL_COLUMN], columnEnd(LABEL_COLUMN));
+    }
+
+    boolean isSuccess() {
+        // Same as Boolean.parseBoolean
+        int start = columnStarts[SUCCESS_COLUMN];
+        return columnEnd(SUCCESS_COLUMN) - start == 4
+                && (buffer.get(start) | 0x20) == 't'
+                && (buffer.get(start + 1) | 0x20) == 'r'
+                && (buffer.get(start + 2) | 0x20) == 'u'
+                && (buffer.get(start + 3) | 0x20) == 'e';
+    }
+
+    int getBytes() {
+        return parseInt(BYTES_COLUMN);
+    }
+
+    int getSentBytes() {
+        return parseInt(SENT_BYTES_COLUMN);
+    }
+
+    /**
+     * Get the current row as a String. This is only used to report errors.
+     */
+    String getLine() {
+        return decode(lineStart, lineEnd);
+    }
+
+    private int columnEnd(int column) {
+        return columnStarts[column + 1] - 1;
+    }
+
+    private int parseInt(int column) {
+        long value = parseLong(column);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw invalidNumber(column);
+        }
+        return (int) value;
+    }
+
+    private long parseLong(int column) {
+        int p = columnStarts[column];
+        int end = columnEnd(column);
+        if (p >= end) {
+            throw invalidNumber(column);
+        }
+        boolean negative = false;
+        byte first = buffer.get(p);
+        if (first == '-') {
+            negative = true;
+            p++;
+        } else if (first == '+') {
+            p++;
+        }
+        if (p >= end) {
+            throw invalidNumber(column);
+        }
+        // Accumulate negatively to handle Long.MIN_VALUE
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        while (p < end) {
+            int digit = buffer.get(p++) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                throw invalidNumber(column);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw invalidNumber(column);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private NumberFormatException invalidNumber(int column) {
+        return new NumberFormatException("For input string: \"" + decode(columnStarts[column], columnEnd(column))
+                + "\"");
+    }
+
+    private String decode(int start, int end) {
+        return decode(buffer, start, end);
+    }
+
+    static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer source = buffer.duplicate();
+        ((Buffer) source).position(start);
+        source.get(bytes);
+        return new String(bytes, CHARSET);
+    }
+
+    /**
+     * A small open addressing hash table to reuse label Strings. New labels are not cached once the cache is full.
+     */
+    private static final class LabelCache {
+
+        private final int capacity;
+        private final int mask;
+        private final int[] hashes;
+        private final byte[][] keys;
+        private final String[] labels;
+        private int size;
+
+        private LabelCache(int capacity) {
+            this.capacity = capacity;
+            int tableSize = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1) << 1;
+            mask = tableSize - 1;
+            hashes = new int[tableSize];
+            keys = new byte[tableSize][];
+            labels = new String[tableSize];
+        }
+
+        private String get(ByteBuffer buffer, int start, int end) {
+            int hash = 1;
+            for (int p = start; p < end; p++) {
+                hash = 31 * hash + buffer.get(p);
+            }
+            int index = hash & mask;
+            byte[] key;
+            while ((key = keys[index]) != null) {
+                if (hashes[index] == hash && matches(key, buffer, start, end)) {
+                    return labels[index];
+                }
+                index = (index + 1) & mask;
+            }
+            String label = decode(buffer, start, end);
+            if (size < capacity) {
+                byte[] newKey = new byte[end - start];
+                for (int i = 0; i < newKey.length; i++) {
+                    newKey[i] = buffer.get(start + i);
+                }
+                hashes[index] = hash;
+                keys[index] = newKey;
+                labels[index] = label;
+                size++;
+            }
+            return label;
+        }
+
+        private boolean matches(byte[] key, ByteBuffer buffer, int start, int end) {
+            if (key.length != end - start) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -20,16 +20,14 @@ import com.beust.jcommander.Parameter;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
-import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -37,6 +35,11 @@ import java.util.concurrent.TimeUnit;
  */
 public final class JTLSplitter {
 
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+
+    // Lines are written using the platform line separator
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(Charset.defaultCharset());
+
     @Parameter(names = {"-t", "--warmup-time"}, description = "Warmup Time", required = true,
             validateWith = WarmupTimeValidator.class)
     private int warmupTime;
@@ -48,6 +51,11 @@ public final class JTLSplitter {
             validateValueWith = JTLFileValidator.class)
     private File jtlFile;
 
+    @Parameter(names = "--lookahead", description = "Number of rows to read at the beginning of the JTL file to " +
+            "find the start timestamp. By default, rows are classified using the minimum timestamp seen so far",
+            validateWith = PositiveIntegerValidator.class)
+    private int lookahead;
+
     @Parameter(names = {"-d", "--delete-jtl-file-on-exit"}, description = "Delete JTL File on exit")
     private boolean deleteJTLFileOnExit;
 
@@ -57,15 +65,53 @@ public final class JTLSplitter {
     @Parameter(names = {"-s", "--summarize"}, description = "Summarize results")
     private boolean summarize;
 
+    @Parameter(names = "--summary-only", description = "Only write summary statistics. The JTL file will be " +
+            "read once and the warmup and measurement JTL files will not be written")
+    private boolean summaryOnly;
+
+    @Parameter(names = {"-z", "--compress"}, description = "Compress warmup and measurement JTL files using gzip")
+    private boolean compress;
+
     @Parameter(names = {"-n", "--precision"}, description = "Precision to use in statistics")
     private int precision = 2;
 
+    @Parameter(names = "--max-labels", description = "Maximum number of labels to summarize in each phase. " +
+            "Samples of other labels are summarized as " + LabelStatCalculators.OTHER_LABEL + " and all samples " +
+            "are summarized as " + LabelStatCalculators.TOTAL_LABEL, validateWith = PositiveIntegerValidator.class)
+    private int maxLabels;
+
+    @Parameter(names = "--packed-histograms", description = "Use packed histograms to reduce the memory used " +
+            "for each label")
+    private boolean packedHistograms;
+
+    @Parameter(names = "--save-state", description = "Save the state of statistics in addition to the summary. " +
+            "States of multiple JTL files can be merged using JTLSummaryMerger")
+    private boolean saveState;
+
+    @Parameter(names = {"-j", "--threads"}, description = "Number of threads to use. The JTL file will be " +
+            "memory-mapped and split in parallel when the number of threads is greater than one",
+            validateWith = PositiveIntegerValidator.class)
+    private int threads = 1;
+
+    @Parameter(names = "--chunk-size", description = "Chunk size in bytes to use when splitting in parallel",
+            validateWith = PositiveIntegerValidator.class)
+    private int chunkSize = ParallelJTLSplitter.DEFAULT_CHUNK_SIZE;
+
+    @Parameter(names = "--interval", description = "Interval in seconds to write statistics of each label over " +
+            "time. Interval statistics are not written by default", validateWith = PositiveIntegerValidator.class)
+    private int interval;
+
+    @Parameter(names = "--interval-format", description = "Format of the interval statistics file")
+    private IntervalStatsWriter.Format intervalFormat = IntervalStatsWriter.Format.CSV;
+
     @Parameter(names = {"-h", "--help"}, description = "Display Help", help = true)
     private boolean help = false;
 
     private static PrintStream errorOutput = System.err;
     private static PrintStream standardOutput = System.out;
 
+    private long reorderedRows;
+
     public static void main(String[] args) {
         JTLSplitter jtlSplitter = new JTLSplitter();
         final JCommander jcmdr = new JCommander(jtlSplitter);
@@ -90,128 +136,105 @@ public final class JTLSplitter {
         long startTime = System.nanoTime();
         Path jtlPath = jtlFile.toPath();
         String fileName = jtlPath.getFileName().toString();
-        String outputFilePrefix = fileName.substring(0, fileName.length() - 4);
-        Path warmupJTLFile = jtlPath.resolveSibling(outputFilePrefix + "-warmup.jtl");
-        Path measurementJTLFile = jtlPath.resolveSibling(outputFilePrefix + "-measurement.jtl");
+        String outputFilePrefix = JTLStreams.getBaseName(jtlPath);
+        String outputFileExtension = compress ? JTLStreams.JTL_EXTENSION + JTLStreams.GZIP_EXTENSION
+                : JTLStreams.JTL_EXTENSION;
+        Path warmupJTLFile = jtlPath.resolveSibling(outputFilePrefix + "-warmup" + outputFileExtension);
+        Path measurementJTLFile = jtlPath.resolveSibling(outputFilePrefix + "-measurement" + outputFileExtension);
+        boolean compressedInput = JTLStreams.isCompressed(jtlPath);
 
-        Map<String, StatCalculator> warmupStatCalculators = new LinkedHashMap<>();
-        Map<String, StatCalculator> measurementStatCalculators = new LinkedHashMap<>();
+        LabelStatCalculators warmupStatCalculators = new LabelStatCalculators(precision, packedHistograms, maxLabels);
+        LabelStatCalculators measurementStatCalculators = new LabelStatCalculators(precision, packedHistograms,
+                maxLabels);
         Path warmupSummaryJsonFile = jtlPath.resolveSibling(outputFilePrefix + "-warmup-summary.json");
         Path measurementSummaryJsonFile = jtlPath.resolveSibling(outputFilePrefix + "-measurement-summary.json");
+        Path warmupStateJsonFile = jtlPath.resolveSibling(outputFilePrefix + "-warmup-state.json");
+        Path measurementStateJsonFile = jtlPath.resolveSibling(outputFilePrefix + "-measurement-state.json");
+        Path intervalStatsFile = jtlPath.resolveSibling(outputFilePrefix + "-intervals"
+                + intervalFormat.getExtension());
+        IntervalStatCalculator intervalStatCalculator = interval > 0
+                ? new IntervalStatCalculator(TimeUnit.SECONDS.toMillis(interval), precision) : null;
 
-        standardOutput.format("Splitting %s file into %s and %s.%n", fileName, warmupJTLFile.getFileName(),
-                measurementJTLFile.getFileName());
+        if (summaryOnly || saveState) {
+            // Summary statistics are required
+            summarize = true;
+        }
+        if (summaryOnly) {
+            standardOutput.format("Summarizing %s file without writing warmup and measurement JTL files.%n",
+                    fileName);
+        } else {
+            standardOutput.format("Splitting %s file into %s and %s.%n", fileName, warmupJTLFile.getFileName(),
+                    measurementJTLFile.getFileName());
+        }
         standardOutput.format("Warmup Time: %d %s%n", warmupTime, timeUnit);
         if (summarize) {
             standardOutput.format("Summarization is enabled. Summary statistics will be written to %s and %s.%n",
                     warmupSummaryJsonFile.getFileName(), measurementSummaryJsonFile.getFileName());
         }
+        if (saveState) {
+            standardOutput.format("States of statistics will be written to %s and %s.%n",
+                    warmupStateJsonFile.getFileName(), measurementStateJsonFile.getFileName());
+        }
+        if (intervalStatCalculator != null) {
+            standardOutput.format("Statistics for each %d second interval will be written to %s.%n", interval,
+                    intervalStatsFile.getFileName());
+        }
 
         long timeLimit = timeUnit.toMillis(warmupTime);
 
-        try (BufferedReader br = new BufferedReader(new FileReader(jtlFile));
-             BufferedWriter bwWarmup = new BufferedWriter(new FileWriter(warmupJTLFile.toFile()));
-             BufferedWriter bwMeasurement = new BufferedWriter(new FileWriter(measurementJTLFile.toFile()))) {
-            // Read header
-            String line = br.readLine();
-            if (line != null) {
-                // Write Header
-                bwWarmup.write(line);
-                bwWarmup.newLine();
-                bwMeasurement.write(line);
-                bwMeasurement.newLine();
+        long startTimestamp = Long.MAX_VALUE;
+        if (lookahead > 0) {
+            StartTimestampProbe startTimestampProbe = new StartTimestampProbe(lookahead);
+            try {
+                startTimestampProbe.probe(jtlPath);
+            } catch (IOException e) {
+                errorOutput.println(e.getMessage());
+                return;
             }
-
-            long startTimestamp = Long.MAX_VALUE;
-            // Current Line Number
-            long lineNumber = 1;
-
-            if (showProgress) {
-                standardOutput.print("Started splitting...\r");
+            startTimestamp = startTimestampProbe.getStartTimestamp();
+            if (startTimestamp != Long.MAX_VALUE) {
+                standardOutput.format("Start timestamp %d was found in line %d.%n", startTimestamp,
+                        startTimestampProbe.getStartLineNumber());
             }
+        }
 
-            final int minimumColumns = 11;
-            // Support JMeter 5.0
-            final int maximumColumns = 17;
-
-            lineLoop:
-            while ((line = br.readLine()) != null) {
-                lineNumber++;
-                int i = 0;
-                String[] values = new String[maximumColumns];
-                int pos = 0, end;
-                while ((end = line.indexOf(',', pos)) >= 0) {
-                    if (i < maximumColumns - 1) {
-                        values[i++] = line.substring(pos, end);
-                        pos = end + 1;
-                    } else {
-                        // Validate number of columns
-                        errorOutput.format("WARNING: Line %d has more columns than expected: %s%n", lineNumber, line);
-                        continue lineLoop;
-                    }
-                }
-                // Add remaining
-                values[i] = line.substring(pos);
-                if (showProgress && lineNumber % 10_000 == 0) {
-                    standardOutput.print("Processed " + lineNumber + " lines.\r");
-                }
-                if (i < minimumColumns) {
-                    // Validate number of columns
-                    errorOutput.format("WARNING: Line %d has less columns than expected: %s%n", lineNumber, line);
-                    continue;
-                }
-                long timestamp;
-                try {
-                    timestamp = Long.parseLong(values[0]);
-                } catch (Throwable parseError) {
-                    errorOutput.format("ERROR: Failed to parse timestamp in line %d: %s%n", lineNumber, line);
-                    throw new RuntimeException(parseError);
-                }
-                if (startTimestamp > timestamp) {
-                    startTimestamp = timestamp;
-                }
-                long diff = timestamp - startTimestamp;
-                final Map<String, StatCalculator> statCalculatorMap;
-                if (diff <= timeLimit) {
-                    statCalculatorMap = warmupStatCalculators;
-                    bwWarmup.write(line);
-                    bwWarmup.newLine();
-                } else {
-                    statCalculatorMap = measurementStatCalculators;
-                    bwMeasurement.write(line);
-                    bwMeasurement.newLine();
+        if (threads > 1 && compressedInput) {
+            // Compressed files cannot be memory-mapped
+            standardOutput.println("Compressed JTL files are split using a single thread.");
+        }
+        if (threads > 1 && !compressedInput) {
+            standardOutput.format("Splitting in parallel using %d threads.%n", threads);
+            try (IntervalStatsWriter intervalStatsWriter = createIntervalStatsWriter(intervalStatsFile)) {
+                ParallelJTLSplitter parallelJTLSplitter = new ParallelJTLSplitter(jtlPath,
+                        summaryOnly ? null : warmupJTLFile, summaryOnly ? null : measurementJTLFile, compress,
+                        timeLimit, startTimestamp, summarize, showProgress, threads, chunkSize, standardOutput,
+                        errorOutput);
+                parallelJTLSplitter.split(warmupStatCalculators, measurementStatCalculators, intervalStatCalculator,
+                        intervalStatsWriter);
+                reorderedRows = parallelJTLSplitter.getReorderedRows();
+                if (intervalStatCalculator != null) {
+                    intervalStatCalculator.writeAll(intervalStatsWriter);
                 }
-                if (summarize) {
-                    try {
-                        String label = values[2];
-                        StatCalculator statCalculator = statCalculatorMap.get(label);
-                        if (statCalculator == null) {
-                            statCalculator = new StatCalculator(precision);
-                            statCalculatorMap.put(label, statCalculator);
-                        }
-                        statCalculator.addSample(timestamp,
-                                // elapsed
-                                Integer.parseInt(values[1]),
-                                // success
-                                Boolean.parseBoolean(values[7]),
-                                // bytes
-                                Integer.parseInt(values[9]),
-                                // sentBytes
-                                Integer.parseInt(values[10]));
-                    } catch (Throwable parseError) {
-                        errorOutput.format("ERROR: Failed to parse values in line %d: %s%n", lineNumber, line);
-                        throw new RuntimeException(parseError);
-                    }
+                // Delete only if splitting is successful
+                if (deleteJTLFileOnExit) {
+                    jtlFile.deleteOnExit();
                 }
+            } catch (IOException e) {
+                errorOutput.println(e.getMessage());
             }
-            // Delete only if splitting is successful
-            if (deleteJTLFileOnExit) {
-                jtlFile.deleteOnExit();
-            }
-        } catch (IOException e) {
-            errorOutput.println(e.getMessage());
+        } else {
+            splitSequentially(timeLimit, startTimestamp, warmupJTLFile, measurementJTLFile, warmupStatCalculators,
+                    measurementStatCalculators, intervalStatCalculator, intervalStatsFile);
+        }
+        if (reorderedRows > 0) {
+            errorOutput.format("WARNING: %d rows had a timestamp earlier than the start timestamp used to classify "
+                    + "previous rows. Use a larger --lookahead value to find the start timestamp.%n", reorderedRows);
+        }
+        if (intervalStatCalculator != null && intervalStatCalculator.getLateSamples() > 0) {
+            errorOutput.format("WARNING: %d samples were more than %d seconds out of order and were not included "
+                            + "in interval statistics.%n", intervalStatCalculator.getLateSamples(),
+                    TimeUnit.MILLISECONDS.toSeconds(IntervalStatCalculator.MAX_DELAY_MILLIS));
         }
-
 
         if (summarize) {
             try (BufferedWriter bwWarmupSummary =
@@ -219,8 +242,20 @@ public final class JTLSplitter {
                  BufferedWriter bwMeasurementSummary =
                          new BufferedWriter(new FileWriter(measurementSummaryJsonFile.toFile()))) {
                 Gson gson = new GsonBuilder().setPrettyPrinting().create();
-                gson.toJson(getSummaryStats(warmupStatCalculators), bwWarmupSummary);
-                gson.toJson(getSummaryStats(measurementStatCalculators), bwMeasurementSummary);
+                gson.toJson(warmupStatCalculators.getSummaryStats(), bwWarmupSummary);
+                gson.toJson(measurementStatCalculators.getSummaryStats(), bwMeasurementSummary);
+            } catch (IOException e) {
+                errorOutput.println(e.getMessage());
+            }
+        }
+
+        if (saveState) {
+            try (BufferedWriter bwWarmupState = new BufferedWriter(new FileWriter(warmupStateJsonFile.toFile()));
+                 BufferedWriter bwMeasurementState =
+                         new BufferedWriter(new FileWriter(measurementStateJsonFile.toFile()))) {
+                Gson gson = new GsonBuilder().setPrettyPrinting().create();
+                gson.toJson(warmupStatCalculators.encodeStates(), bwWarmupState);
+                gson.toJson(measurementStatCalculators.encodeStates(), bwMeasurementState);
             } catch (IOException e) {
                 errorOutput.println(e.getMessage());
             }
@@ -235,9 +270,81 @@ public final class JTLSplitter {
 
     }
 
-    private Map<String, SummaryStats> getSummaryStats(Map<String, StatCalculator> statCalculatorMap) {
-        Map<String, SummaryStats> summaryStatsMap = new LinkedHashMap<>(statCalculatorMap.size());
-        statCalculatorMap.forEach((label, statCalculator) -> summaryStatsMap.put(label, statCalculator.calculate()));
-        return summaryStatsMap;
+    private void splitSequentially(long timeLimit, long startTimestamp, Path warmupJTLFile, Path measurementJTLFile,
+                                   LabelStatCalculators warmupStatCalculators,
+                                   LabelStatCalculators measurementStatCalculators,
+                                   IntervalStatCalculator intervalStatCalculator, Path intervalStatsFile) {
+        try (JTLLineReader lineReader = new JTLLineReader(JTLStreams.openInputStream(jtlFile.toPath()));
+             OutputStream osWarmup = summaryOnly ? null : createOutputStream(warmupJTLFile);
+             OutputStream osMeasurement = summaryOnly ? null : createOutputStream(measurementJTLFile);
+             IntervalStatsWriter intervalStatsWriter = createIntervalStatsWriter(intervalStatsFile)) {
+            // Read header
+            if (lineReader.readLine()) {
+                // Write Header
+                writeLine(osWarmup, lineReader);
+                writeLine(osMeasurement, lineReader);
+            }
+
+            // Current Line Number
+            long lineNumber = 1;
+
+            if (showProgress) {
+                standardOutput.print("Started splitting...\r");
+            }
+
+            JTLRowClassifier rowClassifier = new JTLRowClassifier(new JTLRowParser(), timeLimit, summarize,
+                    startTimestamp, warmupStatCalculators, measurementStatCalculators, intervalStatCalculator,
+                    errorOutput::print);
+            while (lineReader.readLine()) {
+                lineNumber++;
+                if (lineNumber % IntervalStatCalculator.WRITE_INTERVAL_LINES == 0) {
+                    if (showProgress) {
+                        standardOutput.print("Processed " + lineNumber + " lines.\r");
+                    }
+                    if (intervalStatCalculator != null) {
+                        intervalStatCalculator.writeCompleted(intervalStatsWriter);
+                    }
+                }
+                switch (rowClassifier.classify(lineReader.getBuffer(), lineReader.getLineStart(),
+                        lineReader.getLineEnd(), lineNumber)) {
+                    case WARMUP:
+                        writeLine(osWarmup, lineReader);
+                        break;
+                    case MEASUREMENT:
+                        writeLine(osMeasurement, lineReader);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (intervalStatCalculator != null) {
+                intervalStatCalculator.writeAll(intervalStatsWriter);
+            }
+            reorderedRows = rowClassifier.getReorderedRows();
+            // Delete only if splitting is successful
+            if (deleteJTLFileOnExit) {
+                jtlFile.deleteOnExit();
+            }
+        } catch (IOException e) {
+            errorOutput.println(e.getMessage());
+        }
+    }
+
+    private IntervalStatsWriter createIntervalStatsWriter(Path path) throws IOException {
+        return interval > 0 ? new IntervalStatsWriter(path, intervalFormat) : null;
+    }
+
+    private OutputStream createOutputStream(Path path) throws IOException {
+        return JTLStreams.openOutputStream(path, compress, WRITE_BUFFER_SIZE);
+    }
+
+    private static void writeLine(OutputStream outputStream, JTLLineReader lineReader) throws IOException {
+        if (outputStream == null) {
+            // Lines are not written in summary-only mode
+            return;
+        }
+        outputStream.write(lineReader.getBuffer().array(), lineReader.getLineStart(),
+                lineReader.getLineEnd() - lineReader.getLineStart());
+        outputStream.write(LINE_SEPARATOR);
     }
 }
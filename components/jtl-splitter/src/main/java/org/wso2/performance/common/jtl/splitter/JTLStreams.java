@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Open plain and gzip compressed JTL files.
+ */
+final class JTLStreams {
+
+    static final String JTL_EXTENSION = ".jtl";
+    static final String GZIP_EXTENSION = ".gz";
+
+    private static final int INFLATER_BUFFER_SIZE = 64 * 1024;
+    private static final int READ_AHEAD_BUFFER_SIZE = 1024 * 1024;
+
+    private JTLStreams() {
+    }
+
+    /**
+     * Check whether a JTL file is gzip compressed.
+     */
+    static boolean isCompressed(Path path) {
+        return path.getFileName().toString().endsWith(JTL_EXTENSION + GZIP_EXTENSION);
+    }
+
+    /**
+     * Get the file name without the JTL and gzip extensions.
+     */
+    static String getBaseName(Path path) {
+        String fileName = path.getFileName().toString();
+        if (isCompressed(path)) {
+            fileName = fileName.substring(0, fileName.length() - GZIP_EXTENSION.length());
+        }
+        return fileName.substring(0, fileName.length() - JTL_EXTENSION.length());
+    }
+
+    /**
+     * Open a JTL file for reading. Compressed files are decompressed in a separate thread.
+     */
+    static InputStream openInputStream(Path path) throws IOException {
+        InputStream inputStream = new FileInputStream(path.toFile());
+        if (!isCompressed(path)) {
+            return inputStream;
+        }
+        try {
+            return new ReadAheadInputStream(new GZIPInputStream(inputStream, INFLATER_BUFFER_SIZE),
+                    READ_AHEAD_BUFFER_SIZE);
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open a JTL file for writing.
+     *
+     * @param path       The file path
+     * @param compress   Whether to compress using gzip
+     * @param bufferSize The buffer size
+     * @return The output stream
+     * @throws IOException If an I/O error occurs
+     */
+    static OutputStream openOutputStream(Path path, boolean compress, int bufferSize) throws IOException {
+        OutputStream outputStream = new FileOutputStream(path.toFile());
+        if (compress) {
+            try {
+                outputStream = new FastGZIPOutputStream(outputStream, bufferSize);
+            } catch (IOException e) {
+                outputStream.close();
+                throw e;
+            }
+        }
+        return new BufferedOutputStream(outputStream, bufferSize);
+    }
+
+    /**
+     * Use the best compression speed as the split files are usually large.
+     */
+    private static final class FastGZIPOutputStream extends GZIPOutputStream {
+        private FastGZIPOutputStream(OutputStream outputStream, int bufferSize) throws IOException {
+            super(outputStream, bufferSize);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+}
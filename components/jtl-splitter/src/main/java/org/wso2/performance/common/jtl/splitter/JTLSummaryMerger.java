@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+/**
+ * Merge states of statistics saved by the {@link JTLSplitter} to calculate exact summary statistics of multiple JTL
+ * files. For example, each JMeter server in a distributed test can split its own JTL file and the states can be merged
+ * later.
+ */
+public final class JTLSummaryMerger {
+
+    private static final Type STATES_TYPE = new TypeToken<Map<String, String>>() {
+    }.getType();
+
+    @Parameter(description = "State files written by the JTL splitter", required = true)
+    private List<File> stateFiles = new ArrayList<>();
+
+    @Parameter(names = {"-o", "--output"}, description = "Summary JSON file to write", required = true)
+    private File outputFile;
+
+    @Parameter(names = "--state-output", description = "File to write the merged state. The merged state can be " +
+            "merged again with other states")
+    private File stateOutputFile;
+
+    @Parameter(names = {"-n", "--precision"}, description = "Precision to use in statistics")
+    private int precision = 2;
+
+    @Parameter(names = "--max-labels", description = "Maximum number of labels to summarize. Samples of other " +
+            "labels are summarized as " + LabelStatCalculators.OTHER_LABEL + " and all samples are summarized as " +
+            LabelStatCalculators.TOTAL_LABEL, validateWith = PositiveIntegerValidator.class)
+    private int maxLabels;
+
+    @Parameter(names = {"-h", "--help"}, description = "Display Help", help = true)
+    private boolean help = false;
+
+    private static PrintStream errorOutput = System.err;
+    private static PrintStream standardOutput = System.out;
+
+    public static void main(String[] args) {
+        JTLSummaryMerger summaryMerger = new JTLSummaryMerger();
+        final JCommander jcmdr = new JCommander(summaryMerger);
+        jcmdr.setProgramName(JTLSummaryMerger.class.getSimpleName());
+
+        try {
+            jcmdr.parse(args);
+        } catch (Exception e) {
+            errorOutput.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        if (summaryMerger.help) {
+            jcmdr.usage();
+            return;
+        }
+
+        if (!summaryMerger.merge()) {
+            // Do not leave the summary of a previous run
+            deleteOutputFile(summaryMerger.outputFile);
+            deleteOutputFile(summaryMerger.stateOutputFile);
+            System.exit(1);
+        }
+    }
+
+    private static void deleteOutputFile(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            errorOutput.format("ERROR: Failed to delete %s%n", file);
+        }
+    }
+
+    /**
+     * Merge the state files and write the summary.
+     *
+     * @return {@code true} if the summary and the merged state were written
+     */
+    private boolean merge() {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        LabelStatCalculators statCalculators = new LabelStatCalculators(precision, false, maxLabels);
+        for (File stateFile : stateFiles) {
+            standardOutput.format("Merging %s.%n", stateFile);
+            try (BufferedReader reader = new BufferedReader(new FileReader(stateFile))) {
+                Map<String, String> states = gson.fromJson(reader, STATES_TYPE);
+                if (states == null) {
+                    throw new DataFormatException("No states found");
+                }
+                statCalculators.mergeStates(states);
+            } catch (IOException | JsonParseException | DataFormatException e) {
+                errorOutput.format("ERROR: Failed to merge %s: %s%n", stateFile, e.getMessage());
+                return false;
+            }
+        }
+
+        try (BufferedWriter bwSummary = new BufferedWriter(new FileWriter(outputFile))) {
+            gson.toJson(statCalculators.getSummaryStats(), bwSummary);
+        } catch (IOException e) {
+            errorOutput.println(e.getMessage());
+            return false;
+        }
+        standardOutput.format("Summary statistics of %d state files were written to %s.%n", stateFiles.size(),
+                outputFile);
+
+        if (stateOutputFile != null) {
+            try (BufferedWriter bwState = new BufferedWriter(new FileWriter(stateOutputFile))) {
+                gson.toJson(statCalculators.encodeStates(), bwState);
+            } catch (IOException e) {
+                errorOutput.println(e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+}
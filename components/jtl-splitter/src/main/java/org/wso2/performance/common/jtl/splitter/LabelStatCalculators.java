@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+
+/**
+ * StatCalculators of each label in the order the labels were first seen.
+ * <p>
+ * The number of labels can be limited to bound the memory used when a test has a large number of distinct labels.
+ * When the limit is reached, samples of new labels are added to the {@value #OTHER_LABEL} label and the statistics of
+ * all samples are reported with the {@value #TOTAL_LABEL} label.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class LabelStatCalculators {
+
+    // The reserved labels are in angle brackets to avoid merging them with the samples of a real label
+    static final String OTHER_LABEL = "<OTHER>";
+    static final String TOTAL_LABEL = "<TOTAL>";
+
+    private final int precision;
+    private final boolean packed;
+    private final int maxLabels;
+    private final Map<String, StatCalculator> statCalculators = new LinkedHashMap<>();
+
+    /**
+     * Create StatCalculators for labels.
+     *
+     * @param precision Precision to use in statistics
+     * @param packed    Whether to use packed histograms
+     * @param maxLabels Maximum number of labels or zero if the number of labels is not limited
+     */
+    LabelStatCalculators(int precision, boolean packed, int maxLabels) {
+        if (maxLabels < 0) {
+            throw new IllegalArgumentException("Maximum number of labels should not be negative");
+        }
+        this.precision = precision;
+        this.packed = packed;
+        this.maxLabels = maxLabels;
+    }
+
+    /**
+     * Create empty StatCalculators with the same precision and histogram type, without limiting the number of
+     * labels. These can be merged later in order to apply the limit in the same way.
+     */
+    LabelStatCalculators withoutLimit() {
+        return new LabelStatCalculators(precision, packed, 0);
+    }
+
+    /**
+     * Get the StatCalculator of a label. A StatCalculator is created if the label has not been seen.
+     */
+    StatCalculator get(String label) {
+        StatCalculator statCalculator = statCalculators.get(label);
+        if (statCalculator == null) {
+            if (isFull()) {
+                label = OTHER_LABEL;
+                statCalculator = statCalculators.get(label);
+            }
+            if (statCalculator == null) {
+                statCalculator = new StatCalculator(precision, packed);
+                statCalculators.put(label, statCalculator);
+            }
+        }
+        return statCalculator;
+    }
+
+    /**
+     * Merge the samples of all labels. Labels are merged in the order of appearance to keep the order of labels in the
+     * summary. The other StatCalculators should not be used after merging.
+     *
+     * @param other StatCalculators to merge
+     */
+    void merge(LabelStatCalculators other) {
+        other.statCalculators.forEach((label, otherStatCalculator) -> {
+            StatCalculator statCalculator = statCalculators.get(label);
+            if (statCalculator == null && !isFull()) {
+                // The StatCalculator is not used anymore in the other instance
+                statCalculators.put(label, otherStatCalculator);
+            } else {
+                get(label).merge(otherStatCalculator);
+            }
+        });
+    }
+
+    /**
+     * Encode the state of each label using Base64. The total is not included as it can be calculated from the states
+     * of all labels.
+     *
+     * @return Encoded state of each label
+     */
+    Map<String, String> encodeStates() {
+        Base64.Encoder encoder = Base64.getEncoder();
+        Map<String, String> states = new LinkedHashMap<>(statCalculators.size());
+        statCalculators.forEach((label, statCalculator) ->
+                states.put(label, encoder.encodeToString(statCalculator.encodeState())));
+        return states;
+    }
+
+    /**
+     * Merge states encoded by {@link #encodeStates()}. Labels are merged in the order of appearance.
+     *
+     * @param states Encoded state of each label
+     * @throws DataFormatException If a state cannot be decoded
+     */
+    void mergeStates(Map<String, String> states) throws DataFormatException {
+        Base64.Decoder decoder = Base64.getDecoder();
+        for (Map.Entry<String, String> entry : states.entrySet()) {
+            byte[] state;
+            try {
+                state = decoder.decode(String.valueOf(entry.getValue()));
+            } catch (IllegalArgumentException e) {
+                throw new DataFormatException("Invalid state of label " + entry.getKey());
+            }
+            get(entry.getKey()).mergeState(state);
+        }
+    }
+
+    private boolean isFull() {
+        return maxLabels > 0 && statCalculators.size() >= maxLabels;
+    }
+
+    /**
+     * Calculate summary statistics of each label.
+     *
+     * @return Summary statistics of each label. The total is included only if the number of labels is limited.
+     */
+    Map<String, SummaryStats> getSummaryStats() {
+        Map<String, SummaryStats> summaryStatsMap = new LinkedHashMap<>(statCalculators.size() + 1);
+        statCalculators.forEach((label, statCalculator) -> summaryStatsMap.put(label, statCalculator.calculate()));
+        if (maxLabels > 0) {
+            StatCalculator total = new StatCalculator(precision, packed);
+            statCalculators.values().forEach(total::merge);
+            summaryStatsMap.put(TOTAL_LABEL, total.calculate());
+        }
+        return summaryStatsMap;
+    }
+}
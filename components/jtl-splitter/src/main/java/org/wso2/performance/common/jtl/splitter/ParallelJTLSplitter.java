@@ -0,0 +1,553 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Split a JTL file using multiple threads. The JTL file is memory-mapped and divided into newline-aligned chunks.
+ * <p>
+ * The file is processed in two phases. The first phase finds the minimum timestamp and the number of lines in each
+ * chunk. The second phase parses and classifies the rows in each chunk against the same running minimum timestamp the
+ * sequential splitter would have seen at that row, and the results are written in chunk order. Therefore the output
+ * files and the summary statistics are identical to the output of the sequential splitter.
+ * <p>
+ * The JTL file is expected to use an ASCII compatible encoding.
+ */
+final class ParallelJTLSplitter {
+
+    static final int DEFAULT_CHUNK_SIZE = 32 * 1024 * 1024;
+
+    private static final int BOUNDARY_SCAN_BUFFER_SIZE = 8 * 1024;
+
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+
+    // Marks a line separator in the list of segments to write
+    private static final int LINE_SEPARATOR_SEGMENT = -1;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(Charset.defaultCharset());
+
+    // Whether a line terminated with "\n" can be written as it is
+    private static final boolean NEWLINE_SEPARATOR = LINE_SEPARATOR.length == 1 && LINE_SEPARATOR[0] == '\n';
+
+    private final Path jtlPath;
+    private final Path warmupJTLFile;
+    private final Path measurementJTLFile;
+    private final boolean compress;
+    private final long timeLimit;
+    private final long startTimestamp;
+    private final boolean summarize;
+    private final boolean showProgress;
+    private final int threads;
+    private final int chunkSize;
+    private final PrintStream standardOutput;
+    private final PrintStream errorOutput;
+    private final boolean writeLines;
+    private final ThreadLocal<JTLRowParser> rowParsers = ThreadLocal.withInitial(JTLRowParser::new);
+    private long reorderedRows;
+
+    ParallelJTLSplitter(Path jtlPath, Path warmupJTLFile, Path measurementJTLFile, boolean compress, long timeLimit,
+                        long startTimestamp, boolean summarize, boolean showProgress, int threads, int chunkSize,
+                        PrintStream standardOutput, PrintStream errorOutput) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size should be greater than zero");
+        }
+        this.jtlPath = jtlPath;
+        this.warmupJTLFile = warmupJTLFile;
+        this.measurementJTLFile = measurementJTLFile;
+        this.compress = compress;
+        this.timeLimit = timeLimit;
+        this.startTimestamp = startTimestamp;
+        this.summarize = summarize;
+        this.showProgress = showProgress;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+        this.standardOutput = standardOutput;
+        this.errorOutput = errorOutput;
+        this.writeLines = warmupJTLFile != null && measurementJTLFile != null;
+    }
+
+    /**
+     * Split the JTL file and update the statistics for each label. Lines are not written when the paths of the
+     * warmup and measurement JTL files are {@code null}.
+     *
+     * @param warmupStatCalculators      StatCalculators for warmup samples
+     * @param measurementStatCalculators StatCalculators for measurement samples
+     * @param intervalStatCalculator     Calculator for interval statistics or {@code null} if not required
+     * @param intervalStatsWriter        Writer for interval statistics or {@code null} if not required
+     * @throws IOException If an I/O error occurs
+     */
+    void split(LabelStatCalculators warmupStatCalculators, LabelStatCalculators measurementStatCalculators,
+               IntervalStatCalculator intervalStatCalculator, IntervalStatsWriter intervalStatsWriter)
+            throws IOException {
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try (FileChannel jtlChannel = FileChannel.open(jtlPath, StandardOpenOption.READ);
+             SegmentWriter warmupWriter = createSegmentWriter(warmupJTLFile);
+             SegmentWriter measurementWriter = createSegmentWriter(measurementJTLFile)) {
+            long fileSize = jtlChannel.size();
+            long headerEnd = findNextLineStart(jtlChannel, 0, fileSize);
+            if (headerEnd > 0) {
+                if (headerEnd > Integer.MAX_VALUE) {
+                    throw new IOException("Header line is too long");
+                }
+                // Write Header
+                ByteBuffer header = jtlChannel.map(FileChannel.MapMode.READ_ONLY, 0, headerEnd);
+                headerEnd = findLineEnd(header, 0, (int) headerEnd);
+                int headerContentEnd = contentEnd(header, 0, (int) headerEnd);
+                if (writeLines) {
+                    warmupWriter.write(header, 0, headerContentEnd);
+                    warmupWriter.writeLineSeparator();
+                    measurementWriter.write(header, 0, headerContentEnd);
+                    measurementWriter.writeLineSeparator();
+                }
+            }
+
+            if (showProgress) {
+                standardOutput.print("Started splitting...\r");
+            }
+
+            List<Chunk> chunks = createChunks(jtlChannel, headerEnd, fileSize);
+
+            // Phase 1: Find minimum timestamps and line counts
+            List<Future<ChunkScan>> scanFutures = new ArrayList<>(chunks.size());
+            for (Chunk chunk : chunks) {
+                scanFutures.add(executorService.submit(() -> scanChunk(jtlChannel, chunk)));
+            }
+            // The header is the first line
+            long lineNumber = 1;
+            long startTimestamp = this.startTimestamp;
+            for (int i = 0; i < chunks.size(); i++) {
+                ChunkScan chunkScan = getResult(scanFutures.get(i));
+                Chunk chunk = chunks.get(i);
+                chunk.firstLineNumber = lineNumber + 1;
+                chunk.startTimestamp = startTimestamp;
+                lineNumber += chunkScan.lines;
+                if (startTimestamp > chunkScan.minTimestamp) {
+                    startTimestamp = chunkScan.minTimestamp;
+                }
+            }
+
+            // Phase 2: Classify rows and write results in order.
+            // Limit the number of chunks in progress to bound the memory used by results.
+            Deque<Future<ChunkResult>> resultFutures = new ArrayDeque<>();
+            int maxChunksInProgress = threads * 2;
+            int nextChunk = 0;
+            while (nextChunk < chunks.size() || !resultFutures.isEmpty()) {
+                while (nextChunk < chunks.size() && resultFutures.size() < maxChunksInProgress) {
+                    Chunk chunk = chunks.get(nextChunk++);
+                    resultFutures.add(executorService.submit(() -> processChunk(jtlChannel, chunk,
+                            warmupStatCalculators, measurementStatCalculators, intervalStatCalculator)));
+                }
+                ChunkResult chunkResult = getResult(resultFutures.poll());
+                for (String message : chunkResult.messages) {
+                    errorOutput.print(message);
+                }
+                if (chunkResult.failure != null) {
+                    throw chunkResult.failure;
+                }
+                if (writeLines) {
+                    warmupWriter.write(chunkResult.buffer, chunkResult.warmupSegments);
+                    measurementWriter.write(chunkResult.buffer, chunkResult.measurementSegments);
+                }
+                reorderedRows += chunkResult.reorderedRows;
+                warmupStatCalculators.merge(chunkResult.warmupStatCalculators);
+                measurementStatCalculators.merge(chunkResult.measurementStatCalculators);
+                if (intervalStatCalculator != null) {
+                    // Write the completed intervals at the same lines as the sequential splitter
+                    List<IntervalStatCalculator> intervalParts = chunkResult.intervalParts;
+                    for (int i = 0; i < intervalParts.size(); i++) {
+                        intervalStatCalculator.merge(intervalParts.get(i));
+                        if (i < intervalParts.size() - 1) {
+                            intervalStatCalculator.writeCompleted(intervalStatsWriter);
+                        }
+                    }
+                }
+                if (showProgress) {
+                    standardOutput.print("Processed " + chunkResult.lastLineNumber + " lines.\r");
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the number of rows with a timestamp earlier than the start timestamp used to classify previous rows.
+     */
+    long getReorderedRows() {
+        return reorderedRows;
+    }
+
+    private SegmentWriter createSegmentWriter(Path path) throws IOException {
+        if (!writeLines) {
+            return null;
+        }
+        if (compress) {
+            return new SegmentWriter(Channels.newChannel(
+                    JTLStreams.openOutputStream(path, true, WRITE_BUFFER_SIZE)));
+        }
+        return new SegmentWriter(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while splitting the JTL file", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private List<Chunk> createChunks(FileChannel jtlChannel, long dataStart, long fileSize) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        long start = dataStart;
+        while (start < fileSize) {
+            long end = start + chunkSize >= fileSize ? fileSize :
+                    findNextLineStart(jtlChannel, start + chunkSize - 1, fileSize);
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Line at position " + start + " is too long");
+            }
+            chunks.add(new Chunk(start, (int) (end - start)));
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Find the position after the next newline character.
+     *
+     * @return The start position of the next line or the file size if there are no more lines
+     */
+    private static long findNextLineStart(FileChannel jtlChannel, long position, long fileSize) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SCAN_BUFFER_SIZE);
+        long current = position;
+        while (current < fileSize) {
+            ((Buffer) buffer).clear();
+            int read = jtlChannel.read(buffer, current);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return current + i + 1;
+                }
+            }
+            current += read;
+        }
+        return fileSize;
+    }
+
+    /**
+     * Find the end of line content excluding the line terminator.
+     */
+    private static int contentEnd(ByteBuffer buffer, int lineStart, int lineEnd) {
+        int end = lineEnd;
+        if (end > lineStart && buffer.get(end - 1) == '\n') {
+            end--;
+        }
+        if (end > lineStart && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Find the end of a line including the line terminator. A line is terminated by "\n", "\r" or "\r\n" as in
+     * {@link java.io.BufferedReader#readLine()}. Chunks always end with "\n" or at the end of the file, so a line
+     * terminator is never split between two chunks.
+     */
+    private static int findLineEnd(ByteBuffer buffer, int position, int limit) {
+        for (int i = position; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n') {
+                return i + 1;
+            } else if (b == '\r') {
+                return i + 1 < limit && buffer.get(i + 1) == '\n' ? i + 2 : i + 1;
+            }
+        }
+        return limit;
+    }
+
+    private ChunkScan scanChunk(FileChannel jtlChannel, Chunk chunk) throws IOException {
+        MappedByteBuffer buffer = jtlChannel.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.length);
+        JTLRowParser rowParser = rowParsers.get();
+        ChunkScan chunkScan = new ChunkScan();
+        int limit = chunk.length;
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = findLineEnd(buffer, lineStart, limit);
+            chunkScan.lines++;
+            int i = rowParser.parse(buffer, lineStart, contentEnd(buffer, lineStart, lineEnd));
+            if (i >= JTLRowParser.MINIMUM_COLUMNS) {
+                try {
+                    long timestamp = rowParser.getTimestamp();
+                    if (chunkScan.minTimestamp > timestamp) {
+                        chunkScan.minTimestamp = timestamp;
+                    }
+                } catch (NumberFormatException ignored) {
+                    // The error will be reported when processing the chunk
+                }
+            }
+            lineStart = lineEnd;
+        }
+        return chunkScan;
+    }
+
+    private ChunkResult processChunk(FileChannel jtlChannel, Chunk chunk,
+                                     LabelStatCalculators warmupStatCalculators,
+                                     LabelStatCalculators measurementStatCalculators,
+                                     IntervalStatCalculator intervalStatCalculator) throws IOException {
+        MappedByteBuffer buffer = jtlChannel.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.length);
+        // The number of labels is limited when merging the results in order
+        ChunkResult chunkResult = new ChunkResult(buffer, warmupStatCalculators.withoutLimit(),
+                measurementStatCalculators.withoutLimit());
+        // Intervals of each chunk are merged in order
+        IntervalStatCalculator chunkIntervalStatCalculator = intervalStatCalculator != null
+                ? new IntervalStatCalculator(intervalStatCalculator.getIntervalMillis(),
+                intervalStatCalculator.getPrecision()) : null;
+        JTLRowClassifier rowClassifier = new JTLRowClassifier(rowParsers.get(), timeLimit, summarize,
+                chunk.startTimestamp, chunkResult.warmupStatCalculators, chunkResult.measurementStatCalculators,
+                chunkIntervalStatCalculator, chunkResult.messages::add);
+        long lineNumber = chunk.firstLineNumber - 1;
+        int limit = chunk.length;
+        int lineStart = 0;
+        try {
+            while (lineStart < limit) {
+                int lineEnd = findLineEnd(buffer, lineStart, limit);
+                int end = contentEnd(buffer, lineStart, lineEnd);
+                lineNumber++;
+                if (chunkIntervalStatCalculator != null
+                        && lineNumber % IntervalStatCalculator.WRITE_INTERVAL_LINES == 0) {
+                    // The completed intervals are written before this line when merging
+                    chunkResult.intervalParts.add(chunkIntervalStatCalculator.takeSamples());
+                }
+                final IntArray segments;
+                switch (rowClassifier.classify(buffer, lineStart, end, lineNumber)) {
+                    case WARMUP:
+                        segments = chunkResult.warmupSegments;
+                        break;
+                    case MEASUREMENT:
+                        segments = chunkResult.measurementSegments;
+                        break;
+                    default:
+                        segments = null;
+                        break;
+                }
+                if (segments != null && writeLines) {
+                    if (NEWLINE_SEPARATOR && end + 1 == lineEnd && buffer.get(end) == '\n') {
+                        // The line can be written with its own line terminator
+                        addSegment(segments, lineStart, lineEnd);
+                    } else {
+                        addSegment(segments, lineStart, end);
+                        segments.add(LINE_SEPARATOR_SEGMENT);
+                        segments.add(LINE_SEPARATOR_SEGMENT);
+                    }
+                }
+                lineStart = lineEnd;
+            }
+        } catch (RuntimeException e) {
+            // The error message has already been added
+            chunkResult.failure = e;
+        }
+        if (chunkIntervalStatCalculator != null) {
+            chunkResult.intervalParts.add(chunkIntervalStatCalculator.takeSamples());
+        }
+        chunkResult.lastLineNumber = lineNumber;
+        chunkResult.reorderedRows = rowClassifier.getReorderedRows();
+        return chunkResult;
+    }
+
+    /**
+     * Add a segment to write. Adjacent segments are coalesced.
+     */
+    private static void addSegment(IntArray segments, int start, int end) {
+        int size = segments.size();
+        if (size > 0 && segments.get(size - 1) == start) {
+            segments.set(size - 1, end);
+        } else {
+            segments.add(start);
+            segments.add(end);
+        }
+    }
+
+    /**
+     * A newline-aligned range of the JTL file.
+     */
+    private static final class Chunk {
+        private final long start;
+        private final int length;
+        private long firstLineNumber;
+        private long startTimestamp;
+
+        private Chunk(long start, int length) {
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Results of the first phase.
+     */
+    private static final class ChunkScan {
+        private long lines;
+        private long minTimestamp = Long.MAX_VALUE;
+    }
+
+    /**
+     * Results of the second phase.
+     */
+    private static final class ChunkResult {
+        private final ByteBuffer buffer;
+        private final IntArray warmupSegments = new IntArray();
+        private final IntArray measurementSegments = new IntArray();
+        private final LabelStatCalculators warmupStatCalculators;
+        private final LabelStatCalculators measurementStatCalculators;
+        private final List<String> messages = new ArrayList<>();
+        // Interval statistics of the lines between the lines at which the completed intervals are written
+        private final List<IntervalStatCalculator> intervalParts = new ArrayList<>();
+        private RuntimeException failure;
+        private long lastLineNumber;
+        private long reorderedRows;
+
+        private ChunkResult(ByteBuffer buffer, LabelStatCalculators warmupStatCalculators,
+                            LabelStatCalculators measurementStatCalculators) {
+            this.buffer = buffer;
+            this.warmupStatCalculators = warmupStatCalculators;
+            this.measurementStatCalculators = measurementStatCalculators;
+        }
+    }
+
+    /**
+     * A growable array of start and end positions.
+     */
+    private static final class IntArray {
+        private int[] values = new int[64];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int get(int index) {
+            return values[index];
+        }
+
+        private void set(int index, int value) {
+            values[index] = value;
+        }
+
+        private int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Write segments of mapped chunks to a file channel. Small segments are copied to a buffer to avoid a system call
+     * for each line.
+     */
+    private static final class SegmentWriter implements AutoCloseable {
+        private final WritableByteChannel channel;
+        private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+        private SegmentWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        private void write(ByteBuffer buffer, IntArray segments) throws IOException {
+            for (int i = 0; i < segments.size(); i += 2) {
+                int start = segments.get(i);
+                if (start == LINE_SEPARATOR_SEGMENT) {
+                    writeLineSeparator();
+                } else {
+                    write(buffer, start, segments.get(i + 1));
+                }
+            }
+        }
+
+        private void write(ByteBuffer buffer, int start, int end) throws IOException {
+            ByteBuffer segment = buffer.duplicate();
+            ((Buffer) segment).limit(end).position(start);
+            if (segment.remaining() > writeBuffer.remaining()) {
+                flush();
+                if (segment.remaining() >= writeBuffer.capacity()) {
+                    writeFully(segment);
+                    return;
+                }
+            }
+            writeBuffer.put(segment);
+        }
+
+        private void writeLineSeparator() throws IOException {
+            if (writeBuffer.remaining() < LINE_SEPARATOR.length) {
+                flush();
+            }
+            writeBuffer.put(LINE_SEPARATOR);
+        }
+
+        private void flush() throws IOException {
+            ((Buffer) writeBuffer).flip();
+            writeFully(writeBuffer);
+            ((Buffer) writeBuffer).clear();
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
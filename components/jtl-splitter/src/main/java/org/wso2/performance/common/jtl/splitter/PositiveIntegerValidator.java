@@ -0,0 +1,34 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import com.beust.jcommander.IParameterValidator;
+import com.beust.jcommander.ParameterException;
+
+/**
+ * Validate Positive Integer Parameter Values
+ */
+public class PositiveIntegerValidator implements IParameterValidator {
+
+    public void validate(String name, String value) throws ParameterException {
+        int n = Integer.parseInt(value);
+        if (n <= 0) {
+            throw new ParameterException("Parameter " + name + " should be greater than zero (found " + value + ")");
+        }
+    }
+
+}
+
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Read an input stream ahead in a separate thread. The reader thread fills a fixed number of buffers and hands them
+ * over to the consumer. This is used to decompress JTL files while the rows are being parsed.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class ReadAheadInputStream extends InputStream {
+
+    private static final int BUFFER_COUNT = 4;
+
+    private static final Block END_OF_STREAM = new Block(new byte[0], -1, null);
+
+    private final InputStream inputStream;
+    private final BlockingQueue<Block> filledBlocks = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+    private final BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(BUFFER_COUNT);
+    private final Thread readerThread;
+    private Block current;
+    private int position;
+    private boolean closed;
+
+    ReadAheadInputStream(InputStream inputStream, int bufferSize) {
+        this.inputStream = inputStream;
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            freeBuffers.add(new byte[bufferSize]);
+        }
+        readerThread = new Thread(this::readAhead, "jtl-read-ahead");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    private void readAhead() {
+        try {
+            while (true) {
+                byte[] buffer = freeBuffers.take();
+                int length = 0;
+                int read = 0;
+                while (length < buffer.length) {
+                    read = inputStream.read(buffer, length, buffer.length - length);
+                    if (read < 0) {
+                        break;
+                    }
+                    length += read;
+                }
+                if (length > 0) {
+                    filledBlocks.put(new Block(buffer, length, null));
+                }
+                if (read < 0) {
+                    filledBlocks.put(END_OF_STREAM);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            try {
+                filledBlocks.put(new Block(null, -1, e));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } catch (InterruptedException e) {
+            // The stream is closed
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextBlock()) {
+            return -1;
+        }
+        return current.buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextBlock()) {
+            return -1;
+        }
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current.buffer, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (current != null && position < current.length) {
+            return true;
+        }
+        if (current == END_OF_STREAM) {
+            return false;
+        }
+        if (current != null) {
+            // Return the consumed buffer to the reader thread
+            freeBuffers.add(current.buffer);
+        }
+        try {
+            current = filledBlocks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for data");
+        }
+        position = 0;
+        if (current.failure != null) {
+            IOException failure = current.failure;
+            current = END_OF_STREAM;
+            throw failure;
+        }
+        return current != END_OF_STREAM;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        readerThread.interrupt();
+        try {
+            readerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * A buffer filled by the reader thread.
+     */
+    private static final class Block {
+        private final byte[] buffer;
+        private final int length;
+        private final IOException failure;
+
+        private Block(byte[] buffer, int length, IOException failure) {
+            this.buffer = buffer;
+            this.length = length;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Find the start timestamp of a test by reading the rows at the beginning of a JTL file.
+ * <p>
+ * JMeter writes rows out of order as samples from different threads complete at different times. Therefore the first
+ * row does not always have the minimum timestamp. Only the head of the file is read, so the JTL file can still be
+ * split in a single pass.
+ */
+final class StartTimestampProbe {
+
+    private final int lookahead;
+    private long startTimestamp = Long.MAX_VALUE;
+    private long startLineNumber;
+
+    /**
+     * Create a probe.
+     *
+     * @param lookahead The number of rows to read after the header
+     */
+    StartTimestampProbe(int lookahead) {
+        this.lookahead = lookahead;
+    }
+
+    /**
+     * Read the rows at the beginning of a JTL file. Rows which cannot be parsed are ignored.
+     *
+     * @param jtlPath The JTL file, which may be compressed
+     * @throws IOException If an I/O error occurs
+     */
+    void probe(Path jtlPath) throws IOException {
+        JTLRowParser rowParser = new JTLRowParser();
+        try (JTLLineReader lineReader = new JTLLineReader(JTLStreams.openInputStream(jtlPath))) {
+            // Skip header
+            long lineNumber = 1;
+            if (!lineReader.readLine()) {
+                return;
+            }
+            for (int i = 0; i < lookahead && lineReader.readLine(); i++) {
+                lineNumber++;
+                int columns = rowParser.parse(lineReader.getBuffer(), lineReader.getLineStart(),
+                        lineReader.getLineEnd());
+                if (columns < JTLRowParser.MINIMUM_COLUMNS) {
+                    continue;
+                }
+                try {
+                    long timestamp = rowParser.getTimestamp();
+                    if (startTimestamp > timestamp) {
+                        startTimestamp = timestamp;
+                        startLineNumber = lineNumber;
+                    }
+                } catch (NumberFormatException ignored) {
+                    // The error will be reported when splitting
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the minimum timestamp found or {@link Long#MAX_VALUE} if there are no valid rows.
+     */
+    long getStartTimestamp() {
+        return startTimestamp;
+    }
+
+    /**
+     * Get the line number of the row with the minimum timestamp.
+     */
+    long getStartLineNumber() {
+        return startLineNumber;
+    }
+}
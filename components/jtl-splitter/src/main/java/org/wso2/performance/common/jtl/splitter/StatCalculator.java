@@ -16,19 +16,29 @@
 package org.wso2.performance.common.jtl.splitter;
 
 import org.HdrHistogram.Histogram;
-import org.HdrHistogram.Recorder;
+import org.HdrHistogram.PackedHistogram;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
 
 /**
  * Calculate summary statistics from samples.
+ * <p>
+ * Latencies are recorded in a single auto-resizing histogram, which is created when the first sample is added.
+ * A packed histogram can be used to reduce memory when there are many StatCalculators.
  */
 public class StatCalculator {
 
-    private final Recorder recorder;
-    private final Histogram intervalHistogram;
-    private final Histogram accumulatedHistogram;
+    // Version, histogram flag and seven counters
+    private static final int STATE_VERSION = 1;
+    private static final int STATE_HEADER_SIZE = 4 + 1 + 7 * 8;
+
+    private final int precision;
+    private final boolean packed;
+    private Histogram histogram;
 
     private long startTimestamp = Long.MAX_VALUE;
     private long endTimestamp;
@@ -41,16 +51,32 @@ public class StatCalculator {
     /**
      * Create StatCalculator with given precision.
      *
-     * @param precision Precision to use in HdrHistogram recorder
+     * @param precision Precision to use in HdrHistogram
      */
     public StatCalculator(int precision) {
-        this.recorder = new Recorder(precision);
-        intervalHistogram = new Histogram(precision);
-        accumulatedHistogram = new Histogram(precision);
+        this(precision, false);
+    }
+
+    /**
+     * Create StatCalculator with given precision and histogram type.
+     *
+     * @param precision Precision to use in HdrHistogram
+     * @param packed    Whether to use a packed histogram, which uses less memory but records values slower
+     */
+    public StatCalculator(int precision, boolean packed) {
+        this.precision = precision;
+        this.packed = packed;
+    }
+
+    private Histogram getHistogram() {
+        if (histogram == null) {
+            histogram = packed ? new PackedHistogram(precision) : new Histogram(precision);
+        }
+        return histogram;
     }
 
     public synchronized void addSample(long timestamp, int elapsed, boolean success, int bytes, int sentBytes) {
-        recorder.recordValue(elapsed);
+        getHistogram().recordValue(elapsed);
         // Update timestamps to calculate throughput
         if (startTimestamp > timestamp) {
             startTimestamp = timestamp;
@@ -72,10 +98,102 @@ public class StatCalculator {
         totalSentBytes += sentBytes;
     }
 
+    /**
+     * Merge all samples recorded by another StatCalculator into this StatCalculator.
+     *
+     * @param other The StatCalculator to merge. It is not modified.
+     */
+    public synchronized void merge(StatCalculator other) {
+        synchronized (other) {
+            if (other.histogram != null) {
+                getHistogram().add(other.histogram);
+            }
+            merge(other.startTimestamp, other.endTimestamp, other.min, other.max, other.errors, other.totalBytes,
+                    other.totalSentBytes);
+        }
+    }
+
+    private void merge(long otherStartTimestamp, long otherEndTimestamp, long otherMin, long otherMax,
+                       long otherErrors, long otherTotalBytes, long otherTotalSentBytes) {
+        if (startTimestamp > otherStartTimestamp) {
+            startTimestamp = otherStartTimestamp;
+        }
+        if (endTimestamp < otherEndTimestamp) {
+            endTimestamp = otherEndTimestamp;
+        }
+        if (min > otherMin) {
+            min = otherMin;
+        }
+        if (max < otherMax) {
+            max = otherMax;
+        }
+        errors += otherErrors;
+        totalBytes += otherTotalBytes;
+        totalSentBytes += otherTotalSentBytes;
+    }
+
+    /**
+     * Encode the full state including the histogram and all counters. The state can be decoded and merged with the
+     * states of other StatCalculators to calculate exact summary statistics of all samples.
+     *
+     * @return The encoded state
+     */
+    public synchronized byte[] encodeState() {
+        int histogramCapacity = histogram != null ? histogram.getNeededByteBufferCapacity() : 0;
+        ByteBuffer buffer = ByteBuffer.allocate(STATE_HEADER_SIZE + histogramCapacity);
+        buffer.putInt(STATE_VERSION);
+        buffer.put((byte) (histogram != null ? 1 : 0));
+        buffer.putLong(startTimestamp);
+        buffer.putLong(endTimestamp);
+        buffer.putLong(min);
+        buffer.putLong(max);
+        buffer.putLong(errors);
+        buffer.putLong(totalBytes);
+        buffer.putLong(totalSentBytes);
+        if (histogram != null) {
+            histogram.encodeIntoCompressedByteBuffer(buffer);
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Merge a state encoded by {@link #encodeState()} into this StatCalculator.
+     *
+     * @param state The encoded state
+     * @throws DataFormatException If the state cannot be decoded
+     */
+    public synchronized void mergeState(byte[] state) throws DataFormatException {
+        ByteBuffer buffer = ByteBuffer.wrap(state);
+        if (state.length < STATE_HEADER_SIZE || buffer.getInt() != STATE_VERSION) {
+            throw new DataFormatException("Unsupported statistics state");
+        }
+        boolean hasHistogram = buffer.get() != 0;
+        long otherStartTimestamp = buffer.getLong();
+        long otherEndTimestamp = buffer.getLong();
+        long otherMin = buffer.getLong();
+        long otherMax = buffer.getLong();
+        long otherErrors = buffer.getLong();
+        long otherTotalBytes = buffer.getLong();
+        long otherTotalSentBytes = buffer.getLong();
+        if (hasHistogram) {
+            // The decoded histogram does not resize. Therefore add it to the histogram of this StatCalculator.
+            getHistogram().add(Histogram.decodeFromCompressedByteBuffer(buffer, 0));
+        }
+        merge(otherStartTimestamp, otherEndTimestamp, otherMin, otherMax, otherErrors, otherTotalBytes,
+                otherTotalSentBytes);
+    }
+
     public synchronized SummaryStats calculate() {
-        recorder.getIntervalHistogramInto(intervalHistogram);
-        accumulatedHistogram.add(intervalHistogram);
-        long samples = accumulatedHistogram.getTotalCount();
+        return calculate(histogram, startTimestamp, endTimestamp, min, max, errors, totalBytes, totalSentBytes);
+    }
+
+    /**
+     * Calculate summary statistics from the accumulated histogram and the counters. The histogram is {@code null} if
+     * there are no samples.
+     */
+    static SummaryStats calculate(Histogram accumulatedHistogram, long startTimestamp, long endTimestamp, long min,
+                                  long max, long errors, long totalBytes, long totalSentBytes) {
+        long samples = accumulatedHistogram != null ? accumulatedHistogram.getTotalCount() : 0;
         if (samples == 0) {
             // There are no samples
             return new SummaryStats(-1L, -1L, new BigDecimal(-1), new BigDecimal(-1), -1L, -1L,
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import com.google.gson.Gson;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Test summary statistics calculated from samples added concurrently.
+ */
+public class ConcurrentStatCalculatorTest {
+
+    private static final int NO_OF_THREADS = 8;
+
+    private static final int NO_OF_SAMPLES_PER_THREAD = 50_000;
+
+    @Test
+    public void testConcurrentSamples() throws InterruptedException, ExecutionException {
+        long startTimestamp = System.currentTimeMillis();
+        long[][] samples = new long[NO_OF_THREADS][];
+        StatCalculator statCalculator = new StatCalculator(2);
+        for (int i = 0; i < NO_OF_THREADS; i++) {
+            Random random = new Random(i);
+            samples[i] = new long[NO_OF_SAMPLES_PER_THREAD * 5];
+            for (int j = 0; j < samples[i].length; j += 5) {
+                samples[i][j] = startTimestamp + random.nextInt(10_000);
+                samples[i][j + 1] = 1 + random.nextInt(1_000);
+                samples[i][j + 2] = random.nextInt(10);
+                samples[i][j + 3] = random.nextInt(10_000);
+                samples[i][j + 4] = random.nextInt(10_000);
+                statCalculator.addSample(samples[i][j], (int) samples[i][j + 1], samples[i][j + 2] > 0,
+                        (int) samples[i][j + 3], (int) samples[i][j + 4]);
+            }
+        }
+
+        ConcurrentStatCalculator concurrentStatCalculator = new ConcurrentStatCalculator(2);
+        ExecutorService executorService = Executors.newFixedThreadPool(NO_OF_THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long[] threadSamples : samples) {
+                futures.add(executorService.submit(() -> {
+                    for (int j = 0; j < threadSamples.length; j += 5) {
+                        concurrentStatCalculator.addSample(threadSamples[j], (int) threadSamples[j + 1],
+                                threadSamples[j + 2] > 0, (int) threadSamples[j + 3], (int) threadSamples[j + 4]);
+                        if (j % 10_000 == 0) {
+                            // Calculate while samples are being added
+                            concurrentStatCalculator.calculate();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        Gson gson = new Gson();
+        SummaryStats summaryStats = concurrentStatCalculator.calculate();
+        Assert.assertEquals(summaryStats.getSamples(), NO_OF_THREADS * NO_OF_SAMPLES_PER_THREAD);
+        Assert.assertEquals(gson.toJson(summaryStats), gson.toJson(statCalculator.calculate()));
+    }
+
+    @Test
+    public void testStatisticsWithNoSamples() {
+        Gson gson = new Gson();
+        Assert.assertEquals(gson.toJson(new ConcurrentStatCalculator(2).calculate()),
+                gson.toJson(new StatCalculator(2).calculate()));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test statistics calculated for each interval.
+ */
+public class IntervalStatCalculatorTest {
+
+    @Test
+    public void testIntervals() throws IOException {
+        Path csvFile = Files.createTempFile("intervals", ".csv");
+        csvFile.toFile().deleteOnExit();
+        IntervalStatCalculator intervalStatCalculator = new IntervalStatCalculator(10_000L, 2);
+        try (IntervalStatsWriter writer = new IntervalStatsWriter(csvFile, IntervalStatsWriter.Format.CSV)) {
+            intervalStatCalculator.addSample("A", 15_000L, 10, true);
+            intervalStatCalculator.addSample("B", 12_000L, 30, false);
+            intervalStatCalculator.addSample("A", 9_999L, 20, true);
+            intervalStatCalculator.addSample("A", 19_999L, 30, false);
+            // Intervals are not written until the samples are older than the maximum delay
+            intervalStatCalculator.writeCompleted(writer);
+            intervalStatCalculator.addSample("A", 10_000L + IntervalStatCalculator.MAX_DELAY_MILLIS + 10_000L, 40,
+                    true);
+            intervalStatCalculator.writeCompleted(writer);
+            // The interval has already been written
+            intervalStatCalculator.addSample("A", 5_000L, 50, true);
+            intervalStatCalculator.writeAll(writer);
+        }
+        Assert.assertEquals(intervalStatCalculator.getLateSamples(), 1);
+        List<String> expected = Arrays.asList(
+                "timestamp,label,samples,errors,errorPercentage,throughput,p50,p90,p99,max",
+                "0,A,1,0,0.00,0.10,20,20,20,20",
+                "10000,A,2,1,50.00,0.20,10,30,30,30",
+                "10000,B,1,1,100.00,0.10,30,30,30,30",
+                "80000,A,1,0,0.00,0.10,40,40,40,40");
+        Assert.assertEquals(Files.readAllLines(csvFile), expected);
+    }
+
+    @Test
+    public void testLabelEscaping() throws IOException {
+        Path csvFile = Files.createTempFile("intervals", ".csv");
+        csvFile.toFile().deleteOnExit();
+        IntervalStatCalculator intervalStatCalculator = new IntervalStatCalculator(10_000L, 2);
+        try (IntervalStatsWriter writer = new IntervalStatsWriter(csvFile, IntervalStatsWriter.Format.CSV)) {
+            intervalStatCalculator.addSample("GET /a,b", 1_000L, 10, true);
+            intervalStatCalculator.addSample("Say \"Hi\"", 1_000L, 20, true);
+            intervalStatCalculator.writeAll(writer);
+        }
+        List<String> expected = Arrays.asList(
+                "timestamp,label,samples,errors,errorPercentage,throughput,p50,p90,p99,max",
+                "0,\"GET /a,b\",1,0,0.00,0.10,10,10,10,10",
+                "0,\"Say \"\"Hi\"\"\",1,0,0.00,0.10,20,20,20,20");
+        Assert.assertEquals(Files.readAllLines(csvFile), expected);
+    }
+}
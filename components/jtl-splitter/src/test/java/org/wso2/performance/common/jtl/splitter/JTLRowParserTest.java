@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Test parsing JTL rows from bytes.
+ */
+public class JTLRowParserTest {
+
+    private final JTLRowParser rowParser = new JTLRowParser();
+
+    @DataProvider(name = "values")
+    public Object[][] values() {
+        return new Object[][]{
+                {"1545123456789", "120", "true"},
+                {"+1545123456789", "-1", "TRUE"},
+                {"-9223372036854775808", "2147483647", "True"},
+                {"9223372036854775807", "-2147483648", "false"},
+                {"9223372036854775808", "2147483648", "yes"},
+                {"-9223372036854775809", "-2147483649", "truee"},
+                {"", "", ""},
+                {"+", "-", "t"},
+                {"12a", " 1", "tru"},
+        };
+    }
+
+    @Test(dataProvider = "values")
+    public void testValues(String timestamp, String number, String success) {
+        String line = timestamp + "," + number + ",Label 1,200,OK,Thread 1-1,text," + success + ",," + number + ","
+                + number + ",1,1,null,1,0,1";
+        byte[] bytes = ("ignored\n" + line + "\r\n").getBytes(StandardCharsets.UTF_8);
+        int start = 8;
+        Assert.assertEquals(rowParser.parse(ByteBuffer.wrap(bytes), start, bytes.length - 2), 16);
+        Assert.assertEquals(rowParser.getLine(), line);
+        Assert.assertEquals(rowParser.getLabel(), "Label 1");
+        Assert.assertEquals(rowParser.isSuccess(), Boolean.parseBoolean(success));
+        assertParsed(() -> Long.parseLong(timestamp), rowParser::getTimestamp);
+        assertParsed(() -> Integer.parseInt(number), rowParser::getElapsed);
+        assertParsed(() -> Integer.parseInt(number), rowParser::getBytes);
+        assertParsed(() -> Integer.parseInt(number), rowParser::getSentBytes);
+    }
+
+    @Test
+    public void testColumns() {
+        Assert.assertEquals(parse("a,b,c,d,e,f,g,h,i,j,k"), 10);
+        Assert.assertEquals(parse("a,b,c,d,e,f,g,h,i,j,k,l,m,n,o,p,q"), 16);
+        Assert.assertEquals(parse("a,b,c,d,e,f,g,h,i,j,k,l,m,n,o,p,q,r"), -1);
+        Assert.assertEquals(parse(""), 0);
+    }
+
+    @Test
+    public void testLabelCache() {
+        JTLRowParser labelCacheRowParser = new JTLRowParser(2);
+        for (int i = 0; i < 10; i++) {
+            String line = "1,1,Label " + (i % 3) + ",200,OK,Thread 1-1,text,true,,1,1";
+            parse(labelCacheRowParser, line);
+            String label = labelCacheRowParser.getLabel();
+            Assert.assertEquals(label, "Label " + (i % 3));
+            parse(labelCacheRowParser, line);
+            if (i % 3 < 2) {
+                // Only two labels are cached
+                Assert.assertSame(labelCacheRowParser.getLabel(), label);
+            } else {
+                Assert.assertNotSame(labelCacheRowParser.getLabel(), label);
+            }
+        }
+    }
+
+    private int parse(String line) {
+        return parse(rowParser, line);
+    }
+
+    private static int parse(JTLRowParser parser, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return parser.parse(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    private void assertParsed(NumberSupplier expected, NumberSupplier actual) {
+        Number expectedValue;
+        try {
+            expectedValue = expected.get();
+        } catch (NumberFormatException e) {
+            Assert.assertThrows(NumberFormatException.class, actual::get);
+            return;
+        }
+        Assert.assertEquals(actual.get().longValue(), expectedValue.longValue());
+    }
+
+    /**
+     * Supplies a parsed number.
+     */
+    private interface NumberSupplier {
+        Number get();
+    }
+}
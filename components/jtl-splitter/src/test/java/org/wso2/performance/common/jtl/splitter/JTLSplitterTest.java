@@ -0,0 +1,373 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Test splitting JTL files.
+ */
+public class JTLSplitterTest {
+
+    private static final String HEADER = "timeStamp,elapsed,label,responseCode,responseMessage,threadName," +
+            "dataType,success,failureMessage,bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect";
+
+    private static final int NO_OF_ROWS = 50_000;
+
+    private static final String[] OUTPUT_FILES = {"results-warmup.jtl", "results-measurement.jtl",
+            "results-warmup-summary.json", "results-measurement-summary.json"};
+
+    private byte[] jtl;
+
+    @BeforeClass
+    private void init() throws IOException {
+        Random random = new Random();
+        long startTimestamp = System.currentTimeMillis();
+        StringBuilder jtlBuilder = new StringBuilder(HEADER).append('\n');
+        for (int i = 0; i < NO_OF_ROWS; i++) {
+            // Rows are written out of order
+            long timestamp = startTimestamp + i / 10 - random.nextInt(1_000);
+            int elapsed = random.nextInt(1_000);
+            boolean success = random.nextInt(10) > 0;
+            jtlBuilder.append(timestamp).append(',').append(elapsed).append(",Label ").append(random.nextInt(5))
+                    .append(',').append(success ? 200 : 500).append(',').append(success ? "OK" : "Error")
+                    .append(",Thread Group 1-").append(random.nextInt(100)).append(",text,").append(success)
+                    .append(",,").append(random.nextInt(10_000)).append(',').append(random.nextInt(10_000))
+                    .append(",100,100,null,").append(elapsed).append(",0,").append(random.nextInt(10));
+            if (i % 10_000 == 1) {
+                // Add invalid lines
+                jtlBuilder.append(",,,,,,,");
+            } else if (i % 10_000 == 2) {
+                jtlBuilder.setLength(jtlBuilder.lastIndexOf("Thread Group"));
+            }
+            if (i % 5 == 0) {
+                jtlBuilder.append("\r\n");
+            } else if (i % 7 == 0) {
+                jtlBuilder.append('\r');
+            } else {
+                jtlBuilder.append('\n');
+            }
+        }
+        jtl = jtlBuilder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testParallelSplit() throws IOException {
+        Path sequentialDir = split(jtl);
+        Path parallelDir = split(jtl, "-j", "4", "--chunk-size", "4096");
+        for (String outputFile : OUTPUT_FILES) {
+            Assert.assertEquals(Files.readAllBytes(parallelDir.resolve(outputFile)),
+                    Files.readAllBytes(sequentialDir.resolve(outputFile)), "Output is different in " + outputFile);
+        }
+    }
+
+    @Test
+    public void testParallelSplitWithoutTrailingNewline() throws IOException {
+        byte[] jtlWithoutNewline = new String(jtl, StandardCharsets.UTF_8).trim().getBytes(StandardCharsets.UTF_8);
+        Path sequentialDir = split(jtlWithoutNewline);
+        Path parallelDir = split(jtlWithoutNewline, "-j", "3", "--chunk-size", "100000");
+        for (String outputFile : OUTPUT_FILES) {
+            Assert.assertEquals(Files.readAllBytes(parallelDir.resolve(outputFile)),
+                    Files.readAllBytes(sequentialDir.resolve(outputFile)), "Output is different in " + outputFile);
+        }
+    }
+
+    @Test
+    public void testParallelSplitWithLimitedLabels() throws IOException {
+        Path sequentialDir = split(jtl, "--max-labels", "3", "--packed-histograms");
+        Path parallelDir = split(jtl, "--max-labels", "3", "--packed-histograms", "-j", "4", "--chunk-size", "4096");
+        for (String outputFile : OUTPUT_FILES) {
+            Assert.assertEquals(Files.readAllBytes(parallelDir.resolve(outputFile)),
+                    Files.readAllBytes(sequentialDir.resolve(outputFile)), "Output is different in " + outputFile);
+        }
+    }
+
+    @Test
+    public void testParallelSplitWithLookahead() throws IOException {
+        Path sequentialDir = split(jtl, "--lookahead", "1000");
+        Path parallelDir = split(jtl, "--lookahead", "1000", "-j", "4", "--chunk-size", "4096");
+        for (String outputFile : OUTPUT_FILES) {
+            Assert.assertEquals(Files.readAllBytes(parallelDir.resolve(outputFile)),
+                    Files.readAllBytes(sequentialDir.resolve(outputFile)), "Output is different in " + outputFile);
+        }
+    }
+
+    @Test
+    public void testLookahead() throws IOException {
+        long startTimestamp = System.currentTimeMillis();
+        StringBuilder jtlBuilder = new StringBuilder(HEADER).append('\n');
+        // The first row is not the earliest row
+        for (long timestamp : new long[]{startTimestamp + 900, startTimestamp + 1500, startTimestamp,
+                startTimestamp + 2000}) {
+            jtlBuilder.append(timestamp).append(",10,Label 1,200,OK,Thread Group 1-1,text,true,,100,100,1,1,null,"
+                    + "10,0,1\n");
+        }
+        byte[] jtlContent = jtlBuilder.toString().getBytes(StandardCharsets.UTF_8);
+        // Without lookahead, the second row is classified using the timestamp of the first row
+        Path dir = split(jtlContent);
+        Assert.assertEquals(Files.readAllLines(dir.resolve("results-warmup.jtl")).size(), 4);
+        Assert.assertEquals(Files.readAllLines(dir.resolve("results-measurement.jtl")).size(), 2);
+        for (String[] options : new String[][]{{"--lookahead", "3"}, {"--lookahead", "3", "-j", "2"}}) {
+            dir = split(jtlContent, options);
+            List<String> warmupLines = Files.readAllLines(dir.resolve("results-warmup.jtl"));
+            Assert.assertEquals(warmupLines.size(), 3);
+            Assert.assertTrue(warmupLines.get(1).startsWith(String.valueOf(startTimestamp + 900)));
+            Assert.assertTrue(warmupLines.get(2).startsWith(String.valueOf(startTimestamp)));
+            Assert.assertEquals(Files.readAllLines(dir.resolve("results-measurement.jtl")).size(), 3);
+        }
+    }
+
+    @Test
+    public void testSummaryOnly() throws IOException {
+        Path splitDir = split(jtl);
+        Path sequentialDir = split(jtl, "--summary-only");
+        Path parallelDir = split(jtl, "--summary-only", "-j", "4", "--chunk-size", "4096");
+        for (int i = 0; i < OUTPUT_FILES.length; i++) {
+            String outputFile = OUTPUT_FILES[i];
+            if (i < 2) {
+                Assert.assertFalse(Files.exists(sequentialDir.resolve(outputFile)), outputFile + " was written");
+                Assert.assertFalse(Files.exists(parallelDir.resolve(outputFile)), outputFile + " was written");
+            } else {
+                byte[] expected = Files.readAllBytes(splitDir.resolve(outputFile));
+                Assert.assertEquals(Files.readAllBytes(sequentialDir.resolve(outputFile)), expected,
+                        "Output is different in " + outputFile);
+                Assert.assertEquals(Files.readAllBytes(parallelDir.resolve(outputFile)), expected,
+                        "Output is different in " + outputFile);
+            }
+        }
+    }
+
+    @Test
+    public void testCompressedSplit() throws IOException {
+        Path plainDir = split(jtl);
+        ByteArrayOutputStream compressedJTL = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(compressedJTL)) {
+            outputStream.write(jtl);
+        }
+        Path compressedInputDir = split("results.jtl.gz", compressedJTL.toByteArray(), "-z");
+        Path parallelDir = split(jtl, "-z", "-j", "4", "--chunk-size", "4096");
+        for (String outputFile : OUTPUT_FILES) {
+            byte[] expected = Files.readAllBytes(plainDir.resolve(outputFile));
+            for (Path dir : new Path[]{compressedInputDir, parallelDir}) {
+                byte[] actual;
+                if (outputFile.endsWith(".jtl")) {
+                    Assert.assertFalse(Files.exists(dir.resolve(outputFile)), outputFile + " was not compressed");
+                    actual = decompress(dir.resolve(outputFile + ".gz"));
+                } else {
+                    actual = Files.readAllBytes(dir.resolve(outputFile));
+                }
+                Assert.assertEquals(actual, expected, "Output is different in " + outputFile);
+            }
+        }
+    }
+
+    @Test
+    public void testIntervalStats() throws IOException {
+        for (String format : new String[]{"CSV", "HDR"}) {
+            String outputFile = "CSV".equals(format) ? "results-intervals.csv" : "results-intervals.hlog";
+            Path sequentialDir = split(jtl, "--interval", "1", "--interval-format", format);
+            Path parallelDir = split(jtl, "--interval", "1", "--interval-format", format, "-j", "4",
+                    "--chunk-size", "4096");
+            sequentialDir.resolve(outputFile).toFile().deleteOnExit();
+            parallelDir.resolve(outputFile).toFile().deleteOnExit();
+            if ("HDR".equals(format)) {
+                // The encoding depends on the size of each histogram. Therefore compare the decoded histograms.
+                Assert.assertEquals(readIntervalLog(parallelDir.resolve(outputFile)),
+                        readIntervalLog(sequentialDir.resolve(outputFile)));
+            } else {
+                Assert.assertEquals(Files.readAllBytes(parallelDir.resolve(outputFile)),
+                        Files.readAllBytes(sequentialDir.resolve(outputFile)), "Output is different in " + outputFile);
+                List<String> lines = Files.readAllLines(sequentialDir.resolve(outputFile));
+                Assert.assertEquals(lines.get(0), "timestamp,label,samples,errors,errorPercentage,throughput,p50,"
+                        + "p90,p99,max");
+                long samples = 0;
+                for (String line : lines.subList(1, lines.size())) {
+                    samples += Long.parseLong(line.split(",")[2]);
+                }
+                // Invalid lines are ignored
+                Assert.assertEquals(samples, NO_OF_ROWS - 10);
+            }
+        }
+    }
+
+    @Test
+    public void testLateIntervalSamples() throws IOException {
+        int rows = 25_000;
+        // The header is line 1. Therefore the row at index i is line i + 2.
+        int lateRow = IntervalStatCalculator.WRITE_INTERVAL_LINES - 2;
+        long startTimestamp = System.currentTimeMillis();
+        StringBuilder jtlBuilder = new StringBuilder(HEADER).append('\n');
+        for (int i = 0; i < rows; i++) {
+            long timestamp = startTimestamp + i * 10L;
+            if (i == lateRow || i == lateRow - 2) {
+                // More than the max delay behind the previous rows
+                timestamp -= IntervalStatCalculator.MAX_DELAY_MILLIS + 30_000L;
+            }
+            jtlBuilder.append(timestamp).append(",10,Label ").append(i % 3).append(",200,OK,Thread Group 1-1,text,")
+                    .append("true,,100,100,1,1,null,10,0,1\n");
+        }
+        byte[] content = jtlBuilder.toString().getBytes(StandardCharsets.UTF_8);
+        String outputFile = "results-intervals.csv";
+        Path sequentialDir = split(content, "--interval", "1");
+        sequentialDir.resolve(outputFile).toFile().deleteOnExit();
+        byte[] expected = Files.readAllBytes(sequentialDir.resolve(outputFile));
+        List<String> lines = Files.readAllLines(sequentialDir.resolve(outputFile));
+        long samples = 0;
+        for (String line : lines.subList(1, lines.size())) {
+            samples += Long.parseLong(line.split(",")[2]);
+        }
+        // Only the row after the completed intervals are written at the line is late
+        Assert.assertEquals(samples, rows - 1);
+        for (String chunkSize : new String[]{"4096", "100000", "10000000"}) {
+            Path parallelDir = split(content, "--interval", "1", "-j", "4", "--chunk-size", chunkSize);
+            parallelDir.resolve(outputFile).toFile().deleteOnExit();
+            Assert.assertEquals(Files.readAllBytes(parallelDir.resolve(outputFile)), expected,
+                    "Output is different with chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    public void testMergeStates() throws IOException {
+        Path dir = split(jtl, "--save-state", "--max-labels", "3");
+        Path mergedSummaryFile = dir.resolve("results-merged-summary.json");
+        Path mergedStateFile = dir.resolve("results-merged-state.json");
+        for (String stateFile : new String[]{"results-warmup-state.json", "results-measurement-state.json",
+                mergedSummaryFile.getFileName().toString(), mergedStateFile.getFileName().toString()}) {
+            dir.resolve(stateFile).toFile().deleteOnExit();
+        }
+        // Merging the state of a single file gives the same summary
+        JTLSummaryMerger.main(new String[]{"-o", mergedSummaryFile.toString(), "--state-output",
+                mergedStateFile.toString(), "--max-labels", "3", dir.resolve("results-measurement-state.json")
+                .toString()});
+        Assert.assertEquals(Files.readAllBytes(mergedSummaryFile),
+                Files.readAllBytes(dir.resolve("results-measurement-summary.json")));
+        // The merged state can be merged again
+        JTLSummaryMerger.main(new String[]{"-o", mergedSummaryFile.toString(), "--max-labels", "3",
+                mergedStateFile.toString()});
+        Assert.assertEquals(Files.readAllBytes(mergedSummaryFile),
+                Files.readAllBytes(dir.resolve("results-measurement-summary.json")));
+        // Merge warmup and measurement states of all labels
+        dir = split(jtl, "--save-state");
+        mergedSummaryFile = dir.resolve("results-merged-summary.json");
+        for (String stateFile : new String[]{"results-warmup-state.json", "results-measurement-state.json",
+                mergedSummaryFile.getFileName().toString()}) {
+            dir.resolve(stateFile).toFile().deleteOnExit();
+        }
+        JTLSummaryMerger.main(new String[]{"-o", mergedSummaryFile.toString(),
+                dir.resolve("results-warmup-state.json").toString(),
+                dir.resolve("results-measurement-state.json").toString()});
+        Map<String, Map<String, Number>> warmupSummary = readSummary(dir.resolve("results-warmup-summary.json"));
+        Map<String, Map<String, Number>> measurementSummary =
+                readSummary(dir.resolve("results-measurement-summary.json"));
+        Map<String, Map<String, Number>> mergedSummary = readSummary(mergedSummaryFile);
+        long samples = 0;
+        for (String label : mergedSummary.keySet()) {
+            for (String count : new String[]{"samples", "errors"}) {
+                Assert.assertEquals(mergedSummary.get(label).get(count).longValue(),
+                        warmupSummary.get(label).get(count).longValue()
+                                + measurementSummary.get(label).get(count).longValue());
+            }
+            samples += mergedSummary.get(label).get("samples").longValue();
+        }
+        // Invalid lines are ignored
+        Assert.assertEquals(samples, NO_OF_ROWS - 10);
+    }
+
+    private static Map<String, Map<String, Number>> readSummary(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path)) {
+            return new Gson().fromJson(reader, new TypeToken<Map<String, Map<String, Number>>>() {
+            }.getType());
+        }
+    }
+
+    private static List<String> readIntervalLog(Path path) throws IOException {
+        List<String> intervals = new ArrayList<>();
+        HistogramLogReader logReader = new HistogramLogReader(path.toFile());
+        try {
+            Histogram histogram;
+            while ((histogram = (Histogram) logReader.nextIntervalHistogram()) != null) {
+                intervals.add(histogram.getTag() + "," + histogram.getStartTimeStamp() + ","
+                        + histogram.getEndTimeStamp() + "," + histogram.getTotalCount() + ","
+                        + histogram.getValueAtPercentile(50) + "," + histogram.getValueAtPercentile(99) + ","
+                        + histogram.getMaxValue());
+            }
+        } finally {
+            logReader.close();
+        }
+        Assert.assertFalse(intervals.isEmpty());
+        return intervals;
+    }
+
+    private static byte[] decompress(Path path) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(path))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) >= 0) {
+                outputStream.write(buffer, 0, read);
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    private Path split(byte[] content, String... options) throws IOException {
+        return split("results.jtl", content, options);
+    }
+
+    private Path split(String fileName, byte[] content, String... options) throws IOException {
+        Path dir = Files.createTempDirectory("jtl-splitter");
+        dir.toFile().deleteOnExit();
+        Path jtlFile = dir.resolve(fileName);
+        Files.write(jtlFile, content);
+        String[] args = new String[7 + options.length];
+        args[0] = "-f";
+        args[1] = jtlFile.toString();
+        args[2] = "-t";
+        args[3] = "1";
+        args[4] = "-u";
+        args[5] = "SECONDS";
+        args[6] = "-s";
+        System.arraycopy(options, 0, args, 7, options.length);
+        JTLSplitter.main(args);
+        for (String outputFile : OUTPUT_FILES) {
+            dir.resolve(outputFile).toFile().deleteOnExit();
+            dir.resolve(outputFile + ".gz").toFile().deleteOnExit();
+        }
+        jtlFile.toFile().deleteOnExit();
+        return dir;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.jtl.splitter;
+
+import com.google.gson.Gson;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+
+/**
+ * Test limiting the number of labels in summary statistics.
+ */
+public class LabelStatCalculatorsTest {
+
+    private static final int NO_OF_SAMPLES = 100_000;
+
+    @Test
+    public void testMaxLabels() {
+        LabelStatCalculators labelStatCalculators = new LabelStatCalculators(2, true, 3);
+        StatCalculator expectedTotal = new StatCalculator(2);
+        StatCalculator expectedOther = new StatCalculator(2);
+        long startTimestamp = System.currentTimeMillis();
+        Random random = new Random();
+        for (int i = 0; i < NO_OF_SAMPLES; i++) {
+            // The first three labels are seen first
+            int labelIndex = i < 3 ? i : random.nextInt(10);
+            long timestamp = startTimestamp + i / 10;
+            int elapsed = 1 + random.nextInt(1_000);
+            boolean success = random.nextInt(10) > 0;
+            int bytes = random.nextInt(10_000);
+            labelStatCalculators.get("Label " + labelIndex).addSample(timestamp, elapsed, success, bytes, bytes);
+            expectedTotal.addSample(timestamp, elapsed, success, bytes, bytes);
+            if (labelIndex >= 3) {
+                expectedOther.addSample(timestamp, elapsed, success, bytes, bytes);
+            }
+        }
+        Map<String, SummaryStats> summaryStats = labelStatCalculators.getSummaryStats();
+        Assert.assertEquals(new ArrayList<>(summaryStats.keySet()), Arrays.asList("Label 0", "Label 1", "Label 2",
+                LabelStatCalculators.OTHER_LABEL, LabelStatCalculators.TOTAL_LABEL));
+        Gson gson = new Gson();
+        Assert.assertEquals(gson.toJson(summaryStats.get(LabelStatCalculators.TOTAL_LABEL)),
+                gson.toJson(expectedTotal.calculate()));
+        Assert.assertEquals(gson.toJson(summaryStats.get(LabelStatCalculators.OTHER_LABEL)),
+                gson.toJson(expectedOther.calculate()));
+    }
+
+    @Test
+    public void testReservedLabels() {
+        LabelStatCalculators labelStatCalculators = new LabelStatCalculators(2, false, 2);
+        long timestamp = System.currentTimeMillis();
+        labelStatCalculators.get("OTHER").addSample(timestamp, 10, true, 100, 100);
+        labelStatCalculators.get("TOTAL").addSample(timestamp, 20, true, 100, 100);
+        labelStatCalculators.get("Label 0").addSample(timestamp, 30, true, 100, 100);
+        Map<String, SummaryStats> summaryStats = labelStatCalculators.getSummaryStats();
+        Assert.assertEquals(new ArrayList<>(summaryStats.keySet()), Arrays.asList("OTHER", "TOTAL",
+                LabelStatCalculators.OTHER_LABEL, LabelStatCalculators.TOTAL_LABEL));
+        Assert.assertEquals(summaryStats.get("OTHER").getSamples(), 1);
+        Assert.assertEquals(summaryStats.get("TOTAL").getSamples(), 1);
+        Assert.assertEquals(summaryStats.get(LabelStatCalculators.TOTAL_LABEL).getSamples(), 3);
+    }
+
+    @Test
+    public void testMerge() {
+        LabelStatCalculators labelStatCalculators = new LabelStatCalculators(2, false, 2);
+        LabelStatCalculators expected = new LabelStatCalculators(2, false, 2);
+        long startTimestamp = System.currentTimeMillis();
+        for (int chunk = 0; chunk < 3; chunk++) {
+            LabelStatCalculators chunkStatCalculators = labelStatCalculators.withoutLimit();
+            for (int i = 0; i < 4; i++) {
+                String label = "Label " + (chunk + i);
+                chunkStatCalculators.get(label).addSample(startTimestamp + i, 10 + i, true, 100, 100);
+                expected.get(label).addSample(startTimestamp + i, 10 + i, true, 100, 100);
+            }
+            labelStatCalculators.merge(chunkStatCalculators);
+        }
+        Gson gson = new Gson();
+        Assert.assertEquals(gson.toJson(labelStatCalculators.getSummaryStats()),
+                gson.toJson(expected.getSummaryStats()));
+    }
+
+    @Test
+    public void testMergeStates() throws DataFormatException {
+        LabelStatCalculators merged = new LabelStatCalculators(2, false, 0);
+        LabelStatCalculators expected = new LabelStatCalculators(2, false, 0);
+        long startTimestamp = System.currentTimeMillis();
+        Random random = new Random();
+        for (int server = 0; server < 3; server++) {
+            // Each server records samples with a different histogram type
+            LabelStatCalculators serverStatCalculators = new LabelStatCalculators(2, server % 2 == 0, 0);
+            for (int i = 0; i < NO_OF_SAMPLES / 3; i++) {
+                String label = "Label " + random.nextInt(5);
+                long timestamp = startTimestamp + server * 1_000 + i / 10;
+                int elapsed = 1 + random.nextInt(100_000);
+                boolean success = random.nextInt(10) > 0;
+                int bytes = random.nextInt(10_000);
+                serverStatCalculators.get(label).addSample(timestamp, elapsed, success, bytes, bytes);
+                expected.get(label).addSample(timestamp, elapsed, success, bytes, bytes);
+            }
+            merged.mergeStates(serverStatCalculators.encodeStates());
+        }
+        Gson gson = new Gson();
+        Assert.assertEquals(gson.toJson(merged.getSummaryStats()), gson.toJson(expected.getSummaryStats()));
+    }
+
+    @Test(expectedExceptions = DataFormatException.class)
+    public void testInvalidState() throws DataFormatException {
+        new LabelStatCalculators(2, false, 0).mergeStates(Collections.singletonMap("Label 1", "AAAA"));
+    }
+
+    @Test
+    public void testUnlimitedLabels() {
+        LabelStatCalculators labelStatCalculators = new LabelStatCalculators(2, false, 0);
+        for (int i = 0; i < 100; i++) {
+            labelStatCalculators.get("Label " + i).addSample(System.currentTimeMillis(), 10, true, 100, 100);
+        }
+        // There is no total when the number of labels is not limited
+        Assert.assertEquals(labelStatCalculators.getSummaryStats().size(), 100);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.performance.common.payload.generator.PayloadType;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the number of requests transformed per second by each request transformation of the echo server. The
+ * requests are the JSON payloads generated by the payload generator.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestTransformBenchmark {
+
+    // Minimum length of the strings in the array and object payloads
+    private static final int PAYLOAD_MIN_LENGTH = 10;
+
+    @Param({"NONE", "JSON", "DIGEST", "GZIP"})
+    public RequestTransform transform;
+
+    @Param({"SIMPLE", "ARRAY", "OBJECT"})
+    public PayloadType payloadType;
+
+    @Param({"1024", "10240", "102400"})
+    public int payloadSize;
+
+    private final ByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+    private final HttpHeaders headers = new DefaultHttpHeaders();
+    private ByteBuf content;
+
+    @Setup
+    public void setup() {
+        byte[] json = payloadType.createPayload(payloadSize, PAYLOAD_MIN_LENGTH).getBytes();
+        // The request content is received to a direct buffer
+        content = alloc.directBuffer(json.length).writeBytes(json);
+    }
+
+    @TearDown
+    public void tearDown() {
+        content.release();
+    }
+
+    @Benchmark
+    public int apply() {
+        ByteBuf output = transform.apply(alloc, content, headers);
+        try {
+            return output.readableBytes();
+        } finally {
+            output.release();
+            headers.clear();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.channel.ChannelHandler;
+
+/**
+ * Creates the handlers, which respond to the aggregated requests. The HTTP/2 pipelines use the factory to create the
+ * same handler as the HTTP/1.1 pipeline.
+ */
+@FunctionalInterface
+interface AggregatedHandlerFactory {
+
+    /**
+     * Create a handler for a connection.
+     *
+     * @param h2ContentAggregate Whether the requests are HTTP/2 requests converted to HTTP/1.1
+     * @return A handler, which accepts {@link io.netty.handler.codec.http.FullHttpRequest}s
+     */
+    ChannelHandler newHandler(boolean h2ContentAggregate);
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+/**
+ * Buffer allocators, which can be used by the echo server. Both allocators prefer direct buffers if the platform
+ * supports them.
+ */
+public enum AllocatorType {
+
+    POOLED {
+        @Override
+        ByteBufAllocator allocator() {
+            return PooledByteBufAllocator.DEFAULT;
+        }
+    },
+    UNPOOLED {
+        @Override
+        ByteBufAllocator allocator() {
+            return UnpooledByteBufAllocator.DEFAULT;
+        }
+    };
+
+    abstract ByteBufAllocator allocator();
+}
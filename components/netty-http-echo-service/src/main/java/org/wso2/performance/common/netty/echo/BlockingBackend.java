@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes the requests with blocking semantics to emulate a backend, which uses a thread for each request. A request
+ * is processed by applying the request transformation to build the response and then sleeping for the response delay.
+ * <p>
+ * A virtual thread is used for each request if the JVM supports virtual threads. Otherwise, a fixed pool of platform
+ * threads is used. The virtual threads are created using reflection since the server should run on Java 8.
+ */
+final class BlockingBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlockingBackend.class);
+
+    private final ExecutorService executor;
+    private final RequestTransform transform;
+    private final int workIterations;
+    private final DelayScheduler delayScheduler;
+
+    /**
+     * Create a backend.
+     *
+     * @param transform      The transformation of the request content to create the response content
+     * @param workIterations The number of times to apply the transformation. The last result is used in the response
+     * @param delayScheduler The scheduler to get the response delays or {@code null} to respond without a delay
+     * @param virtualThreads Whether to use virtual threads if they are supported
+     * @param threads        The number of platform threads, which are used if virtual threads are not used
+     */
+    BlockingBackend(RequestTransform transform, int workIterations, DelayScheduler delayScheduler,
+                    boolean virtualThreads, int threads) {
+        this.transform = transform;
+        this.workIterations = workIterations;
+        this.delayScheduler = delayScheduler;
+        ExecutorService virtualThreadExecutor = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        if (virtualThreadExecutor != null) {
+            executor = virtualThreadExecutor;
+            logger.info("Blocking Backend. Transform: {}, Work Iterations: {}, Threads: Virtual", transform,
+                    workIterations);
+        } else {
+            executor = Executors.newFixedThreadPool(threads, new DefaultThreadFactory("blocking-backend", true));
+            logger.info("Blocking Backend. Transform: {}, Work Iterations: {}, Threads: {}", transform,
+                    workIterations, threads);
+        }
+    }
+
+    /**
+     * Create a backend, which runs the blocking tasks using the given executor.
+     *
+     * @param transform      The transformation of the request content to create the response content
+     * @param workIterations The number of times to apply the transformation. The last result is used in the response
+     * @param delayScheduler The scheduler to get the response delays or {@code null} to respond without a delay
+     * @param executor       The executor to run the blocking tasks
+     */
+    BlockingBackend(RequestTransform transform, int workIterations, DelayScheduler delayScheduler,
+                    ExecutorService executor) {
+        this.transform = transform;
+        this.workIterations = workIterations;
+        this.delayScheduler = delayScheduler;
+        this.executor = executor;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Virtual threads are not supported. Using platform threads. Cause: {}", String.valueOf(e));
+            return null;
+        }
+    }
+
+    /**
+     * Get the executor to run the blocking tasks.
+     */
+    Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Process the request and build the response. This method blocks the current thread.
+     *
+     * @param alloc      The allocator for the response content
+     * @param request    The request, which is not released
+     * @param compressor The compressor of the response or {@code null} if the response is not compressed
+     * @return The response, which is a "400 Bad Request" response if the request content cannot be transformed
+     * @throws InterruptedException If the thread is interrupted while sleeping
+     */
+    FullHttpResponse process(ByteBufAllocator alloc, FullHttpRequest request, ResponseCompressor compressor)
+            throws InterruptedException {
+        FullHttpResponse response = null;
+        try {
+            // The results of the previous iterations are discarded
+            for (int i = 1; i < workIterations; i++) {
+                ByteBuf content = transform.apply(alloc, request.content(), new DefaultHttpHeaders());
+                content.release();
+            }
+        } catch (IllegalArgumentException e) {
+            response = EchoHttpServerHandler.buildBadRequestResponse();
+        }
+        if (response == null) {
+            response = EchoHttpServerHandler.buildFullHttpResponse(alloc, request, transform, compressor);
+        }
+        if (delayScheduler != null) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delayScheduler.nextDelay());
+            } catch (InterruptedException e) {
+                response.release();
+                throw e;
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Stop the executor. The requests being processed are interrupted.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
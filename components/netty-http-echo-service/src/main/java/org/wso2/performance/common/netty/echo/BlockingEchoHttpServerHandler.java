@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http2.HttpConversionUtil;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+/**
+ * Handler implementation for the echo server in the blocking mode. Each aggregated request is processed by the
+ * {@link BlockingBackend} in a separate thread, which builds the response, and the response is written in the event
+ * loop.
+ * <p>
+ * The HTTP/1.1 requests of a connection may be processed in parallel, but the responses are written in the order of
+ * the requests. This handler keeps the pending HTTP/1.1 responses and cannot be shared.
+ */
+public class BlockingEchoHttpServerHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+    private static final String STREAM_ID = HttpConversionUtil.ExtensionHeaderNames.STREAM_ID.text().toString();
+
+    private final BlockingBackend backend;
+    private final boolean h2ContentAggregate;
+    private final ResponseCompressor compressor;
+    // HTTP/1.1 requests in the order of receiving
+    private final ArrayDeque<PendingRequest> pendingRequests = new ArrayDeque<>();
+
+    /**
+     * Create a handler.
+     *
+     * @param backend            The backend to process the requests
+     * @param h2ContentAggregate Whether the requests are HTTP/2 requests converted to HTTP/1.1
+     * @param compressor         The compressor of the responses or {@code null} if the responses are not compressed
+     */
+    BlockingEchoHttpServerHandler(BlockingBackend backend, boolean h2ContentAggregate,
+                                  ResponseCompressor compressor) {
+        // The request is released after processing
+        super(false);
+        this.backend = backend;
+        this.h2ContentAggregate = h2ContentAggregate;
+        this.compressor = compressor;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+        PendingRequest pendingRequest = new PendingRequest(request);
+        if (!h2ContentAggregate) {
+            pendingRequests.add(pendingRequest);
+        }
+        try {
+            backend.executor().execute(() -> {
+                FullHttpResponse response;
+                try {
+                    response = backend.process(ctx.alloc(), request, compressor);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    response = serviceUnavailableResponse();
+                }
+                FullHttpResponse processedResponse = response;
+                ctx.executor().execute(() -> complete(ctx, pendingRequest, processedResponse));
+            });
+        } catch (RejectedExecutionException e) {
+            complete(ctx, pendingRequest, serviceUnavailableResponse());
+        }
+    }
+
+    private static FullHttpResponse serviceUnavailableResponse() {
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, SERVICE_UNAVAILABLE, Unpooled.EMPTY_BUFFER);
+        HttpUtil.setContentLength(response, 0);
+        return response;
+    }
+
+    private void complete(ChannelHandlerContext ctx, PendingRequest pendingRequest, FullHttpResponse response) {
+        pendingRequest.response = response;
+        if (h2ContentAggregate) {
+            write(ctx, pendingRequest);
+            return;
+        }
+        PendingRequest head;
+        while ((head = pendingRequests.peek()) != null && head.response != null) {
+            pendingRequests.poll();
+            write(ctx, head);
+        }
+    }
+
+    private void write(ChannelHandlerContext ctx, PendingRequest pendingRequest) {
+        FullHttpRequest request = pendingRequest.request;
+        FullHttpResponse response = pendingRequest.response;
+        if (h2ContentAggregate) {
+            response.headers().set(STREAM_ID, request.headers().get(STREAM_ID));
+            request.release();
+            ctx.writeAndFlush(response);
+            return;
+        }
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        request.release();
+        if (keepAlive) {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        }
+        ChannelFuture f = ctx.writeAndFlush(response);
+        if (!keepAlive) {
+            f.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private static final class PendingRequest {
+
+        private final FullHttpRequest request;
+        // The response is set when the request is processed
+        private FullHttpResponse response;
+
+        private PendingRequest(FullHttpRequest request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of compressed contents shared by all event loops. The contents are looked up by a hash of the
+ * content and the least recently used contents are evicted when the size of the cache exceeds the max size. The
+ * uncompressed content is kept with the compressed content to verify that a hit is not a hash collision.
+ * <p>
+ * The contents are kept in byte arrays, which are not reference counted, so that a content can be written after it is
+ * evicted.
+ */
+final class CompressedContentCache {
+
+    private final long maxSize;
+    // Entries in the access order
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create a cache.
+     *
+     * @param maxSize The max size of the uncompressed and compressed contents in bytes
+     */
+    CompressedContentCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the compressed content from the cache or compress the content and add it to the cache. The least recently
+     * used contents are evicted if the cache is full.
+     *
+     * @param encoding The content encoding
+     * @param content  The uncompressed content
+     * @return The compressed content
+     */
+    byte[] getOrCompress(ContentEncoding encoding, ByteBuf content) {
+        Key key = new Key(encoding, content.readableBytes(), ByteBufUtil.hashCode(content));
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        // Compare the contents without holding the lock
+        if (entry != null && ByteBufUtil.equals(Unpooled.wrappedBuffer(entry.content), content)) {
+            hits.increment();
+            return entry.compressed;
+        }
+        misses.increment();
+        byte[] compressed = encoding.compress(content);
+        put(key, new Entry(ByteBufUtil.getBytes(content), compressed));
+        return compressed;
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        if (entry.size() > maxSize) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            size -= previous.size();
+        }
+        size += entry.size();
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().getValue().size();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    synchronized int getEntries() {
+        return entries.size();
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    private static final class Key {
+
+        private final ContentEncoding encoding;
+        private final int length;
+        private final int hash;
+
+        private Key(ContentEncoding encoding, int length, int hash) {
+            this.encoding = encoding;
+            this.length = length;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return encoding == key.encoding && length == key.length && hash == key.hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * encoding.hashCode() + length) + hash;
+        }
+    }
+
+    private static final class Entry {
+
+        private final byte[] content;
+        private final byte[] compressed;
+
+        private Entry(byte[] content, byte[] compressed) {
+            this.content = content;
+            this.compressed = compressed;
+        }
+
+        private long size() {
+            return (long) content.length + compressed.length;
+        }
+    }
+}
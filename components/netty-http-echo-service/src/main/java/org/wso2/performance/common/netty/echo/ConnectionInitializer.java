@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+
+/**
+ * Adds the handlers, which do not depend on the protocol, to the beginning of the pipeline and then adds the protocol
+ * handlers using the given initializer.
+ */
+final class ConnectionInitializer extends ChannelInitializer<Channel> {
+
+    private static final BackpressureHandler BACKPRESSURE_HANDLER = new BackpressureHandler();
+
+    private final EchoMetrics metrics;
+    private final boolean backpressure;
+    private final ChannelHandler protocolInitializer;
+
+    /**
+     * Create an initializer.
+     *
+     * @param metrics             The server metrics or {@code null} if the metrics are not recorded
+     * @param backpressure        Whether to stop reading from a connection while it is not writable
+     * @param protocolInitializer The initializer, which adds the protocol handlers
+     */
+    ConnectionInitializer(EchoMetrics metrics, boolean backpressure, ChannelHandler protocolInitializer) {
+        this.metrics = metrics;
+        this.backpressure = backpressure;
+        this.protocolInitializer = protocolInitializer;
+    }
+
+    @Override
+    protected void initChannel(Channel ch) {
+        ChannelPipeline p = ch.pipeline();
+        if (metrics != null) {
+            p.addLast(new TrafficMetricsHandler(metrics));
+        }
+        if (backpressure) {
+            p.addLast(BACKPRESSURE_HANDLER);
+        }
+        p.addLast(protocolInitializer);
+    }
+
+    /**
+     * Stops reading from the connection when the pending writes exceed the high water mark and starts reading again
+     * when the pending writes are below the low water mark.
+     */
+    @Sharable
+    private static final class BackpressureHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+            ctx.channel().config().setAutoRead(ctx.channel().isWritable());
+            super.channelWritabilityChanged(ctx);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.BrotliEncoder;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+
+/**
+ * Content encodings supported by the echo server to compress the responses.
+ */
+public enum ContentEncoding {
+
+    GZIP("gzip") {
+        @Override
+        ChannelHandler newEncoder() {
+            return ZlibCodecFactory.newZlibEncoder(ZlibWrapper.GZIP);
+        }
+    },
+    DEFLATE("deflate") {
+        @Override
+        ChannelHandler newEncoder() {
+            // The "deflate" content encoding is the zlib format
+            return ZlibCodecFactory.newZlibEncoder(ZlibWrapper.ZLIB);
+        }
+    },
+    /**
+     * Brotli is available only if Brotli4j and its native library are in the class path. Brotli4j is not a
+     * dependency of the echo server.
+     */
+    BR("br") {
+        @Override
+        boolean isAvailable() {
+            return Brotli.isAvailable();
+        }
+
+        @Override
+        String unavailabilityReason() {
+            Throwable cause = Brotli.cause();
+            // The cause is not set if Brotli4j is not in the class path
+            return cause != null ? String.valueOf(cause) : "Brotli4j is not in the class path";
+        }
+
+        @Override
+        ChannelHandler newEncoder() {
+            return new BrotliEncoder();
+        }
+    };
+
+    private final String name;
+
+    ContentEncoding(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the name used in the "Accept-Encoding" and "Content-Encoding" headers.
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Check whether the encoding can be used in this JVM.
+     */
+    boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Get the reason why the encoding is not available.
+     *
+     * @return The reason or {@code null} if the encoding is available
+     */
+    String unavailabilityReason() {
+        return null;
+    }
+
+    abstract ChannelHandler newEncoder();
+
+    /**
+     * Compress the content using the Netty encoder without changing the reader index of the content.
+     *
+     * @param content The content to compress
+     * @return The compressed content
+     */
+    byte[] compress(ByteBuf content) {
+        EmbeddedChannel channel = new EmbeddedChannel(newEncoder());
+        CompositeByteBuf compressed = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        try {
+            channel.writeOutbound(content.retainedDuplicate());
+            // Write the trailer of the compressed data
+            channel.finish();
+            ByteBuf part;
+            while ((part = channel.readOutbound()) != null) {
+                compressed.addComponent(true, part);
+            }
+            return ByteBufUtil.getBytes(compressed);
+        } finally {
+            compressed.release();
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    /**
+     * Find the encoding with the given name in the "Accept-Encoding" header.
+     *
+     * @return The encoding or {@code null} if the encoding is not supported
+     */
+    static ContentEncoding fromName(String name) {
+        for (ContentEncoding encoding : values()) {
+            if (encoding.name.equalsIgnoreCase(name)) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+/**
+ * Distributions of the response delay.
+ */
+public enum DelayDistribution {
+
+    /**
+     * Every response is delayed by the given delay.
+     */
+    FIXED,
+    /**
+     * The delay is uniformly distributed between the given delay and the max delay.
+     */
+    UNIFORM,
+    /**
+     * The delay is exponentially distributed with the given delay as the mean. The delay is limited to the max delay
+     * if it is given.
+     */
+    EXPONENTIAL,
+    /**
+     * The delays are replayed from a histogram file.
+     */
+    HISTOGRAM
+}
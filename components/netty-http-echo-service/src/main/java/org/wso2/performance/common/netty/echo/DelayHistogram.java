@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Histogram of response delays. Each line of the histogram file has a delay in milliseconds and the number of times
+ * the delay was observed, separated by a comma or whitespace. Empty lines and lines starting with "#" are ignored.
+ */
+final class DelayHistogram {
+
+    private final long[] delays;
+    // Cumulative counts of the delays
+    private final long[] counts;
+
+    private DelayHistogram(long[] delays, long[] counts) {
+        this.delays = delays;
+        this.counts = counts;
+    }
+
+    /**
+     * Read a histogram file.
+     *
+     * @param file The histogram file
+     * @return The delay histogram
+     * @throws IOException If the file cannot be read
+     */
+    static DelayHistogram load(Path file) throws IOException {
+        long[] delays = new long[64];
+        long[] counts = new long[64];
+        int size = 0;
+        long total = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] values = line.split("[,\\s]+");
+                long delay;
+                long count;
+                try {
+                    if (values.length != 2) {
+                        throw new NumberFormatException();
+                    }
+                    delay = (long) (Double.parseDouble(values[0]) * TimeUnit.MILLISECONDS.toNanos(1));
+                    count = Long.parseLong(values[1]);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid line " + lineNumber + " in delay histogram: " + line);
+                }
+                if (delay < 0 || count < 0) {
+                    throw new IOException("Negative value in line " + lineNumber + " of delay histogram: " + line);
+                }
+                if (count == 0) {
+                    continue;
+                }
+                if (size == delays.length) {
+                    delays = Arrays.copyOf(delays, size * 2);
+                    counts = Arrays.copyOf(counts, size * 2);
+                }
+                total += count;
+                delays[size] = delay;
+                counts[size] = total;
+                size++;
+            }
+        }
+        if (size == 0) {
+            throw new IOException("Delay histogram does not have any values: " + file);
+        }
+        return new DelayHistogram(Arrays.copyOf(delays, size), Arrays.copyOf(counts, size));
+    }
+
+    /**
+     * Get a delay in nanoseconds with the probability of the delay in the histogram.
+     */
+    long sample(ThreadLocalRandom random) {
+        long value = random.nextLong(counts[counts.length - 1]);
+        // Find the first cumulative count greater than the value
+        int index = Arrays.binarySearch(counts, value + 1);
+        return delays[index >= 0 ? index : -index - 1];
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules delayed responses using a single hashed wheel timer shared by all event loops. Adding a timeout to the
+ * timer does not depend on the number of pending timeouts and the event loops are woken up only to write the
+ * responses, which are due.
+ * <p>
+ * Responses are scheduled using deadlines based on {@link System#nanoTime()}. The timer does not keep the order of
+ * the tasks with the same deadline. Use a {@link DelayedWriteQueue} to keep the order of the writes.
+ */
+final class DelayScheduler {
+
+    private static final int TICKS_PER_WHEEL = 1024;
+
+    private final DelayDistribution distribution;
+    private final long delay;
+    private final long maxDelay;
+    private final DelayHistogram histogram;
+    private final Timer timer;
+
+    /**
+     * Create a scheduler.
+     *
+     * @param distribution The delay distribution
+     * @param delay        The fixed delay, the minimum delay for the uniform distribution or the mean delay for the
+     *                     exponential distribution in nanoseconds
+     * @param maxDelay     The max delay for the uniform and exponential distributions in nanoseconds. There is no max
+     *                     delay for the exponential distribution if the value is zero
+     * @param histogram    The histogram to replay the delays, if the distribution is
+     *                     {@link DelayDistribution#HISTOGRAM}
+     * @param tickDuration The tick duration of the timer in nanoseconds
+     */
+    DelayScheduler(DelayDistribution distribution, long delay, long maxDelay, DelayHistogram histogram,
+                   long tickDuration) {
+        this.distribution = distribution;
+        this.delay = delay;
+        this.maxDelay = maxDelay;
+        this.histogram = histogram;
+        this.timer = new HashedWheelTimer(new DefaultThreadFactory("delay-timer", true), tickDuration,
+                TimeUnit.NANOSECONDS, TICKS_PER_WHEEL);
+    }
+
+    /**
+     * Get the deadline of the next response.
+     *
+     * @param previousDeadline The deadline of the previous response in the same connection, which should be
+     *                         written before the next response, or {@link Long#MIN_VALUE}
+     * @return The deadline in nanoseconds
+     */
+    long nextDeadline(long previousDeadline) {
+        long deadline = System.nanoTime() + nextDelay();
+        // Compare the difference to handle the overflow of nanoTime
+        return previousDeadline != Long.MIN_VALUE && deadline - previousDeadline < 0 ? previousDeadline : deadline;
+    }
+
+    /**
+     * Get the delay of the next response.
+     *
+     * @return The delay in nanoseconds
+     */
+    long nextDelay() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (distribution) {
+            case UNIFORM:
+                return random.nextLong(delay, maxDelay + 1);
+            case EXPONENTIAL:
+                long value = (long) (-delay * Math.log(1 - random.nextDouble()));
+                return maxDelay > 0 ? Math.min(value, maxDelay) : value;
+            case HISTOGRAM:
+                return histogram.sample(random);
+            default:
+                return delay;
+        }
+    }
+
+    /**
+     * Run a task in the event loop of the channel at the given deadline.
+     *
+     * @param ctx      The channel handler context
+     * @param deadline The deadline returned by {@link #nextDeadline(long)}
+     * @param task     The task to run
+     */
+    void schedule(ChannelHandlerContext ctx, long deadline, Runnable task) {
+        timer.newTimeout(timeout -> ctx.executor().execute(task), deadline - System.nanoTime(),
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stop the timer. The responses, which are not due, are not written.
+     */
+    void stop() {
+        timer.stop();
+    }
+}
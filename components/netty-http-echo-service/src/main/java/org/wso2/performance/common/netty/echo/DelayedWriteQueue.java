@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.channel.ChannelHandlerContext;
+
+import java.util.ArrayDeque;
+
+/**
+ * Delayed writes of a connection or an HTTP/2 stream, which should be written in order. Only the write at the head of
+ * the queue is scheduled. When it is due, all writes, which are due, are written and the next write is scheduled.
+ * Therefore, the chunks of a streamed response do not add timeouts to the timer. A write is written immediately if it
+ * is due and there are no earlier writes.
+ * <p>
+ * This class is not thread-safe and should only be used in the event loop of the channel.
+ */
+final class DelayedWriteQueue {
+
+    private final DelayScheduler delayScheduler;
+    private final ArrayDeque<DelayedWrite> writes = new ArrayDeque<>();
+    private final Runnable writeDue = this::writeDue;
+    private long deadline = Long.MIN_VALUE;
+    // The context of the channel to run the scheduled writes
+    private ChannelHandlerContext ctx;
+
+    DelayedWriteQueue(DelayScheduler delayScheduler) {
+        this.delayScheduler = delayScheduler;
+    }
+
+    /**
+     * Start a new response. The deadline of the new response is not earlier than the deadline of the previous
+     * response.
+     */
+    void nextResponse() {
+        deadline = delayScheduler.nextDeadline(deadline);
+    }
+
+    /**
+     * Add a write of the current response.
+     *
+     * @param ctx   The channel handler context
+     * @param write The task, which writes a part of the response
+     */
+    void add(ChannelHandlerContext ctx, Runnable write) {
+        if (writes.isEmpty()) {
+            // The writes before the first response are not delayed
+            if (deadline == Long.MIN_VALUE || deadline - System.nanoTime() <= 0) {
+                write.run();
+                return;
+            }
+            this.ctx = ctx;
+            delayScheduler.schedule(ctx, deadline, writeDue);
+        }
+        writes.add(new DelayedWrite(deadline, write));
+    }
+
+    private void writeDue() {
+        long now = System.nanoTime();
+        DelayedWrite write;
+        while ((write = writes.peek()) != null && write.deadline - now <= 0) {
+            writes.poll();
+            write.write.run();
+        }
+        if (write != null) {
+            delayScheduler.schedule(ctx, write.deadline, writeDue);
+        }
+    }
+
+    private static final class DelayedWrite {
+
+        private final long deadline;
+        private final Runnable write;
+
+        private DelayedWrite(long deadline, Runnable write) {
+            this.deadline = deadline;
+            this.write = write;
+        }
+    }
+}
@@ -18,26 +18,77 @@
 
 package org.wso2.performance.common.netty.echo;
 
-import io.netty.buffer.EmptyByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http2.DefaultHttp2DataFrame;
 import io.netty.handler.codec.http2.DefaultHttp2Headers;
 import io.netty.handler.codec.http2.DefaultHttp2HeadersFrame;
+import io.netty.handler.codec.http2.DefaultHttp2ResetFrame;
 import io.netty.handler.codec.http2.DefaultHttp2WindowUpdateFrame;
+import io.netty.handler.codec.http2.Http2CodecUtil;
 import io.netty.handler.codec.http2.Http2DataFrame;
+import io.netty.handler.codec.http2.Http2Error;
 import io.netty.handler.codec.http2.Http2FrameStream;
 import io.netty.handler.codec.http2.Http2Headers;
 import io.netty.handler.codec.http2.Http2HeadersFrame;
+import io.netty.handler.codec.http2.Http2ResetFrame;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
 
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE;
 
 /**
  * Handler implementation for the http/2 echo server without content aggregation. This echo backs the header/data
  * frames as soon as they arrive without any content aggregation against stream id.
+ * <p>
+ * The received bytes of a data frame are returned to the flow controller only after the echoed data frame is written.
+ * Therefore, the memory used by a stream is limited by the initial window size even if the client does not read the
+ * response. A 413 response is sent if the content length of a request exceeds the max content length. The stream is
+ * not reset, since some clients report the reset as an error instead of the response, and the remaining content is
+ * discarded. A stream without a content length is reset when the received content exceeds the max content length.
+ * <p>
+ * If the responses are delayed, all frames of a stream are written in order at the same deadline. This handler keeps
+ * the state of the open streams and cannot be shared.
  */
 public class EchoHttp2ServerHandler extends ChannelDuplexHandler {
 
+    private final DelayScheduler delayScheduler;
+    private final int maxContentLength;
+    private final int connectionWindowSize;
+    private final IntObjectMap<StreamState> streams = new IntObjectHashMap<>();
+    private Runnable flushTask;
+    private boolean flushScheduled;
+
+    /**
+     * Create a handler.
+     *
+     * @param delayScheduler       The scheduler to delay the responses or {@code null} to respond without a delay
+     * @param maxContentLength     The max content length of a request
+     * @param connectionWindowSize The flow-control window size of the connection
+     */
+    EchoHttp2ServerHandler(DelayScheduler delayScheduler, int maxContentLength, int connectionWindowSize) {
+        this.delayScheduler = delayScheduler;
+        this.maxContentLength = maxContentLength;
+        this.connectionWindowSize = connectionWindowSize;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        flushTask = () -> {
+            flushScheduled = false;
+            ctx.flush();
+        };
+        int increment = connectionWindowSize - Http2CodecUtil.DEFAULT_WINDOW_SIZE;
+        if (increment > 0) {
+            // A window update frame without a stream increases the connection window
+            ctx.writeAndFlush(new DefaultHttp2WindowUpdateFrame(increment));
+        }
+    }
+
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         if (msg instanceof Http2HeadersFrame) {
@@ -45,6 +96,9 @@ public class EchoHttp2ServerHandler extends ChannelDuplexHandler {
         } else if (msg instanceof Http2DataFrame) {
             onDataRead(ctx, (Http2DataFrame) msg);
         } else {
+            if (msg instanceof Http2ResetFrame) {
+                streams.remove(((Http2ResetFrame) msg).stream().id());
+            }
             super.channelRead(ctx, msg);
         }
     }
@@ -54,19 +108,84 @@ public class EchoHttp2ServerHandler extends ChannelDuplexHandler {
         ctx.flush();
     }
 
-    private static void onDataRead(ChannelHandlerContext ctx, Http2DataFrame data) {
+    private void onDataRead(ChannelHandlerContext ctx, Http2DataFrame data) {
         Http2FrameStream stream = data.stream();
-        ctx.write(new DefaultHttp2DataFrame(data.content(), data.isEndStream()).stream(stream));
-        // Update the flow-controller
-        ctx.write(new DefaultHttp2WindowUpdateFrame(data.initialFlowControlledBytes()).stream(stream));
+        int flowControlledBytes = data.initialFlowControlledBytes();
+        StreamState state = data.isEndStream() ? streams.remove(stream.id()) : streams.get(stream.id());
+        if (state == null) {
+            // The stream was reset
+            data.release();
+            consumeBytes(ctx, stream, flowControlledBytes);
+            return;
+        }
+        state.receivedBytes += data.content().readableBytes();
+        if (state.receivedBytes > maxContentLength) {
+            data.release();
+            streams.remove(stream.id());
+            ctx.write(new DefaultHttp2ResetFrame(Http2Error.CANCEL).stream(stream));
+            return;
+        }
+        ChannelPromise promise = ctx.newPromise();
+        if (flowControlledBytes > 0) {
+            promise.addListener(future -> consumeBytes(ctx, stream, flowControlledBytes));
+        }
+        write(ctx, state.delayedWrites, new DefaultHttp2DataFrame(data.content(), data.isEndStream()).stream(stream),
+                promise);
     }
 
-    private static void onHeadersRead(ChannelHandlerContext ctx, Http2HeadersFrame headersFrame) {
+    private void onHeadersRead(ChannelHandlerContext ctx, Http2HeadersFrame headersFrame) {
         Http2FrameStream stream = headersFrame.stream();
+        StreamState state = streams.get(stream.id());
+        if (state != null) {
+            // Trailers end the request
+            streams.remove(stream.id());
+            write(ctx, state.delayedWrites, new DefaultHttp2DataFrame(Unpooled.EMPTY_BUFFER, true).stream(stream),
+                    ctx.newPromise());
+            return;
+        }
+        DelayedWriteQueue delayedWrites = null;
+        if (delayScheduler != null) {
+            delayedWrites = new DelayedWriteQueue(delayScheduler);
+            delayedWrites.nextResponse();
+        }
+        Long contentLength = headersFrame.headers().getLong(HttpHeaderNames.CONTENT_LENGTH);
+        if (contentLength != null && contentLength > maxContentLength) {
+            Http2Headers headers = new DefaultHttp2Headers().status(REQUEST_ENTITY_TOO_LARGE.codeAsText());
+            write(ctx, delayedWrites, new DefaultHttp2HeadersFrame(headers, true).stream(stream), ctx.newPromise());
+            return;
+        }
         Http2Headers headers = new DefaultHttp2Headers().status(OK.codeAsText());
-        ctx.write(new DefaultHttp2HeadersFrame(headers).stream(stream));
+        write(ctx, delayedWrites, new DefaultHttp2HeadersFrame(headers).stream(stream), ctx.newPromise());
         if (headersFrame.isEndStream()) {
-            ctx.write(new DefaultHttp2DataFrame(new EmptyByteBuf(ctx.alloc()), true).stream(stream));
+            write(ctx, delayedWrites, new DefaultHttp2DataFrame(Unpooled.EMPTY_BUFFER, true).stream(stream),
+                    ctx.newPromise());
+        } else {
+            streams.put(stream.id(), new StreamState(delayedWrites));
+        }
+    }
+
+    private static void write(ChannelHandlerContext ctx, DelayedWriteQueue delayedWrites, Object frame,
+                              ChannelPromise promise) {
+        if (delayedWrites != null) {
+            // The queue writes the pending frames even after the stream state is removed
+            delayedWrites.add(ctx, () -> ctx.writeAndFlush(frame, promise));
+        } else {
+            ctx.write(frame, promise);
+        }
+    }
+
+    /**
+     * Return the received bytes to the flow controller, which sends a window update when enough bytes are consumed.
+     * The flush is scheduled since the write may complete while the channel is being flushed.
+     */
+    private void consumeBytes(ChannelHandlerContext ctx, Http2FrameStream stream, int bytes) {
+        if (bytes == 0) {
+            return;
+        }
+        ctx.write(new DefaultHttp2WindowUpdateFrame(bytes).stream(stream));
+        if (!flushScheduled) {
+            flushScheduled = true;
+            ctx.executor().execute(flushTask);
         }
     }
 
@@ -75,4 +194,15 @@ public class EchoHttp2ServerHandler extends ChannelDuplexHandler {
         super.exceptionCaught(ctx, cause);
         ctx.close();
     }
+
+    private static final class StreamState {
+
+        // Delayed frames of the stream or null if the responses are not delayed
+        private final DelayedWriteQueue delayedWrites;
+        private long receivedBytes;
+
+        private StreamState(DelayedWriteQueue delayedWrites) {
+            this.delayedWrites = delayedWrites;
+        }
+    }
 }
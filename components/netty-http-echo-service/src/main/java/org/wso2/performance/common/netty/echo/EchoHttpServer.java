@@ -19,17 +19,28 @@ import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufAllocatorMetric;
+import io.netty.buffer.ByteBufAllocatorMetricProvider;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http2.Http2CodecUtil;
 import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.codec.http2.Http2Settings;
 import io.netty.handler.ssl.ApplicationProtocolConfig;
 import io.netty.handler.ssl.ApplicationProtocolNames;
 import io.netty.handler.ssl.SslContext;
@@ -39,6 +50,7 @@ import io.netty.handler.ssl.SupportedCipherSuiteFilter;
 import io.netty.handler.ssl.util.SelfSignedCertificate;
 import io.netty.util.NettyRuntime;
 import io.netty.util.Version;
+import org.apache.logging.log4j.LogManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,11 +59,15 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.file.Files;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLException;
 
@@ -64,6 +80,22 @@ public final class EchoHttpServer {
 
     private static final PrintStream consoleErr = System.err;
 
+    // Server metrics, if the metrics port is given
+    private EchoMetrics metrics;
+
+    // Scheduler for the delayed responses
+    private DelayScheduler delayScheduler;
+
+    // Backend to process the requests in the blocking mode
+    private BlockingBackend blockingBackend;
+
+    // Compressor of the aggregated responses, if the compression is enabled
+    private ResponseCompressor responseCompressor;
+
+    // Encoded responses sent with the response file
+    private ByteBuf keepAliveResponse;
+    private ByteBuf closeResponse;
+
     @Parameter(names = "--port", description = "Server Port")
     private int port = 8688;
 
@@ -86,15 +118,122 @@ public final class EchoHttpServer {
     @Parameter(names = "--key-store-password", description = "Keystore password")
     private String keyStorePassword = "";
 
-    @Parameter(names = "--delay", description = "Response delay in milliseconds")
+    @Parameter(names = "--delay", description = "Response delay in milliseconds. This is the minimum delay for the " +
+            "uniform distribution and the mean delay for the exponential distribution")
     private int sleepTime = 0;
 
+    @Parameter(names = "--max-delay", description = "Max response delay in milliseconds for the uniform and " +
+            "exponential distributions")
+    private int maxSleepTime = 0;
+
+    @Parameter(names = "--delay-distribution", description = "Distribution of the response delay")
+    private DelayDistribution delayDistribution = DelayDistribution.FIXED;
+
+    @Parameter(names = "--delay-histogram-file", description = "File with lines of delay in milliseconds and count " +
+            "to replay with the histogram distribution")
+    private File delayHistogramFile = null;
+
+    @Parameter(names = "--timer-tick", description = "Tick duration of the response delay timer in milliseconds")
+    private int timerTick = 1;
+
+    @Parameter(names = "--transport", description = "Transport to use. Falls back to NIO if the native transport " +
+            "is not available")
+    private Transport transport = Transport.NIO;
+
+    @Parameter(names = "--reuse-port", description = "Bind a server socket for each boss thread using SO_REUSEPORT. " +
+            "Only the native transports support SO_REUSEPORT")
+    private boolean reusePort = false;
+
+    @Parameter(names = "--metrics-port", description = "Port to serve the server metrics in Prometheus text format " +
+            "at /metrics. The metrics are not recorded if the port is not given")
+    private int metricsPort = 0;
+
+    @Parameter(names = "--allocator", description = "Buffer allocator")
+    private AllocatorType allocatorType = AllocatorType.POOLED;
+
+    @Parameter(names = "--fixed-receive-buffer-size", description = "Size of the buffer used to read from a " +
+            "connection in bytes. The buffer size is adjusted based on the received data if the size is not given")
+    private int fixedReceiveBufferSize = 0;
+
+    @Parameter(names = "--write-buffer-low-water-mark", description = "A connection becomes writable again when the " +
+            "pending write bytes go below this value")
+    private int writeBufferLowWaterMark = WriteBufferWaterMark.DEFAULT.low();
+
+    @Parameter(names = "--write-buffer-high-water-mark", description = "A connection becomes unwritable when the " +
+            "pending write bytes exceed this value")
+    private int writeBufferHighWaterMark = WriteBufferWaterMark.DEFAULT.high();
+
+    @Parameter(names = "--backpressure", description = "Stop reading from a connection while it is not writable")
+    private boolean backpressure = false;
+
+    @Parameter(names = "--tcp-no-delay", arity = 1, description = "Disable Nagle's algorithm")
+    private boolean tcpNoDelay = true;
+
+    @Parameter(names = "--socket-send-buffer-size", description = "SO_SNDBUF in bytes. The OS default is used if " +
+            "the size is not given")
+    private int socketSendBufferSize = 0;
+
+    @Parameter(names = "--socket-receive-buffer-size", description = "SO_RCVBUF in bytes. The OS default is used if " +
+            "the size is not given")
+    private int socketReceiveBufferSize = 0;
+
     @Parameter(names = {"-h", "--help"}, description = "Display Help", help = true)
     private boolean help = false;
 
-    @Parameter(names = "--h2-content-aggregate", description = "Enable HTTP/2 content aggregation")
+    @Parameter(names = "--h2-content-aggregate", arity = 1, description = "Enable HTTP/2 content aggregation when " +
+            "the protocol is negotiated with TLS. Use false to echo back the data frames as they are received")
     private boolean h2ContentAggregate = true;
 
+    @Parameter(names = "--h2-max-concurrent-streams", description = "Max concurrent streams of an HTTP/2 " +
+            "connection. The number of streams is not limited if the value is not given")
+    private long h2MaxConcurrentStreams = 0;
+
+    @Parameter(names = "--h2-initial-window-size", description = "Initial HTTP/2 flow-control window size of a " +
+            "stream in bytes")
+    private int h2InitialWindowSize = Http2CodecUtil.DEFAULT_WINDOW_SIZE;
+
+    @Parameter(names = "--h1-content-aggregate", description = "Enable HTTP/1.1 content aggregation. By default, " +
+            "the content is echoed back as it is received")
+    private boolean h1ContentAggregate = false;
+
+    @Parameter(names = "--transform", description = "Transformation of the request content to create the response. " +
+            "The request content is aggregated")
+    private RequestTransform transform = RequestTransform.NONE;
+
+    @Parameter(names = "--compression", description = "Content encodings to compress the responses in the order of " +
+            "preference, when the client accepts more than one. The request content is aggregated and the responses " +
+            "are not compressed if the encodings are not given")
+    private List<ContentEncoding> compression = new ArrayList<>();
+
+    @Parameter(names = "--compression-cache-size", description = "Max size of the cache of compressed responses in " +
+            "bytes, including the uncompressed contents. Use 0 to compress every response")
+    private long compressionCacheSize = 64 * 1024 * 1024; // Default 64MiB
+
+    @Parameter(names = "--blocking", description = "Process each request in a separate thread with blocking " +
+            "semantics. The request content is aggregated and transformed in the thread, which then sleeps for the " +
+            "response delay")
+    private boolean blocking = false;
+
+    @Parameter(names = "--blocking-work-iterations", description = "Number of times to apply the request " +
+            "transformation for each request in the blocking mode. The last result is used in the response")
+    private int blockingWorkIterations = 1;
+
+    @Parameter(names = "--virtual-threads", arity = 1, description = "Use a virtual thread for each request in the " +
+            "blocking mode if the JVM supports virtual threads")
+    private boolean virtualThreads = true;
+
+    @Parameter(names = "--blocking-threads", description = "Number of platform threads in the blocking mode, when " +
+            "virtual threads are not used")
+    private int blockingThreads = 200;
+
+    @Parameter(names = "--response-file", validateValueWith = ResponseFileValidator.class,
+            description = "Send the content of the given file as the response for every request instead of echoing " +
+                    "the request. Only HTTP/1.1 is supported")
+    private File responseFile = null;
+
+    @Parameter(names = "--response-content-type", description = "Content type of the response file")
+    private String responseContentType = "application/json";
+
     @Parameter(names = "--max-content-length", description = "Max HTTP content length in bytes")
     private int maxContentLength = 1 * 1024 * 1024; // Default 1MiB
 
@@ -114,37 +253,211 @@ public final class EchoHttpServer {
             return;
         }
 
+        if (echoHttpServer.http2 && echoHttpServer.responseFile != null) {
+            consoleErr.println("The response file can only be used with HTTP/1.1");
+            return;
+        }
+
+        if (echoHttpServer.blocking || echoHttpServer.transform != RequestTransform.NONE
+                || !echoHttpServer.compression.isEmpty()) {
+            String aggregationError = echoHttpServer.validateAggregation();
+            if (aggregationError != null) {
+                consoleErr.println(aggregationError);
+                return;
+            }
+        }
+
+        if (echoHttpServer.writeBufferLowWaterMark < 0
+                || echoHttpServer.writeBufferHighWaterMark < echoHttpServer.writeBufferLowWaterMark) {
+            consoleErr.println("Invalid write buffer water marks");
+            return;
+        }
+
+        if (echoHttpServer.maxContentLength < 0) {
+            consoleErr.println("The max content length cannot be negative");
+            return;
+        }
+
+        if (echoHttpServer.h2InitialWindowSize < 0 || echoHttpServer.h2MaxConcurrentStreams < 0
+                || echoHttpServer.h2MaxConcurrentStreams > Http2CodecUtil.MAX_CONCURRENT_STREAMS) {
+            consoleErr.println("Invalid HTTP/2 settings");
+            return;
+        }
+
+        String delayError = echoHttpServer.validateDelay();
+        if (delayError != null) {
+            consoleErr.println(delayError);
+            return;
+        }
+
         echoHttpServer.startServer();
     }
 
-    private void startServer() throws SSLException, CertificateException, InterruptedException {
+    private String validateDelay() {
+        if (sleepTime < 0 || maxSleepTime < 0) {
+            return "The response delay cannot be negative";
+        }
+        if (timerTick <= 0) {
+            return "The timer tick duration should be positive";
+        }
+        if (delayDistribution == DelayDistribution.UNIFORM && maxSleepTime < sleepTime) {
+            return "The max delay should be greater than or equal to the delay for the uniform distribution";
+        }
+        if (delayDistribution == DelayDistribution.HISTOGRAM && delayHistogramFile == null) {
+            return "The delay histogram file is required for the histogram distribution";
+        }
+        return null;
+    }
+
+    private String validateAggregation() {
+        if (responseFile != null) {
+            return "The response file cannot be used in the blocking mode, with a request transformation or with " +
+                    "the compression";
+        }
+        if (http2 && (!ssl || !h2ContentAggregate)) {
+            return "The blocking mode, the request transformations and the compression support HTTP/2 only with SSL " +
+                    "and content aggregation";
+        }
+        if (compressionCacheSize < 0) {
+            return "The compression cache size cannot be negative";
+        }
+        for (ContentEncoding encoding : compression) {
+            if (!encoding.isAvailable()) {
+                return encoding + " content encoding is not available. Reason: " + encoding.unavailabilityReason();
+            }
+        }
+        if (blocking && (blockingWorkIterations <= 0 || blockingThreads <= 0)) {
+            return "Invalid blocking work iterations or threads";
+        }
+        return null;
+    }
+
+    private DelayScheduler createDelayScheduler() throws IOException {
+        if (delayDistribution == DelayDistribution.FIXED && sleepTime == 0) {
+            return null;
+        }
+        DelayHistogram histogram = delayDistribution == DelayDistribution.HISTOGRAM ?
+                DelayHistogram.load(delayHistogramFile.toPath()) : null;
+        return new DelayScheduler(delayDistribution, TimeUnit.MILLISECONDS.toNanos(sleepTime),
+                TimeUnit.MILLISECONDS.toNanos(maxSleepTime), histogram, TimeUnit.MILLISECONDS.toNanos(timerTick));
+    }
+
+    private void startServer() throws SSLException, CertificateException, InterruptedException, IOException {
+        Transport availableTransport = transport.orFallback();
+        if (availableTransport != transport) {
+            logger.warn("{} transport is not available. Using {} transport. Cause: {}", transport, availableTransport,
+                    String.valueOf(transport.unavailabilityCause()));
+            transport = availableTransport;
+        }
+        if (reusePort && transport.reusePortOption() == null) {
+            logger.warn("SO_REUSEPORT is not supported by {} transport. Binding a single server socket.", transport);
+            reusePort = false;
+        }
         logger.info("Echo HTTP/{} Server. Port: {}, Boss Threads: {}, Worker Threads: {}, SSL Enabled: {}" +
-                ", Sleep Time: {}ms", http2 ? "2.0" : "1.1", port, bossThreads, workerThreads, ssl, sleepTime);
+                ", Sleep Time: {}ms, Delay Distribution: {}, Transport: {}, Reuse Port: {}", http2 ? "2.0" : "1.1",
+                port, bossThreads, workerThreads, ssl, sleepTime, delayDistribution, transport, reusePort);
+        if (http2) {
+            logger.info("HTTP/2 Content Aggregate: {}, Max Concurrent Streams: {}, Initial Window Size: {}" +
+                            ", Max Content Length: {}", h2ContentAggregate,
+                    h2MaxConcurrentStreams > 0 ? h2MaxConcurrentStreams : "Unlimited", h2InitialWindowSize,
+                    maxContentLength);
+        }
         // Print Max Heap Size
         logger.info("Max Heap Size: {}MB", Runtime.getRuntime().maxMemory() / (1024 * 1024));
         // Print Netty Version
         Version version = Version.identify(this.getClass().getClassLoader()).values().iterator().next();
         logger.info("Netty Version: {}", version.artifactVersion());
+        if (responseFile != null) {
+            // Encode the fixed responses once
+            byte[] body = Files.readAllBytes(responseFile.toPath());
+            keepAliveResponse = FixedHttpResponseHandler.encodeResponse(body, responseContentType, true);
+            closeResponse = FixedHttpResponseHandler.encodeResponse(body, responseContentType, false);
+            logger.info("Response File: {}, Content Type: {}, Size: {} bytes", responseFile.getAbsolutePath(),
+                    responseContentType, body.length);
+        }
+        delayScheduler = createDelayScheduler();
+        if (blocking) {
+            blockingBackend = new BlockingBackend(transform, blockingWorkIterations, delayScheduler,
+                    virtualThreads, blockingThreads);
+        }
+        if (metricsPort > 0) {
+            metrics = new EchoMetrics();
+        }
+        responseCompressor = createResponseCompressor();
+        ByteBufAllocator allocator = allocatorType.allocator();
+        logger.info("Allocator: {}, Receive Buffer Size: {}, Write Buffer Water Mark: {}-{}, Backpressure: {}" +
+                        ", TCP No Delay: {}, Socket Send Buffer Size: {}, Socket Receive Buffer Size: {}",
+                allocatorType, fixedReceiveBufferSize > 0 ? fixedReceiveBufferSize : "Adaptive",
+                writeBufferLowWaterMark, writeBufferHighWaterMark, backpressure, tcpNoDelay,
+                socketSendBufferSize > 0 ? socketSendBufferSize : "Default",
+                socketReceiveBufferSize > 0 ? socketReceiveBufferSize : "Default");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            logAllocatorMetrics(allocator);
+            logCompressionCacheMetrics();
+            // The shutdown hook of Log4j is disabled to write the logs above
+            LogManager.shutdown();
+        }, "shutdown-hook"));
         // Configure the server.
-        EventLoopGroup bossGroup = new NioEventLoopGroup(bossThreads);
-        EventLoopGroup workerGroup = new NioEventLoopGroup(workerThreads);
+        EventLoopGroup bossGroup = transport.newEventLoopGroup(bossThreads);
+        EventLoopGroup workerGroup = transport.newEventLoopGroup(workerThreads);
         try {
             ServerBootstrap b = new ServerBootstrap();
             b.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .option(ChannelOption.SO_BACKLOG, 1024);
+                    .channel(transport.serverChannelClass())
+                    .option(ChannelOption.SO_BACKLOG, 1024)
+                    .option(ChannelOption.ALLOCATOR, allocator)
+                    .childOption(ChannelOption.ALLOCATOR, allocator)
+                    .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                            new WriteBufferWaterMark(writeBufferLowWaterMark, writeBufferHighWaterMark))
+                    .childOption(ChannelOption.TCP_NODELAY, tcpNoDelay);
+            if (reusePort) {
+                b.option(transport.reusePortOption(), true);
+            }
+            if (fixedReceiveBufferSize > 0) {
+                b.childOption(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(fixedReceiveBufferSize));
+            }
+            if (socketSendBufferSize > 0) {
+                b.childOption(ChannelOption.SO_SNDBUF, socketSendBufferSize);
+            }
+            if (socketReceiveBufferSize > 0) {
+                // The accepted sockets use the receive buffer size of the server socket
+                b.option(ChannelOption.SO_RCVBUF, socketReceiveBufferSize);
+            }
             b = http2 ? configureHttp2(b) : configureHttp1_1(b);
+            if (metrics != null || backpressure) {
+                b.childHandler(new ConnectionInitializer(metrics, backpressure, b.config().childHandler()));
+            }
 
             // Start the server.
             // Bind and start to accept incoming connections.
-            ChannelFuture f = b.bind(port).sync();
+            // With SO_REUSEPORT, each boss thread accepts connections using its own server socket.
+            int serverSockets = reusePort ? bossThreads : 1;
+            List<ChannelFuture> closeFutures = new ArrayList<>(serverSockets);
+            for (int i = 0; i < serverSockets; i++) {
+                closeFutures.add(b.bind(port).sync().channel().closeFuture());
+            }
+            if (metrics != null) {
+                startMetricsServer(bossGroup);
+            }
 
-            // Wait until the server socket is closed.
-            f.channel().closeFuture().sync();
+            // Wait until the server sockets are closed.
+            for (ChannelFuture closeFuture : closeFutures) {
+                closeFuture.sync();
+            }
         } finally {
             // Shut down all event loops to terminate all threads.
             bossGroup.shutdownGracefully();
             workerGroup.shutdownGracefully();
+            if (delayScheduler != null) {
+                delayScheduler.stop();
+            }
+            if (blockingBackend != null) {
+                blockingBackend.shutdown();
+            }
+            if (keepAliveResponse != null) {
+                keepAliveResponse.release();
+                closeResponse.release();
+            }
         }
     }
 
@@ -165,9 +478,22 @@ public final class EchoHttpServer {
                         if (sslCtx != null) {
                             p.addLast(sslCtx.newHandler(ch.alloc()));
                         }
-                        p.addLast(new HttpServerCodec());
-                        p.addLast("aggregator", new HttpObjectAggregator(maxContentLength));
-                        p.addLast(new EchoHttpServerHandler(sleepTime, false));
+                        p.addLast(keepAliveResponse != null ? new HttpRequestDecoder() : new HttpServerCodec());
+                        if (metrics != null) {
+                            p.addLast(new HttpMetricsHandler(metrics));
+                        }
+                        if (keepAliveResponse != null) {
+                            // The responses are already encoded
+                            p.addLast(new FixedHttpResponseHandler(keepAliveResponse, closeResponse, delayScheduler));
+                            return;
+                        }
+                        if (h1ContentAggregate || blockingBackend != null || transform != RequestTransform.NONE
+                                || responseCompressor != null) {
+                            p.addLast("aggregator", new HttpObjectAggregator(maxContentLength));
+                            p.addLast(newAggregatedHandler(false));
+                        } else {
+                            p.addLast(new EchoHttpStreamingServerHandler(delayScheduler, maxContentLength));
+                        }
                     }
                 });
     }
@@ -188,7 +514,91 @@ public final class EchoHttpServer {
         } else {
             sslCtx = null;
         }
-        return b.childHandler(new Http2ServerInitializer(sslCtx, sleepTime, h2ContentAggregate));
+        Http2Settings initialSettings = Http2Settings.defaultSettings().initialWindowSize(h2InitialWindowSize);
+        if (h2MaxConcurrentStreams > 0) {
+            initialSettings.maxConcurrentStreams(h2MaxConcurrentStreams);
+        }
+        return b.childHandler(new Http2ServerInitializer(sslCtx, delayScheduler, this::newAggregatedHandler, metrics,
+                h2ContentAggregate, maxContentLength, initialSettings));
+    }
+
+    private ChannelHandler newAggregatedHandler(boolean h2ContentAggregate) {
+        return blockingBackend != null ?
+                new BlockingEchoHttpServerHandler(blockingBackend, h2ContentAggregate, responseCompressor) :
+                new EchoHttpServerHandler(delayScheduler, h2ContentAggregate, transform, responseCompressor);
+    }
+
+    private ResponseCompressor createResponseCompressor() {
+        List<ContentEncoding> encodings = new ArrayList<>(compression.size());
+        for (ContentEncoding encoding : compression) {
+            // The availability of the encodings is validated with the arguments
+            if (!encodings.contains(encoding)) {
+                encodings.add(encoding);
+            }
+        }
+        if (encodings.isEmpty()) {
+            return null;
+        }
+        CompressedContentCache cache = compressionCacheSize > 0 ? new CompressedContentCache(compressionCacheSize) :
+                null;
+        if (metrics != null) {
+            metrics.setCompressionCache(cache);
+        }
+        logger.info("Compression: {}, Compression Cache Size: {}", encodings,
+                cache != null ? compressionCacheSize : "Disabled");
+        return new ResponseCompressor(encodings, cache);
+    }
+
+    private void logCompressionCacheMetrics() {
+        CompressedContentCache cache = responseCompressor != null ? responseCompressor.getCache() : null;
+        if (cache != null) {
+            logger.info("Compression Cache Metrics. Hits: {}, Misses: {}, Evictions: {}, Entries: {}, Size: {}",
+                    cache.getHits(), cache.getMisses(), cache.getEvictions(), cache.getEntries(), cache.getSize());
+        }
+    }
+
+    private static void logAllocatorMetrics(ByteBufAllocator allocator) {
+        if (allocator instanceof PooledByteBufAllocator) {
+            PooledByteBufAllocatorMetric metric = ((PooledByteBufAllocator) allocator).metric();
+            long allocations = 0;
+            long activeAllocations = 0;
+            for (PoolArenaMetric arena : metric.directArenas()) {
+                allocations += arena.numAllocations();
+                activeAllocations += arena.numActiveAllocations();
+            }
+            for (PoolArenaMetric arena : metric.heapArenas()) {
+                allocations += arena.numAllocations();
+                activeAllocations += arena.numActiveAllocations();
+            }
+            logger.info("Pooled Allocator Metrics. Heap Arenas: {}, Direct Arenas: {}, Thread Local Caches: {}" +
+                            ", Chunk Size: {}, Used Heap Memory: {}, Used Direct Memory: {}, Allocations: {}" +
+                            ", Active Allocations: {}", metric.numHeapArenas(), metric.numDirectArenas(),
+                    metric.numThreadLocalCaches(), metric.chunkSize(), metric.usedHeapMemory(),
+                    metric.usedDirectMemory(), allocations, activeAllocations);
+        } else if (allocator instanceof ByteBufAllocatorMetricProvider) {
+            ByteBufAllocatorMetric metric = ((ByteBufAllocatorMetricProvider) allocator).metric();
+            logger.info("Allocator Metrics. Used Heap Memory: {}, Used Direct Memory: {}", metric.usedHeapMemory(),
+                    metric.usedDirectMemory());
+        }
+    }
+
+    private void startMetricsServer(EventLoopGroup group) throws InterruptedException {
+        new ServerBootstrap().group(group)
+                .channel(transport.serverChannelClass())
+                .childHandler(createMetricsServerInitializer(new MetricsServerHandler(metrics)))
+                .bind(metricsPort).sync();
+        logger.info("Serving metrics at http://localhost:{}/metrics", metricsPort);
+    }
+
+    private static ChannelInitializer<SocketChannel> createMetricsServerInitializer(
+            MetricsServerHandler metricsServerHandler) {
+        return new ChannelInitializer<SocketChannel>() {
+            @Override
+            public void initChannel(SocketChannel ch) {
+                ch.pipeline().addLast(new HttpServerCodec(), new HttpObjectAggregator(64 * 1024),
+                        metricsServerHandler);
+            }
+        };
     }
 
     private SslContextBuilder createSslContextBuilder() throws CertificateException {
@@ -15,21 +15,25 @@
  */
 package org.wso2.performance.common.netty.echo;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
-import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http2.HttpConversionUtil;
 
-import java.util.concurrent.TimeUnit;
-
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
@@ -38,41 +42,65 @@ import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
  * For http/2 echo server with content aggregation, this receives a {@link FullHttpRequest},
  * which has been converted by a {@link io.netty.handler.codec.http2.InboundHttp2ToHttpAdapter} before it arrives here.
  * For further details, check {@link Http2OrHttpHandler} where the pipeline is setup.
+ * <p>
+ * This handler keeps the delayed HTTP/1.1 responses to write them in order and cannot be shared.
  */
-@Sharable
 public class EchoHttpServerHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
 
-    private long sleepTime;
-    private boolean h2ContentAggregate;
+    private final DelayScheduler delayScheduler;
+    private final boolean h2ContentAggregate;
+    private final RequestTransform transform;
+    private final ResponseCompressor compressor;
+    // Writes of the delayed HTTP/1.1 responses
+    private final DelayedWriteQueue delayedWrites;
 
-    EchoHttpServerHandler(long sleepTime, boolean h2ContentAggregate) {
-        this.sleepTime = sleepTime;
+    /**
+     * Create a handler.
+     *
+     * @param delayScheduler     The scheduler to delay the responses or {@code null} to respond without a delay
+     * @param h2ContentAggregate Whether the requests are HTTP/2 requests converted to HTTP/1.1
+     * @param transform          The transformation of the request content to create the response content
+     * @param compressor         The compressor of the responses or {@code null} if the responses are not compressed
+     */
+    EchoHttpServerHandler(DelayScheduler delayScheduler, boolean h2ContentAggregate, RequestTransform transform,
+                          ResponseCompressor compressor) {
+        this.delayScheduler = delayScheduler;
         this.h2ContentAggregate = h2ContentAggregate;
+        this.transform = transform;
+        this.compressor = compressor;
+        this.delayedWrites = delayScheduler != null ? new DelayedWriteQueue(delayScheduler) : null;
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
         if (h2ContentAggregate) {
             String streamId = request.headers().get(HttpConversionUtil.ExtensionHeaderNames.STREAM_ID.text());
-            FullHttpResponse response = buildFullHttpResponse(request);
+            FullHttpResponse response = buildFullHttpResponse(ctx.alloc(), request, transform, compressor);
             response.headers().set(HttpConversionUtil.ExtensionHeaderNames.STREAM_ID.text(), streamId);
-            ctx.writeAndFlush(response);
+            if (delayScheduler != null) {
+                // HTTP/2 streams do not depend on each other
+                delayScheduler.schedule(ctx, delayScheduler.nextDeadline(Long.MIN_VALUE),
+                        () -> ctx.writeAndFlush(response));
+            } else {
+                ctx.writeAndFlush(response);
+            }
         } else {
             // Decide whether to close the connection or not
             boolean keepAlive = HttpUtil.isKeepAlive(request);
             // Build the response object
-            FullHttpResponse response = buildFullHttpResponse(request);
+            FullHttpResponse response = buildFullHttpResponse(ctx.alloc(), request, transform, compressor);
             if (keepAlive) {
                 // Add keep alive header
                 response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
             }
-            if (sleepTime > 0) {
-                ctx.executor().schedule(() -> {
+            if (delayedWrites != null) {
+                delayedWrites.nextResponse();
+                delayedWrites.add(ctx, () -> {
                     ChannelFuture f = ctx.writeAndFlush(response);
                     if (!keepAlive) {
                         f.addListener(ChannelFutureListener.CLOSE);
                     }
-                }, sleepTime, TimeUnit.MILLISECONDS);
+                });
             } else {
                 ChannelFuture f = ctx.writeAndFlush(response);
                 if (!keepAlive) {
@@ -82,13 +110,38 @@ public class EchoHttpServerHandler extends SimpleChannelInboundHandler<FullHttpR
         }
     }
 
-    private static FullHttpResponse buildFullHttpResponse(FullHttpRequest request) {
-        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, OK, request.content().copy());
-        String contentType = request.headers().get(HttpHeaderNames.CONTENT_TYPE);
-        if (contentType != null) {
-            response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+    /**
+     * Build the response. A "400 Bad Request" response is built if the request content cannot be transformed. The
+     * response is compressed if a compressor is given and the client accepts a supported encoding.
+     */
+    static FullHttpResponse buildFullHttpResponse(ByteBufAllocator alloc, FullHttpRequest request,
+                                                  RequestTransform transform, ResponseCompressor compressor) {
+        HttpHeaders headers = new DefaultHttpHeaders();
+        FullHttpResponse response;
+        try {
+            // The request content is released after writing the response, if it is echoed
+            ByteBuf content = transform.apply(alloc, request.content(), headers);
+            response = new DefaultFullHttpResponse(HTTP_1_1, OK, content, headers, EmptyHttpHeaders.INSTANCE);
+            String contentType = request.headers().get(HttpHeaderNames.CONTENT_TYPE);
+            if (contentType != null) {
+                response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+            }
+        } catch (IllegalArgumentException e) {
+            return buildBadRequestResponse();
         }
         response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+        if (compressor != null) {
+            response = compressor.compress(request.headers().get(HttpHeaderNames.ACCEPT_ENCODING), response);
+        }
+        return response;
+    }
+
+    /**
+     * Build the response for a request with content, which cannot be transformed.
+     */
+    static FullHttpResponse buildBadRequestResponse() {
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, BAD_REQUEST, Unpooled.EMPTY_BUFFER);
+        HttpUtil.setContentLength(response, 0);
         return response;
     }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+/**
+ * Handler implementation for the HTTP/1.1 echo server without content aggregation. Each {@link HttpContent} received
+ * is written back as it is without copying the content. The response has the same Content-Length as the request and
+ * chunked transfer encoding is used when the request does not have a Content-Length.
+ * <p>
+ * A 413 response is sent and the connection is closed if the Content-Length of a request exceeds the max content
+ * length. The connection is closed if the received content of a chunked request exceeds the max content length or if
+ * a malformed chunk is received, since the response headers have already been written. The error responses and the
+ * {@code 100 Continue} responses are written in order with the delayed responses.
+ * <p>
+ * This handler keeps the state of the current request and cannot be shared.
+ */
+public class EchoHttpStreamingServerHandler extends ChannelInboundHandlerAdapter {
+
+    // Writes of the delayed responses
+    private final DelayedWriteQueue delayedWrites;
+    private final int maxContentLength;
+    private boolean keepAlive;
+    // Whether the content of the current request should be echoed
+    private boolean echoContent;
+    // Content bytes received for the current request
+    private long receivedBytes;
+    // Whether the connection is closed after the pending writes
+    private boolean closing;
+
+    /**
+     * Create a handler.
+     *
+     * @param delayScheduler   The scheduler to delay the responses or {@code null} to respond without a delay
+     * @param maxContentLength The max content length of a request
+     */
+    EchoHttpStreamingServerHandler(DelayScheduler delayScheduler, int maxContentLength) {
+        this.delayedWrites = delayScheduler != null ? new DelayedWriteQueue(delayScheduler) : null;
+        this.maxContentLength = maxContentLength;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (closing) {
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+        if (msg instanceof HttpRequest) {
+            onRequest(ctx, (HttpRequest) msg);
+        }
+        if (msg instanceof HttpContent) {
+            onContent(ctx, (HttpContent) msg);
+        } else {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        ctx.flush();
+    }
+
+    private void onRequest(ChannelHandlerContext ctx, HttpRequest request) {
+        if (request.decoderResult().isFailure()) {
+            writeErrorAndClose(ctx, BAD_REQUEST);
+            return;
+        }
+        if (HttpUtil.getContentLength(request, -1L) > maxContentLength) {
+            writeErrorAndClose(ctx, REQUEST_ENTITY_TOO_LARGE);
+            return;
+        }
+        echoContent = true;
+        receivedBytes = 0;
+        keepAlive = HttpUtil.isKeepAlive(request);
+        if (HttpUtil.is100ContinueExpected(request)) {
+            // The interim response is written after the previous response
+            write(ctx, new DefaultFullHttpResponse(HTTP_1_1, CONTINUE), false);
+        }
+        if (delayedWrites != null) {
+            delayedWrites.nextResponse();
+        }
+        HttpResponse response = new DefaultHttpResponse(HTTP_1_1, OK);
+        String contentType = request.headers().get(HttpHeaderNames.CONTENT_TYPE);
+        if (contentType != null) {
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        }
+        if (HttpUtil.isContentLengthSet(request)) {
+            HttpUtil.setContentLength(response, HttpUtil.getContentLength(request));
+        } else if (HttpUtil.isTransferEncodingChunked(request)) {
+            HttpUtil.setTransferEncodingChunked(response, true);
+        } else {
+            // There is no content
+            HttpUtil.setContentLength(response, 0);
+        }
+        if (keepAlive) {
+            // Add keep alive header
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        }
+        write(ctx, response, false);
+    }
+
+    private void onContent(ChannelHandlerContext ctx, HttpContent content) {
+        if (content.decoderResult().isFailure()) {
+            // The request is malformed. The response headers may have already been written.
+            content.release();
+            closeAfterPendingWrites(ctx);
+            return;
+        }
+        if (!echoContent) {
+            content.release();
+            return;
+        }
+        receivedBytes += content.content().readableBytes();
+        if (receivedBytes > maxContentLength) {
+            content.release();
+            // The response headers have already been written
+            closeAfterPendingWrites(ctx);
+            return;
+        }
+        // The content is released after writing
+        boolean last = content instanceof LastHttpContent;
+        write(ctx, content, last);
+        if (last) {
+            echoContent = false;
+        }
+    }
+
+    /**
+     * Write an error response after the pending responses and close the connection. The remaining messages are
+     * discarded.
+     */
+    private void writeErrorAndClose(ChannelHandlerContext ctx, HttpResponseStatus status) {
+        echoContent = false;
+        keepAlive = false;
+        closing = true;
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, status);
+        HttpUtil.setContentLength(response, 0);
+        write(ctx, response, true);
+    }
+
+    /**
+     * Close the connection after the pending writes. The remaining messages are discarded.
+     */
+    private void closeAfterPendingWrites(ChannelHandlerContext ctx) {
+        echoContent = false;
+        closing = true;
+        if (delayedWrites != null) {
+            delayedWrites.add(ctx, ctx::close);
+        } else {
+            ctx.flush().close();
+        }
+    }
+
+    private void write(ChannelHandlerContext ctx, Object msg, boolean last) {
+        boolean close = last && !keepAlive;
+        if (delayedWrites != null) {
+            // The delayed messages are written in the same order
+            delayedWrites.add(ctx, () -> {
+                ChannelFuture f = ctx.writeAndFlush(msg);
+                if (close) {
+                    f.addListener(ChannelFutureListener.CLOSE);
+                }
+            });
+        } else if (close) {
+            ctx.writeAndFlush(msg).addListener(ChannelFutureListener.CLOSE);
+        } else {
+            ctx.write(msg);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        ctx.close();
+    }
+}
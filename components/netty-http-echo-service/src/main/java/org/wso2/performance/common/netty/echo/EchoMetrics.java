@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Metrics of the echo server. The metrics are kept for each event loop and written in the Prometheus text format.
+ */
+final class EchoMetrics {
+
+    private static final double[] QUANTILES = {0.5, 0.75, 0.9, 0.95, 0.99, 0.999};
+
+    private final ConcurrentMap<EventExecutor, EventLoopMetrics> eventLoops = new ConcurrentHashMap<>();
+    private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    // Processing times of all event loops in microseconds
+    private final Histogram processingTimes = new Histogram(3);
+    private volatile CompressedContentCache compressionCache;
+
+    /**
+     * Get the metrics of the event loop of a channel. This method should be called in the event loop.
+     */
+    EventLoopMetrics eventLoop(Channel channel) {
+        return eventLoops.computeIfAbsent(channel.eventLoop(),
+                eventLoop -> new EventLoopMetrics(Thread.currentThread().getName()));
+    }
+
+    /**
+     * Add a channel to find the pending write bytes. The channel is removed when it is closed.
+     */
+    void addChannel(Channel channel) {
+        channels.add(channel);
+    }
+
+    /**
+     * Set the cache of the compressed responses to write the cache metrics.
+     */
+    void setCompressionCache(CompressedContentCache compressionCache) {
+        this.compressionCache = compressionCache;
+    }
+
+    /**
+     * Write the metrics in the Prometheus text format.
+     *
+     * @return The metrics
+     */
+    synchronized String scrape() {
+        List<EventLoopMetrics> metrics = new ArrayList<>(eventLoops.values());
+        metrics.sort(Comparator.comparing(EventLoopMetrics::getName));
+        StringBuilder sb = new StringBuilder(4096);
+        appendCounter(sb, "echo_requests_total", "Requests received", metrics, EventLoopMetrics::getRequests);
+        appendCounter(sb, "echo_responses_total", "Responses written", metrics, EventLoopMetrics::getResponses);
+        appendCounter(sb, "echo_aborted_requests_total", "Requests not responded before closing the connection",
+                metrics, EventLoopMetrics::getAbortedRequests);
+        appendGauge(sb, "echo_requests_in_flight", "Requests being processed", metrics,
+                EventLoopMetrics::getInFlightRequests);
+        appendCounter(sb, "echo_received_bytes_total", "Bytes received", metrics,
+                EventLoopMetrics::getReceivedBytes);
+        appendCounter(sb, "echo_sent_bytes_total", "Bytes sent", metrics, EventLoopMetrics::getSentBytes);
+        appendGauge(sb, "echo_connections", "Open connections", metrics, EventLoopMetrics::getConnections);
+        appendCounter(sb, "echo_unwritable_events_total",
+                "Number of times a connection became unwritable due to pending writes", metrics,
+                EventLoopMetrics::getUnwritableEvents);
+        appendGauge(sb, "echo_unwritable_connections", "Connections, which are not writable due to pending writes",
+                metrics, EventLoopMetrics::getUnwritableConnections);
+
+        appendHeader(sb, "echo_pending_write_bytes", "Bytes waiting to be written to the connections", "gauge");
+        sb.append("echo_pending_write_bytes ").append(pendingWriteBytes()).append('\n');
+
+        long count = 0;
+        long sum = 0;
+        for (EventLoopMetrics eventLoopMetrics : metrics) {
+            eventLoopMetrics.addProcessingTimes(processingTimes);
+            count += eventLoopMetrics.getResponses();
+            sum += eventLoopMetrics.getProcessingTime();
+        }
+        appendHeader(sb, "echo_processing_time_seconds", "Time from receiving a request to writing the response",
+                "summary");
+        for (double quantile : QUANTILES) {
+            sb.append("echo_processing_time_seconds{quantile=\"").append(quantile).append("\"} ")
+                    .append(seconds(processingTimes.getValueAtPercentile(quantile * 100))).append('\n');
+        }
+        sb.append("echo_processing_time_seconds_sum ").append(seconds(sum)).append('\n');
+        sb.append("echo_processing_time_seconds_count ").append(count).append('\n');
+        appendHeader(sb, "echo_processing_time_max_seconds",
+                "Max time from receiving a request to writing the response", "gauge");
+        sb.append("echo_processing_time_max_seconds ").append(seconds(processingTimes.getMaxValue())).append('\n');
+
+        CompressedContentCache cache = compressionCache;
+        if (cache != null) {
+            appendHeader(sb, "echo_compression_cache_hits_total", "Compressed responses found in the cache", "counter");
+            sb.append("echo_compression_cache_hits_total ").append(cache.getHits()).append('\n');
+            appendHeader(sb, "echo_compression_cache_misses_total", "Responses compressed due to a cache miss",
+                    "counter");
+            sb.append("echo_compression_cache_misses_total ").append(cache.getMisses()).append('\n');
+            appendHeader(sb, "echo_compression_cache_evictions_total", "Compressed responses evicted from the cache",
+                    "counter");
+            sb.append("echo_compression_cache_evictions_total ").append(cache.getEvictions()).append('\n');
+            appendHeader(sb, "echo_compression_cache_entries", "Compressed responses in the cache", "gauge");
+            sb.append("echo_compression_cache_entries ").append(cache.getEntries()).append('\n');
+            appendHeader(sb, "echo_compression_cache_bytes",
+                    "Size of the uncompressed and compressed contents in the cache", "gauge");
+            sb.append("echo_compression_cache_bytes ").append(cache.getSize()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private long pendingWriteBytes() {
+        long bytes = 0;
+        for (Channel channel : channels) {
+            ChannelOutboundBuffer outboundBuffer = channel.unsafe().outboundBuffer();
+            if (outboundBuffer != null) {
+                bytes += outboundBuffer.totalPendingWriteBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private static double seconds(long micros) {
+        return micros / 1_000_000D;
+    }
+
+    private static void appendHeader(StringBuilder sb, String name, String help, String type) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void appendCounter(StringBuilder sb, String name, String help, List<EventLoopMetrics> metrics,
+                                      ToLongFunction<EventLoopMetrics> value) {
+        append(sb, name, help, "counter", metrics, value);
+    }
+
+    private static void appendGauge(StringBuilder sb, String name, String help, List<EventLoopMetrics> metrics,
+                                    ToLongFunction<EventLoopMetrics> value) {
+        append(sb, name, help, "gauge", metrics, value);
+    }
+
+    private static void append(StringBuilder sb, String name, String help, String type,
+                               List<EventLoopMetrics> metrics, ToLongFunction<EventLoopMetrics> value) {
+        appendHeader(sb, name, help, type);
+        for (EventLoopMetrics eventLoopMetrics : metrics) {
+            sb.append(name).append("{event_loop=\"").append(eventLoopMetrics.getName()).append("\"} ")
+                    .append(value.applyAsLong(eventLoopMetrics)).append('\n');
+        }
+    }
+}
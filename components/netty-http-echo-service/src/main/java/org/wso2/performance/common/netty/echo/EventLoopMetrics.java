@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SingleWriterRecorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Metrics of an event loop. The metrics are only updated by the event loop thread. Therefore, the values are updated
+ * without atomic instructions and the metrics can be read by any thread.
+ */
+final class EventLoopMetrics {
+
+    private static final AtomicLongFieldUpdater<EventLoopMetrics> REQUESTS =
+            AtomicLongFieldUpdater.newUpdater(EventLoopMetrics.class, "requests");
+    private static final AtomicLongFieldUpdater<EventLoopMetrics> RESPONSES =
+            AtomicLongFieldUpdater.newUpdater(EventLoopMetrics.class, "responses");
+    private static final AtomicLongFieldUpdater<EventLoopMetrics> ABORTED_REQUESTS =
+            AtomicLongFieldUpdater.newUpdater(EventLoopMetrics.class, "abortedRequests");
+    private static final AtomicLongFieldUpdater<EventLoopMetrics> PROCESSING_TIME =
+            AtomicLongFieldUpdater.newUpdater(EventLoopMetrics.class, "processingTime");
+    private static final AtomicLongFieldUpdater<EventLoopMetrics> RECEIVED_BYTES =
+            AtomicLongFieldUpdater.newUpdater(EventLoopMetrics.class, "receivedBytes");
+    private static final AtomicLongFieldUpdater<EventLoopMetrics> SENT_BYTES =
+            AtomicLongFieldUpdater.newUpdater(EventLoopMetrics.class, "sentBytes");
+    private static final AtomicLongFieldUpdater<EventLoopMetrics> CONNECTIONS =
+            AtomicLongFieldUpdater.newUpdater(EventLoopMetrics.class, "connections");
+    private static final AtomicLongFieldUpdater<EventLoopMetrics> UNWRITABLE_EVENTS =
+            AtomicLongFieldUpdater.newUpdater(EventLoopMetrics.class, "unwritableEvents");
+    private static final AtomicLongFieldUpdater<EventLoopMetrics> UNWRITABLE_CONNECTIONS =
+            AtomicLongFieldUpdater.newUpdater(EventLoopMetrics.class, "unwritableConnections");
+
+    private final String name;
+    // Processing times in microseconds
+    private final SingleWriterRecorder processingTimeRecorder = new SingleWriterRecorder(3);
+    private Histogram intervalHistogram;
+
+    private volatile long requests;
+    private volatile long responses;
+    private volatile long abortedRequests;
+    // Total processing time in microseconds
+    private volatile long processingTime;
+    private volatile long receivedBytes;
+    private volatile long sentBytes;
+    private volatile long connections;
+    private volatile long unwritableEvents;
+    private volatile long unwritableConnections;
+
+    EventLoopMetrics(String name) {
+        this.name = name;
+    }
+
+    private void add(AtomicLongFieldUpdater<EventLoopMetrics> updater, long delta) {
+        // Only the event loop thread updates the value
+        updater.lazySet(this, updater.get(this) + delta);
+    }
+
+    void requestStarted() {
+        add(REQUESTS, 1);
+    }
+
+    /**
+     * Record a response, which is written to the channel.
+     *
+     * @param processingTimeNanos The time from receiving the request to writing the response
+     */
+    void responseCompleted(long processingTimeNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(processingTimeNanos);
+        add(RESPONSES, 1);
+        add(PROCESSING_TIME, micros);
+        processingTimeRecorder.recordValue(micros);
+    }
+
+    /**
+     * Record requests, which will not be responded since the connection is closed.
+     */
+    void requestsAborted(int count) {
+        add(ABORTED_REQUESTS, count);
+    }
+
+    void bytesReceived(long bytes) {
+        add(RECEIVED_BYTES, bytes);
+    }
+
+    void bytesSent(long bytes) {
+        add(SENT_BYTES, bytes);
+    }
+
+    void connectionOpened() {
+        add(CONNECTIONS, 1);
+    }
+
+    void connectionClosed() {
+        add(CONNECTIONS, -1);
+    }
+
+    void writabilityChanged(boolean writable) {
+        if (writable) {
+            add(UNWRITABLE_CONNECTIONS, -1);
+        } else {
+            add(UNWRITABLE_EVENTS, 1);
+            add(UNWRITABLE_CONNECTIONS, 1);
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    long getRequests() {
+        return requests;
+    }
+
+    long getResponses() {
+        return responses;
+    }
+
+    long getAbortedRequests() {
+        return abortedRequests;
+    }
+
+    long getInFlightRequests() {
+        // Read the completed requests first to avoid a negative value
+        long completed = responses + abortedRequests;
+        return requests - completed;
+    }
+
+    long getProcessingTime() {
+        return processingTime;
+    }
+
+    long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    long getSentBytes() {
+        return sentBytes;
+    }
+
+    long getConnections() {
+        return connections;
+    }
+
+    long getUnwritableEvents() {
+        return unwritableEvents;
+    }
+
+    long getUnwritableConnections() {
+        return unwritableConnections;
+    }
+
+    /**
+     * Add the processing times recorded after the previous call to the given histogram. This method should not be
+     * called concurrently.
+     */
+    void addProcessingTimes(Histogram histogram) {
+        intervalHistogram = processingTimeRecorder.getIntervalHistogram(intervalHistogram);
+        histogram.add(intervalHistogram);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+
+import java.nio.charset.StandardCharsets;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.CONTINUE;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+/**
+ * Handler implementation for the HTTP/1.1 server, which sends a fixed response for every request. The status line,
+ * headers and body are encoded once at startup and a retained duplicate of the encoded response is written for each
+ * request. Therefore the pipeline should only have a request decoder. A malformed request gets a pre-encoded 400
+ * response and the connection is closed. A request expecting {@code 100-continue} gets a pre-encoded
+ * {@code 100 Continue} response before the fixed response.
+ * <p>
+ * This handler keeps the state of the current request and cannot be shared.
+ */
+public class FixedHttpResponseHandler extends ChannelInboundHandlerAdapter {
+
+    private static final ByteBuf BAD_REQUEST_RESPONSE = Unpooled.unreleasableBuffer(
+            encodeResponse(BAD_REQUEST, new byte[0], null, false));
+    private static final ByteBuf CONTINUE_RESPONSE = Unpooled.unreleasableBuffer(Unpooled.directBuffer()
+            .writeBytes((HTTP_1_1 + " " + CONTINUE + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII)).asReadOnly());
+
+    private final ByteBuf keepAliveResponse;
+    private final ByteBuf closeResponse;
+    // Writes of the delayed responses
+    private final DelayedWriteQueue delayedWrites;
+    private boolean keepAlive;
+
+    /**
+     * Create a handler.
+     *
+     * @param keepAliveResponse The response to send when the connection is kept alive
+     * @param closeResponse     The response to send before closing the connection
+     * @param delayScheduler    The scheduler to delay the responses or {@code null} to respond without a delay
+     */
+    FixedHttpResponseHandler(ByteBuf keepAliveResponse, ByteBuf closeResponse, DelayScheduler delayScheduler) {
+        this.keepAliveResponse = keepAliveResponse;
+        this.closeResponse = closeResponse;
+        this.delayedWrites = delayScheduler != null ? new DelayedWriteQueue(delayScheduler) : null;
+    }
+
+    /**
+     * Encode a response with the given body into a read-only direct buffer.
+     *
+     * @param body        The response body
+     * @param contentType The content type of the body
+     * @param keepAlive   Whether the connection is kept alive
+     * @return The encoded response, which should be released when the server is stopped
+     */
+    static ByteBuf encodeResponse(byte[] body, String contentType, boolean keepAlive) {
+        return encodeResponse(OK, body, contentType, keepAlive);
+    }
+
+    private static ByteBuf encodeResponse(HttpResponseStatus status, byte[] body, String contentType,
+                                          boolean keepAlive) {
+        StringBuilder head = new StringBuilder(128);
+        head.append(HTTP_1_1).append(' ').append(status).append("\r\n");
+        if (contentType != null) {
+            head.append(HttpHeaderNames.CONTENT_TYPE).append(": ").append(contentType).append("\r\n");
+        }
+        head.append(HttpHeaderNames.CONTENT_LENGTH).append(": ").append(body.length).append("\r\n");
+        head.append(HttpHeaderNames.CONNECTION).append(": ")
+                .append(keepAlive ? HttpHeaderValues.KEEP_ALIVE : HttpHeaderValues.CLOSE).append("\r\n\r\n");
+        byte[] headBytes = head.toString().getBytes(StandardCharsets.US_ASCII);
+        ByteBuf response = Unpooled.directBuffer(headBytes.length + body.length);
+        response.writeBytes(headBytes).writeBytes(body);
+        return response.asReadOnly();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        try {
+            if (msg instanceof HttpRequest) {
+                HttpRequest request = (HttpRequest) msg;
+                if (request.decoderResult().isFailure()) {
+                    // The decoder discards the remaining input
+                    write(ctx, BAD_REQUEST_RESPONSE.duplicate(), true);
+                    return;
+                }
+                keepAlive = HttpUtil.isKeepAlive(request);
+                if (HttpUtil.is100ContinueExpected(request)) {
+                    writeContinue(ctx);
+                }
+            }
+            if (msg instanceof LastHttpContent) {
+                // Respond after reading the full request
+                boolean close = !keepAlive;
+                write(ctx, close ? closeResponse.retainedDuplicate() : keepAliveResponse.retainedDuplicate(), close);
+            }
+        } finally {
+            if (msg instanceof HttpContent) {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        ctx.flush();
+    }
+
+    private void writeContinue(ChannelHandlerContext ctx) {
+        ByteBuf response = CONTINUE_RESPONSE.duplicate();
+        if (delayedWrites != null) {
+            // The interim response is written after the previous response
+            delayedWrites.add(ctx, () -> ctx.writeAndFlush(response));
+        } else {
+            ctx.write(response);
+        }
+    }
+
+    private void write(ChannelHandlerContext ctx, ByteBuf response, boolean close) {
+        if (delayedWrites != null) {
+            delayedWrites.nextResponse();
+            delayedWrites.add(ctx, () -> {
+                ChannelFuture f = ctx.writeAndFlush(response);
+                if (close) {
+                    f.addListener(ChannelFutureListener.CLOSE);
+                }
+            });
+        } else if (close) {
+            ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        } else {
+            ctx.write(response);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        ctx.close();
+    }
+}
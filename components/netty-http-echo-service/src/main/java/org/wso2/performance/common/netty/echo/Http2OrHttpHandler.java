@@ -23,6 +23,7 @@ import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http2.DefaultHttp2Connection;
 import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2Settings;
 import io.netty.handler.codec.http2.HttpToHttp2ConnectionHandlerBuilder;
 import io.netty.handler.codec.http2.InboundHttp2ToHttpAdapter;
 import io.netty.handler.codec.http2.InboundHttp2ToHttpAdapterBuilder;
@@ -35,14 +36,23 @@ import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
  */
 public class Http2OrHttpHandler extends ApplicationProtocolNegotiationHandler {
 
-    private static final int MAX_CONTENT_LENGTH = 1024 * 100;
-    private final long sleepTime;
+    private final DelayScheduler delayScheduler;
+    private final AggregatedHandlerFactory aggregatedHandlerFactory;
+    private final EchoMetrics metrics;
     private final boolean h2ContentAggregate;
+    private final int maxContentLength;
+    private final Http2Settings initialSettings;
 
-    Http2OrHttpHandler(long sleepTime, boolean h2ContentAggregate) {
+    Http2OrHttpHandler(DelayScheduler delayScheduler, AggregatedHandlerFactory aggregatedHandlerFactory,
+                       EchoMetrics metrics, boolean h2ContentAggregate, int maxContentLength,
+                       Http2Settings initialSettings) {
         super(ApplicationProtocolNames.HTTP_1_1);
-        this.sleepTime = sleepTime;
+        this.delayScheduler = delayScheduler;
+        this.aggregatedHandlerFactory = aggregatedHandlerFactory;
+        this.metrics = metrics;
         this.h2ContentAggregate = h2ContentAggregate;
+        this.maxContentLength = maxContentLength;
+        this.initialSettings = initialSettings;
     }
 
     @Override
@@ -54,24 +64,36 @@ public class Http2OrHttpHandler extends ApplicationProtocolNegotiationHandler {
                 InboundHttp2ToHttpAdapter listener = new InboundHttp2ToHttpAdapterBuilder(connection)
                         .propagateSettings(true)
                         .validateHttpHeaders(false)
-                        .maxContentLength(MAX_CONTENT_LENGTH).build();
+                        .maxContentLength(maxContentLength).build();
                 ctx.pipeline().addLast(new HttpToHttp2ConnectionHandlerBuilder()
+                        .initialSettings(initialSettings)
                         .frameListener(listener)
                         .connection(connection).build());
-                ctx.pipeline().addLast(new EchoHttpServerHandler(sleepTime, true));
+                addMetricsHandler(ctx);
+                ctx.pipeline().addLast(aggregatedHandlerFactory.newHandler(true));
             } else {
-                ctx.pipeline().addLast(Http2FrameCodecBuilder.forServer().build(), new EchoHttp2ServerHandler());
+                ctx.pipeline().addLast(Http2FrameCodecBuilder.forServer().initialSettings(initialSettings).build());
+                addMetricsHandler(ctx);
+                ctx.pipeline().addLast(new EchoHttp2ServerHandler(delayScheduler, maxContentLength,
+                        initialSettings.initialWindowSize()));
             }
             return;
         }
 
         if (ApplicationProtocolNames.HTTP_1_1.equals(protocol)) {
-            ctx.pipeline().addLast(new HttpServerCodec(),
-                    new HttpObjectAggregator(MAX_CONTENT_LENGTH),
-                    new EchoHttpServerHandler(sleepTime, false));
+            ctx.pipeline().addLast(new HttpServerCodec());
+            addMetricsHandler(ctx);
+            ctx.pipeline().addLast(new HttpObjectAggregator(maxContentLength),
+                    aggregatedHandlerFactory.newHandler(false));
             return;
         }
 
         throw new IllegalStateException("Unknown protocol: " + protocol);
     }
+
+    private void addMetricsHandler(ChannelHandlerContext ctx) {
+        if (metrics != null) {
+            ctx.pipeline().addLast(new HttpMetricsHandler(metrics));
+        }
+    }
 }
@@ -28,10 +28,12 @@ import io.netty.handler.codec.http.HttpMessage;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.HttpServerUpgradeHandler;
-import io.netty.handler.codec.http.HttpServerUpgradeHandler.UpgradeCodecFactory;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler.UpgradeCodec;
 import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2FrameCodec;
 import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
 import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2Settings;
 import io.netty.handler.ssl.SslContext;
 import io.netty.util.AsciiString;
 import io.netty.util.ReferenceCountUtil;
@@ -48,31 +50,36 @@ public class Http2ServerInitializer extends ChannelInitializer<SocketChannel> {
 
     private final SslContext sslCtx;
     private final int maxHttpContentLength;
-    private final long sleepTime;
+    private final DelayScheduler delayScheduler;
+    private final AggregatedHandlerFactory aggregatedHandlerFactory;
+    private final EchoMetrics metrics;
     private final boolean h2ContentAggregate;
+    private final Http2Settings initialSettings;
 
-    private static final UpgradeCodecFactory upgradeCodecFactory = protocol -> {
-        if (AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)) {
-            return new Http2ServerUpgradeCodec(
-                    Http2FrameCodecBuilder.forServer().build(), new EchoHttp2ServerHandler());
-        } else {
-            return null;
-        }
-    };
-
-    Http2ServerInitializer(SslContext sslCtx, long sleepTime, boolean h2ContentAggregate) {
-        this(sslCtx, sleepTime, h2ContentAggregate, 16 * 1024);
-    }
-
-    private Http2ServerInitializer(SslContext sslCtx, long sleepTime, boolean h2ContentAggregate,
-                                   int maxHttpContentLength) {
+    /**
+     * Create an initializer.
+     *
+     * @param sslCtx                   The SSL context or {@code null} to use cleartext upgrade
+     * @param delayScheduler           The scheduler to delay the responses or {@code null} to respond without a delay
+     * @param aggregatedHandlerFactory The factory to create the handlers for the aggregated requests
+     * @param metrics                  The server metrics or {@code null} if the metrics are not recorded
+     * @param h2ContentAggregate       Whether to aggregate the HTTP/2 content when the protocol is negotiated with TLS
+     * @param maxHttpContentLength     The max content length of a request
+     * @param initialSettings          The HTTP/2 settings sent to the clients. The settings are not modified.
+     */
+    Http2ServerInitializer(SslContext sslCtx, DelayScheduler delayScheduler,
+                           AggregatedHandlerFactory aggregatedHandlerFactory, EchoMetrics metrics,
+                           boolean h2ContentAggregate, int maxHttpContentLength, Http2Settings initialSettings) {
         if (maxHttpContentLength < 0) {
             throw new IllegalArgumentException("maxHttpContentLength (expected >= 0): " + maxHttpContentLength);
         }
         this.sslCtx = sslCtx;
         this.maxHttpContentLength = maxHttpContentLength;
-        this.sleepTime = sleepTime;
+        this.delayScheduler = delayScheduler;
+        this.aggregatedHandlerFactory = aggregatedHandlerFactory;
+        this.metrics = metrics;
         this.h2ContentAggregate = h2ContentAggregate;
+        this.initialSettings = initialSettings;
     }
 
     @Override
@@ -84,11 +91,26 @@ public class Http2ServerInitializer extends ChannelInitializer<SocketChannel> {
         }
     }
 
+    private UpgradeCodec newUpgradeCodec(CharSequence protocol) {
+        if (AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)) {
+            Http2FrameCodec frameCodec = Http2FrameCodecBuilder.forServer().initialSettings(initialSettings).build();
+            EchoHttp2ServerHandler echoHandler = new EchoHttp2ServerHandler(delayScheduler, maxHttpContentLength,
+                    initialSettings.initialWindowSize());
+            return metrics != null ?
+                    new Http2ServerUpgradeCodec(frameCodec, new HttpMetricsHandler(metrics), echoHandler) :
+                    new Http2ServerUpgradeCodec(frameCodec, echoHandler);
+        } else {
+            return null;
+        }
+    }
+
     /**
      * Configure the pipeline for TLS NPN negotiation to HTTP/2.
      */
     private void configureSsl(SocketChannel ch) {
-        ch.pipeline().addLast(sslCtx.newHandler(ch.alloc()), new Http2OrHttpHandler(sleepTime, h2ContentAggregate));
+        ch.pipeline().addLast(sslCtx.newHandler(ch.alloc()),
+                new Http2OrHttpHandler(delayScheduler, aggregatedHandlerFactory, metrics, h2ContentAggregate,
+                        maxHttpContentLength, initialSettings));
     }
 
     /**
@@ -99,7 +121,7 @@ public class Http2ServerInitializer extends ChannelInitializer<SocketChannel> {
         final HttpServerCodec sourceCodec = new HttpServerCodec();
 
         p.addLast(sourceCodec);
-        p.addLast(new HttpServerUpgradeHandler(sourceCodec, upgradeCodecFactory, Integer.MAX_VALUE));
+        p.addLast(new HttpServerUpgradeHandler(sourceCodec, this::newUpgradeCodec, Integer.MAX_VALUE));
         p.addLast(new SimpleChannelInboundHandler<HttpMessage>() {
             @Override
             protected void channelRead0(ChannelHandlerContext ctx, HttpMessage msg) {
@@ -107,8 +129,14 @@ public class Http2ServerInitializer extends ChannelInitializer<SocketChannel> {
                 logger.debug("Directly talking: {} (no upgrade was attempted)", msg.protocolVersion());
                 ChannelPipeline pipeline = ctx.pipeline();
                 ChannelHandlerContext thisCtx = pipeline.context(this);
-                pipeline.addAfter(thisCtx.name(), null, new EchoHttpServerHandler(sleepTime, false));
-                pipeline.replace(this, null, new HttpObjectAggregator(maxHttpContentLength));
+                pipeline.addAfter(thisCtx.name(), null, aggregatedHandlerFactory.newHandler(false));
+                if (metrics != null) {
+                    // The current request is passed to the handler, which replaces this handler
+                    pipeline.addAfter(thisCtx.name(), null, new HttpObjectAggregator(maxHttpContentLength));
+                    pipeline.replace(this, null, new HttpMetricsHandler(metrics));
+                } else {
+                    pipeline.replace(this, null, new HttpObjectAggregator(maxHttpContentLength));
+                }
                 ctx.fireChannelRead(ReferenceCountUtil.retain(msg));
             }
         });
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http2.Http2DataFrame;
+import io.netty.handler.codec.http2.Http2HeadersFrame;
+import io.netty.handler.codec.http2.Http2ResetFrame;
+import io.netty.handler.codec.http2.HttpConversionUtil;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+
+import java.util.Arrays;
+
+/**
+ * Records the requests and the time taken to write the responses. This handler should be added after the HTTP/1.1
+ * codec or the HTTP/2 frame codec. The HTTP/1.1 responses are matched with the requests in order and the HTTP/2
+ * responses are matched using the stream id. An outbound {@link ByteBuf} is considered as an encoded HTTP/1.1 response.
+ * <p>
+ * This handler keeps the start times of the requests and cannot be shared.
+ */
+final class HttpMetricsHandler extends ChannelDuplexHandler {
+
+    private static final String STREAM_ID = HttpConversionUtil.ExtensionHeaderNames.STREAM_ID.text().toString();
+    private static final long NO_REQUEST = Long.MIN_VALUE;
+
+    private final EchoMetrics metrics;
+    private EventLoopMetrics eventLoopMetrics;
+    // Start times of the HTTP/1.1 requests in a circular buffer
+    private long[] startTimes = new long[4];
+    private int head;
+    private int size;
+    // Start times of the HTTP/2 streams
+    private final IntObjectMap<Long> streamStartTimes = new IntObjectHashMap<>();
+
+    HttpMetricsHandler(EchoMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        eventLoopMetrics = metrics.eventLoop(ctx.channel());
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof Http2HeadersFrame) {
+            int streamId = ((Http2HeadersFrame) msg).stream().id();
+            // Ignore trailers
+            if (!streamStartTimes.containsKey(streamId)) {
+                streamStartTimes.put(streamId, Long.valueOf(System.nanoTime()));
+                eventLoopMetrics.requestStarted();
+            }
+        } else if (msg instanceof HttpRequest) {
+            Integer streamId = ((HttpRequest) msg).headers().getInt(STREAM_ID);
+            if (streamId != null) {
+                streamStartTimes.put(streamId.intValue(), Long.valueOf(System.nanoTime()));
+            } else {
+                addStartTime(System.nanoTime());
+            }
+            eventLoopMetrics.requestStarted();
+        } else if (msg instanceof Http2ResetFrame) {
+            if (streamStartTimes.remove(((Http2ResetFrame) msg).stream().id()) != null) {
+                eventLoopMetrics.requestsAborted(1);
+            }
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof Http2ResetFrame) {
+            if (streamStartTimes.remove(((Http2ResetFrame) msg).stream().id()) != null) {
+                eventLoopMetrics.requestsAborted(1);
+            }
+        }
+        long startTime = removeStartTime(msg);
+        if (startTime != NO_REQUEST) {
+            promise = promise.unvoid();
+            promise.addListener(future -> eventLoopMetrics.responseCompleted(System.nanoTime() - startTime));
+        }
+        super.write(ctx, msg, promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        int pending = size + streamStartTimes.size();
+        if (pending > 0) {
+            eventLoopMetrics.requestsAborted(pending);
+            size = 0;
+            streamStartTimes.clear();
+        }
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * Get the start time of the request if the message is the last part of the response.
+     */
+    private long removeStartTime(Object msg) {
+        if (msg instanceof Http2HeadersFrame) {
+            Http2HeadersFrame headersFrame = (Http2HeadersFrame) msg;
+            return headersFrame.isEndStream() ? removeStreamStartTime(headersFrame.stream().id()) : NO_REQUEST;
+        } else if (msg instanceof Http2DataFrame) {
+            Http2DataFrame dataFrame = (Http2DataFrame) msg;
+            return dataFrame.isEndStream() ? removeStreamStartTime(dataFrame.stream().id()) : NO_REQUEST;
+        } else if (msg instanceof LastHttpContent) {
+            if (msg instanceof HttpResponse) {
+                HttpResponse response = (HttpResponse) msg;
+                if (HttpResponseStatus.CONTINUE.equals(response.status())) {
+                    return NO_REQUEST;
+                }
+                Integer streamId = response.headers().getInt(STREAM_ID);
+                if (streamId != null) {
+                    return removeStreamStartTime(streamId);
+                }
+            }
+            return removeStartTime();
+        } else if (msg instanceof ByteBuf) {
+            return removeStartTime();
+        }
+        return NO_REQUEST;
+    }
+
+    private long removeStreamStartTime(int streamId) {
+        Long startTime = streamStartTimes.remove(streamId);
+        return startTime != null ? startTime : NO_REQUEST;
+    }
+
+    private void addStartTime(long startTime) {
+        if (size == startTimes.length) {
+            long[] newStartTimes = Arrays.copyOf(startTimes, size * 2);
+            // Move the wrapped elements
+            System.arraycopy(startTimes, 0, newStartTimes, size, head);
+            startTimes = newStartTimes;
+        }
+        startTimes[(head + size) % startTimes.length] = startTime;
+        size++;
+    }
+
+    private long removeStartTime() {
+        if (size == 0) {
+            return NO_REQUEST;
+        }
+        long startTime = startTimes[head];
+        head = (head + 1) % startTimes.length;
+        size--;
+        return startTime;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * Work done with the aggregated request content to create the response content. The transformations make the echo
+ * server use CPU for each request similar to a real backend.
+ */
+public enum RequestTransform {
+
+    /**
+     * Echo back the request content.
+     */
+    NONE {
+        @Override
+        ByteBuf apply(ByteBufAllocator alloc, ByteBuf content, HttpHeaders responseHeaders) {
+            return content.retainedDuplicate();
+        }
+    },
+    /**
+     * Parse the request content as JSON using a streaming parser and write the same JSON values without any
+     * whitespace.
+     */
+    JSON {
+        @Override
+        ByteBuf apply(ByteBufAllocator alloc, ByteBuf content, HttpHeaders responseHeaders) {
+            ByteBuf output = alloc.buffer(content.readableBytes());
+            try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteBufInputStream(content.duplicate()),
+                    StandardCharsets.UTF_8));
+                 JsonWriter writer = new JsonWriter(new OutputStreamWriter(new ByteBufOutputStream(output),
+                         StandardCharsets.UTF_8))) {
+                copy(reader, writer);
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new IllegalArgumentException("Unexpected content after the JSON value");
+                }
+            } catch (IOException | IllegalStateException e) {
+                output.release();
+                throw new IllegalArgumentException("Invalid JSON content", e);
+            } catch (RuntimeException e) {
+                output.release();
+                throw e;
+            }
+            return output;
+        }
+    },
+    /**
+     * Parse the request content as XML using a streaming parser and write the same XML events in UTF-8. DTDs are not
+     * supported.
+     */
+    XML {
+        @Override
+        ByteBuf apply(ByteBufAllocator alloc, ByteBuf content, HttpHeaders responseHeaders) {
+            ByteBuf output = alloc.buffer(content.readableBytes());
+            try {
+                XMLEventReader reader = XML_INPUT_FACTORY.createXMLEventReader(
+                        new ByteBufInputStream(content.duplicate()));
+                XMLEventWriter writer = XML_OUTPUT_FACTORY.createXMLEventWriter(new ByteBufOutputStream(output),
+                        StandardCharsets.UTF_8.name());
+                while (reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (event.getEventType() == XMLStreamConstants.DTD) {
+                        throw new IllegalArgumentException("DTDs are not supported");
+                    }
+                    if (event.isStartDocument()) {
+                        // The output is always encoded in UTF-8
+                        event = XML_EVENT_FACTORY.createStartDocument(StandardCharsets.UTF_8.name(),
+                                ((StartDocument) event).getVersion());
+                    }
+                    writer.add(event);
+                }
+                reader.close();
+                writer.close();
+            } catch (XMLStreamException e) {
+                output.release();
+                throw new IllegalArgumentException("Invalid XML content", e);
+            } catch (RuntimeException e) {
+                output.release();
+                throw e;
+            }
+            return output;
+        }
+    },
+    /**
+     * Echo back the request content with the SHA-256 digest of the content in the "Digest" header.
+     */
+    DIGEST {
+        @Override
+        ByteBuf apply(ByteBufAllocator alloc, ByteBuf content, HttpHeaders responseHeaders) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not supported", e);
+            }
+            digest.update(content.nioBuffer());
+            responseHeaders.set(DIGEST_HEADER, "SHA-256=" + Base64.getEncoder().encodeToString(digest.digest()));
+            return content.retainedDuplicate();
+        }
+    },
+    /**
+     * Compress the request content using gzip.
+     */
+    GZIP {
+        @Override
+        ByteBuf apply(ByteBufAllocator alloc, ByteBuf content, HttpHeaders responseHeaders) {
+            ByteBuf output = alloc.buffer(content.readableBytes() / 2 + GZIP_OVERHEAD);
+            try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(new ByteBufOutputStream(output))) {
+                content.getBytes(content.readerIndex(), gzipOutputStream, content.readableBytes());
+            } catch (IOException | RuntimeException e) {
+                output.release();
+                throw new IllegalStateException("Could not compress the content", e);
+            }
+            responseHeaders.set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP);
+            return output;
+        }
+    };
+
+    private static final String DIGEST_HEADER = "Digest";
+    // Size of the gzip header and trailer
+    private static final int GZIP_OVERHEAD = 18;
+    // The factories are configured once and only used to create the readers, writers and events
+    private static final XMLInputFactory XML_INPUT_FACTORY = newXmlInputFactory();
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final XMLEventFactory XML_EVENT_FACTORY = XMLEventFactory.newInstance();
+
+    /**
+     * Create the response content without changing the reader index of the request content.
+     *
+     * @param alloc           The allocator for the response content
+     * @param content         The request content
+     * @param responseHeaders The headers of the response, which are set by the transformation
+     * @return The response content, which should be released by the caller
+     * @throws IllegalArgumentException If the request content is not valid for the transformation
+     */
+    abstract ByteBuf apply(ByteBufAllocator alloc, ByteBuf content, HttpHeaders responseHeaders);
+
+    private static XMLInputFactory newXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // Do not process DTDs and external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
+    /**
+     * Copy the next JSON value token by token.
+     */
+    private static void copy(JsonReader reader, JsonWriter writer) throws IOException {
+        int depth = 0;
+        do {
+            JsonToken token = reader.peek();
+            switch (token) {
+                case BEGIN_ARRAY:
+                    reader.beginArray();
+                    writer.beginArray();
+                    depth++;
+                    break;
+                case END_ARRAY:
+                    reader.endArray();
+                    writer.endArray();
+                    depth--;
+                    break;
+                case BEGIN_OBJECT:
+                    reader.beginObject();
+                    writer.beginObject();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    reader.endObject();
+                    writer.endObject();
+                    depth--;
+                    break;
+                case NAME:
+                    writer.name(reader.nextName());
+                    break;
+                case STRING:
+                    writer.value(reader.nextString());
+                    break;
+                case NUMBER:
+                    // Keep the number as it is
+                    writer.jsonValue(reader.nextString());
+                    break;
+                case BOOLEAN:
+                    writer.value(reader.nextBoolean());
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    writer.nullValue();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected end of the JSON content");
+            }
+        } while (depth > 0);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compresses the aggregated responses using the content encoding accepted by the client. The compressed contents are
+ * cached, so that the same content is not compressed again.
+ * <p>
+ * This class is thread-safe.
+ */
+final class ResponseCompressor {
+
+    private final List<ContentEncoding> encodings;
+    private final CompressedContentCache cache;
+
+    /**
+     * Create a compressor.
+     *
+     * @param encodings The supported encodings in the order of preference
+     * @param cache     The cache of the compressed contents or {@code null} to compress every response
+     */
+    ResponseCompressor(List<ContentEncoding> encodings, CompressedContentCache cache) {
+        this.encodings = encodings;
+        this.cache = cache;
+    }
+
+    /**
+     * Compress the response if the client accepts a supported encoding. The given response is released if it is
+     * compressed.
+     *
+     * @param acceptEncoding The "Accept-Encoding" header of the request
+     * @param response       The response
+     * @return The compressed response or the given response
+     */
+    FullHttpResponse compress(String acceptEncoding, FullHttpResponse response) {
+        if (acceptEncoding == null || !HttpResponseStatus.OK.equals(response.status())
+                || !response.content().isReadable() || response.headers().contains(HttpHeaderNames.CONTENT_ENCODING)) {
+            return response;
+        }
+        ContentEncoding encoding = select(acceptEncoding);
+        if (encoding == null) {
+            return response;
+        }
+        FullHttpResponse compressedResponse = response.replace(
+                Unpooled.wrappedBuffer(compressedContent(encoding, response.content())));
+        response.release();
+        compressedResponse.headers()
+                .set(HttpHeaderNames.CONTENT_ENCODING, encoding.getName())
+                .setInt(HttpHeaderNames.CONTENT_LENGTH, compressedResponse.content().readableBytes())
+                .add(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        return compressedResponse;
+    }
+
+    private byte[] compressedContent(ContentEncoding encoding, ByteBuf content) {
+        return cache != null ? cache.getOrCompress(encoding, content) : encoding.compress(content);
+    }
+
+    /**
+     * Select the supported encoding with the highest quality value in the "Accept-Encoding" header.
+     */
+    ContentEncoding select(String acceptEncoding) {
+        float[] qualities = new float[ContentEncoding.values().length];
+        Arrays.fill(qualities, -1);
+        float wildcardQuality = -1;
+        for (String element : acceptEncoding.split(",")) {
+            int semicolon = element.indexOf(';');
+            String name = (semicolon >= 0 ? element.substring(0, semicolon) : element).trim();
+            float quality = semicolon >= 0 ? quality(element.substring(semicolon + 1)) : 1;
+            if ("*".equals(name)) {
+                wildcardQuality = quality;
+            } else {
+                ContentEncoding encoding = ContentEncoding.fromName(name);
+                if (encoding != null) {
+                    qualities[encoding.ordinal()] = quality;
+                }
+            }
+        }
+        ContentEncoding selected = null;
+        float selectedQuality = 0;
+        for (ContentEncoding encoding : encodings) {
+            float quality = qualities[encoding.ordinal()] >= 0 ? qualities[encoding.ordinal()] : wildcardQuality;
+            if (quality > selectedQuality) {
+                selected = encoding;
+                selectedQuality = quality;
+            }
+        }
+        return selected;
+    }
+
+    private static float quality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            int equals = parameter.indexOf('=');
+            // The parameter names are case-insensitive and whitespace is allowed around "="
+            if (equals >= 0 && "q".equalsIgnoreCase(parameter.substring(0, equals).trim())) {
+                try {
+                    return Float.parseFloat(parameter.substring(equals + 1).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Get the cache of the compressed contents.
+     *
+     * @return The cache or {@code null} if the contents are not cached
+     */
+    CompressedContentCache getCache() {
+        return cache;
+    }
+}
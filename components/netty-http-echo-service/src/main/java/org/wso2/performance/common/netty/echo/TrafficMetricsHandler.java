@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Records the connections, the bytes received and sent, and the writability changes of a channel. This handler should
+ * be the first handler in the pipeline to count the bytes in the connection.
+ */
+final class TrafficMetricsHandler extends ChannelDuplexHandler {
+
+    private final EchoMetrics metrics;
+    private EventLoopMetrics eventLoopMetrics;
+    private boolean unwritable;
+
+    TrafficMetricsHandler(EchoMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        eventLoopMetrics = metrics.eventLoop(ctx.channel());
+        metrics.addChannel(ctx.channel());
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        eventLoopMetrics.connectionOpened();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        eventLoopMetrics.connectionClosed();
+        if (unwritable) {
+            unwritable = false;
+            eventLoopMetrics.writabilityChanged(true);
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof ByteBuf) {
+            eventLoopMetrics.bytesReceived(((ByteBuf) msg).readableBytes());
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof ByteBuf) {
+            eventLoopMetrics.bytesSent(((ByteBuf) msg).readableBytes());
+        }
+        super.write(ctx, msg, promise);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        boolean writable = ctx.channel().isWritable();
+        if (unwritable == writable) {
+            unwritable = !writable;
+            eventLoopMetrics.writabilityChanged(writable);
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+}
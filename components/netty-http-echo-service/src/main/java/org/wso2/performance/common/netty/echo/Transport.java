@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringChannelOption;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+
+/**
+ * Transports which can be used by the echo server. The native transports are available only on Linux.
+ */
+public enum Transport {
+
+    NIO {
+        @Override
+        boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        Throwable unavailabilityCause() {
+            return null;
+        }
+
+        @Override
+        EventLoopGroup newEventLoopGroup(int threads) {
+            return new NioEventLoopGroup(threads);
+        }
+
+        @Override
+        Class<? extends ServerChannel> serverChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        ChannelOption<Boolean> reusePortOption() {
+            return null;
+        }
+    },
+    EPOLL {
+        @Override
+        boolean isAvailable() {
+            return Epoll.isAvailable();
+        }
+
+        @Override
+        Throwable unavailabilityCause() {
+            return Epoll.unavailabilityCause();
+        }
+
+        @Override
+        EventLoopGroup newEventLoopGroup(int threads) {
+            return new EpollEventLoopGroup(threads);
+        }
+
+        @Override
+        Class<? extends ServerChannel> serverChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        ChannelOption<Boolean> reusePortOption() {
+            return EpollChannelOption.SO_REUSEPORT;
+        }
+    },
+    IO_URING {
+        @Override
+        boolean isAvailable() {
+            return IOUring.isAvailable();
+        }
+
+        @Override
+        Throwable unavailabilityCause() {
+            return IOUring.unavailabilityCause();
+        }
+
+        @Override
+        EventLoopGroup newEventLoopGroup(int threads) {
+            return new IOUringEventLoopGroup(threads);
+        }
+
+        @Override
+        Class<? extends ServerChannel> serverChannelClass() {
+            return IOUringServerSocketChannel.class;
+        }
+
+        @Override
+        ChannelOption<Boolean> reusePortOption() {
+            return IOUringChannelOption.SO_REUSEPORT;
+        }
+    };
+
+    /**
+     * Check whether the native library of the transport can be loaded.
+     */
+    abstract boolean isAvailable();
+
+    /**
+     * Get this transport if it is available or the NIO transport, which is always available.
+     */
+    Transport orFallback() {
+        return isAvailable() ? this : NIO;
+    }
+
+    /**
+     * Get the reason for the transport to be unavailable or {@code null} if the transport is available.
+     */
+    abstract Throwable unavailabilityCause();
+
+    abstract EventLoopGroup newEventLoopGroup(int threads);
+
+    abstract Class<? extends ServerChannel> serverChannelClass();
+
+    /**
+     * Get the SO_REUSEPORT option or {@code null} if the transport does not support it.
+     */
+    abstract ChannelOption<Boolean> reusePortOption();
+}
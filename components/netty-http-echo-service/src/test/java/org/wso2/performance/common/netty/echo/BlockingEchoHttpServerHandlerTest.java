@@ -0,0 +1,198 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseDecoder;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking echo handler tests. The requests are processed in the test thread in the order chosen by each test.
+ */
+public class BlockingEchoHttpServerHandlerTest {
+
+    private static EmbeddedChannel newChannel(BlockingBackend backend) {
+        return new EmbeddedChannel(new HttpServerCodec(), new HttpObjectAggregator(1024),
+                new BlockingEchoHttpServerHandler(backend, false, null));
+    }
+
+    private static void writeRequest(EmbeddedChannel channel, String request) {
+        channel.writeInbound(Unpooled.copiedBuffer(request, StandardCharsets.US_ASCII));
+    }
+
+    private static String request(String content) {
+        return "POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + content.length() + "\r\n\r\n" + content;
+    }
+
+    /**
+     * Read the responses written by the handler.
+     */
+    private static List<FullHttpResponse> readResponses(EmbeddedChannel channel) {
+        channel.runPendingTasks();
+        EmbeddedChannel client = new EmbeddedChannel(new HttpResponseDecoder(), new HttpObjectAggregator(1024));
+        ByteBuf buffer;
+        while ((buffer = channel.readOutbound()) != null) {
+            client.writeInbound(buffer);
+        }
+        List<FullHttpResponse> responses = new ArrayList<>();
+        FullHttpResponse response;
+        while ((response = client.readInbound()) != null) {
+            responses.add(response);
+        }
+        Assert.assertFalse(client.finishAndReleaseAll());
+        return responses;
+    }
+
+    private static void assertResponse(FullHttpResponse response, HttpResponseStatus status, String content) {
+        try {
+            Assert.assertEquals(response.status(), status);
+            Assert.assertEquals(response.content().toString(StandardCharsets.US_ASCII), content);
+        } finally {
+            response.release();
+        }
+    }
+
+    @Test
+    private void testResponseOrder() {
+        TaskQueue taskQueue = new TaskQueue();
+        EmbeddedChannel channel = newChannel(new BlockingBackend(RequestTransform.NONE, 1, null, taskQueue));
+        writeRequest(channel, request("first") + request("second") + request("third"));
+        Assert.assertEquals(taskQueue.tasks.size(), 3, "Requests are not processed in parallel");
+
+        // Complete the requests in the reverse order
+        taskQueue.tasks.get(2).run();
+        Assert.assertTrue(readResponses(channel).isEmpty(), "Response is written before the previous responses");
+        taskQueue.tasks.get(1).run();
+        Assert.assertTrue(readResponses(channel).isEmpty(), "Response is written before the previous responses");
+        taskQueue.tasks.get(0).run();
+        List<FullHttpResponse> responses = readResponses(channel);
+        Assert.assertEquals(responses.size(), 3);
+        assertResponse(responses.get(0), HttpResponseStatus.OK, "first");
+        assertResponse(responses.get(1), HttpResponseStatus.OK, "second");
+        assertResponse(responses.get(2), HttpResponseStatus.OK, "third");
+        Assert.assertTrue(channel.isOpen(), "Connection is closed");
+        Assert.assertFalse(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    private void testInvalidJson() {
+        TaskQueue taskQueue = new TaskQueue();
+        EmbeddedChannel channel = newChannel(new BlockingBackend(RequestTransform.JSON, 1, null, taskQueue));
+        writeRequest(channel, request("hello") + request("{\"a\":1}"));
+        Collections.reverse(taskQueue.tasks);
+        taskQueue.runAll();
+        List<FullHttpResponse> responses = readResponses(channel);
+        Assert.assertEquals(responses.size(), 2);
+        assertResponse(responses.get(0), HttpResponseStatus.BAD_REQUEST, "");
+        assertResponse(responses.get(1), HttpResponseStatus.OK, "{\"a\":1}");
+        Assert.assertTrue(channel.isOpen(), "Connection is closed");
+        Assert.assertFalse(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    private void testTransform() {
+        TaskQueue taskQueue = new TaskQueue();
+        EmbeddedChannel channel = newChannel(new BlockingBackend(RequestTransform.JSON, 3, null, taskQueue));
+        writeRequest(channel, request("{ \"a\" : [ 1, 2 ] }\n"));
+        taskQueue.runAll();
+        List<FullHttpResponse> responses = readResponses(channel);
+        Assert.assertEquals(responses.size(), 1);
+        assertResponse(responses.get(0), HttpResponseStatus.OK, "{\"a\":[1,2]}");
+        Assert.assertFalse(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    private void testRejected() {
+        TaskQueue taskQueue = new TaskQueue();
+        EmbeddedChannel channel = newChannel(new BlockingBackend(RequestTransform.NONE, 1, null, taskQueue));
+        writeRequest(channel, request("first"));
+        taskQueue.shutdown();
+        writeRequest(channel, request("second"));
+        // The rejected request is responded after the previous request
+        Assert.assertTrue(readResponses(channel).isEmpty(), "Response is written before the previous responses");
+        taskQueue.runAll();
+        List<FullHttpResponse> responses = readResponses(channel);
+        Assert.assertEquals(responses.size(), 2);
+        assertResponse(responses.get(0), HttpResponseStatus.OK, "first");
+        assertResponse(responses.get(1), HttpResponseStatus.SERVICE_UNAVAILABLE, "");
+        Assert.assertFalse(channel.finishAndReleaseAll());
+    }
+
+    /**
+     * An executor, which keeps the tasks until they are run by the test.
+     */
+    private static final class TaskQueue extends AbstractExecutorService {
+
+        private final List<Runnable> tasks = new ArrayList<>();
+        private boolean shutdown;
+
+        private void runAll() {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+            tasks.clear();
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Executor is shut down");
+            }
+            tasks.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return new ArrayList<>(tasks);
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && tasks.isEmpty();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return isTerminated();
+        }
+    }
+}
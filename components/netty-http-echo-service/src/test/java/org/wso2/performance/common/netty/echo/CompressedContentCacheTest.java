@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+/**
+ * Compressed content cache tests.
+ */
+public class CompressedContentCacheTest {
+
+    private static ByteBuf content(char c, int length) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) c);
+        return Unpooled.wrappedBuffer(bytes);
+    }
+
+    @Test
+    private void testHit() {
+        CompressedContentCache cache = new CompressedContentCache(1024 * 1024);
+        ByteBuf content = content('a', 1000);
+        byte[] compressed = cache.getOrCompress(ContentEncoding.GZIP, content);
+        Assert.assertEquals(content.readerIndex(), 0, "Reader index is changed");
+        // An equal content in another buffer is a hit
+        Assert.assertSame(cache.getOrCompress(ContentEncoding.GZIP, content('a', 1000)), compressed);
+        Assert.assertEquals(cache.getHits(), 1, "Invalid hits");
+        Assert.assertEquals(cache.getMisses(), 1, "Invalid misses");
+        Assert.assertEquals(cache.getEntries(), 1, "Invalid entries");
+        Assert.assertEquals(cache.getSize(), 1000 + compressed.length, "Invalid size");
+    }
+
+    @Test
+    private void testEncodings() {
+        CompressedContentCache cache = new CompressedContentCache(1024 * 1024);
+        ByteBuf content = content('a', 1000);
+        byte[] gzip = cache.getOrCompress(ContentEncoding.GZIP, content);
+        byte[] deflate = cache.getOrCompress(ContentEncoding.DEFLATE, content);
+        Assert.assertFalse(Arrays.equals(gzip, deflate), "Encodings share the compressed content");
+        Assert.assertEquals(cache.getMisses(), 2, "Invalid misses");
+        Assert.assertEquals(cache.getEntries(), 2, "Invalid entries");
+    }
+
+    @Test
+    private void testLeastRecentlyUsedEviction() {
+        // Contents of a repeated character have the same compressed length
+        int entrySize = 1000 + ContentEncoding.GZIP.compress(content('x', 1000)).length;
+        CompressedContentCache cache = new CompressedContentCache(2 * entrySize);
+        byte[] a = cache.getOrCompress(ContentEncoding.GZIP, content('a', 1000));
+        cache.getOrCompress(ContentEncoding.GZIP, content('b', 1000));
+        Assert.assertEquals(cache.getSize(), 2 * entrySize, "Invalid size");
+        // Use "a", so that "b" is the least recently used content
+        Assert.assertSame(cache.getOrCompress(ContentEncoding.GZIP, content('a', 1000)), a);
+        cache.getOrCompress(ContentEncoding.GZIP, content('c', 1000));
+        Assert.assertEquals(cache.getEvictions(), 1, "Invalid evictions");
+        Assert.assertEquals(cache.getEntries(), 2, "Invalid entries");
+        Assert.assertEquals(cache.getSize(), 2 * entrySize, "Invalid size");
+        Assert.assertSame(cache.getOrCompress(ContentEncoding.GZIP, content('a', 1000)), a);
+        long misses = cache.getMisses();
+        cache.getOrCompress(ContentEncoding.GZIP, content('b', 1000));
+        Assert.assertEquals(cache.getMisses(), misses + 1, "Evicted content is a hit");
+    }
+
+    @Test
+    private void testLargeContent() {
+        CompressedContentCache cache = new CompressedContentCache(1000);
+        cache.getOrCompress(ContentEncoding.GZIP, content('a', 1000));
+        Assert.assertEquals(cache.getEntries(), 0, "Content larger than the cache is cached");
+        Assert.assertEquals(cache.getSize(), 0, "Invalid size");
+    }
+
+    @Test
+    private void testHashCollision() {
+        // The hash code of a buffer is computed from the big-endian integers as 31 * h + i
+        ByteBuf first = Unpooled.buffer(8).writeInt(0).writeInt(31);
+        ByteBuf second = Unpooled.buffer(8).writeInt(1).writeInt(0);
+        Assert.assertEquals(ByteBufUtil.hashCode(first), ByteBufUtil.hashCode(second), "Hash codes are not equal");
+        CompressedContentCache cache = new CompressedContentCache(1024 * 1024);
+        byte[] firstCompressed = cache.getOrCompress(ContentEncoding.GZIP, first);
+        byte[] secondCompressed = cache.getOrCompress(ContentEncoding.GZIP, second);
+        Assert.assertEquals(cache.getHits(), 0, "Hash collision is a hit");
+        Assert.assertEquals(cache.getMisses(), 2, "Invalid misses");
+        Assert.assertEquals(firstCompressed, ContentEncoding.GZIP.compress(first));
+        Assert.assertEquals(secondCompressed, ContentEncoding.GZIP.compress(second));
+        Assert.assertFalse(Arrays.equals(firstCompressed, secondCompressed), "Invalid compressed content");
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Connection initializer tests. The backpressure is tested by writing more than the high water mark without flushing.
+ */
+public class ConnectionInitializerTest {
+
+    private static EmbeddedChannel newChannel(EchoMetrics metrics, boolean backpressure) {
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new ConnectionInitializer(metrics, backpressure, new ChannelInboundHandlerAdapter()));
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(8, 16));
+        return channel;
+    }
+
+    @Test
+    private void testBackpressure() {
+        EmbeddedChannel channel = newChannel(null, true);
+        Assert.assertTrue(channel.config().isAutoRead(), "Auto read is disabled");
+        channel.write(Unpooled.wrappedBuffer(new byte[32]));
+        Assert.assertFalse(channel.isWritable(), "Channel is writable");
+        Assert.assertFalse(channel.config().isAutoRead(), "Auto read is not disabled when the channel is not writable");
+
+        channel.flush();
+        channel.runPendingTasks();
+        Assert.assertTrue(channel.isWritable(), "Channel is not writable");
+        Assert.assertTrue(channel.config().isAutoRead(), "Auto read is not enabled when the channel is writable");
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    private void testWithoutBackpressure() {
+        EmbeddedChannel channel = newChannel(null, false);
+        channel.write(Unpooled.wrappedBuffer(new byte[32]));
+        Assert.assertFalse(channel.isWritable(), "Channel is writable");
+        Assert.assertTrue(channel.config().isAutoRead(), "Auto read is disabled without backpressure");
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    private void testMetrics() {
+        EchoMetrics metrics = new EchoMetrics();
+        EmbeddedChannel channel = newChannel(metrics, true);
+        Assert.assertNotNull(channel.pipeline().get(TrafficMetricsHandler.class), "Metrics handler is not added");
+        Assert.assertNull(channel.pipeline().get(ConnectionInitializer.class), "Initializer is not removed");
+        channel.write(Unpooled.wrappedBuffer(new byte[32]));
+        channel.flush();
+        channel.runPendingTasks();
+        EventLoopMetrics eventLoopMetrics = metrics.eventLoop(channel);
+        Assert.assertEquals(eventLoopMetrics.getUnwritableEvents(), 1L);
+        Assert.assertEquals(eventLoopMetrics.getUnwritableConnections(), 0L);
+        Assert.assertEquals(eventLoopMetrics.getSentBytes(), 32L);
+        Assert.assertTrue(channel.config().isAutoRead(), "Auto read is not enabled when the channel is writable");
+        channel.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delay histogram tests.
+ */
+public class DelayHistogramTest {
+
+    private static final int SAMPLES = 100000;
+
+    private static DelayHistogram load(String content) throws IOException {
+        Path file = Files.createTempFile("delay-histogram", ".txt");
+        try {
+            Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+            return DelayHistogram.load(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static long millis(double millis) {
+        return (long) (millis * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test
+    private void testSample() throws IOException {
+        DelayHistogram histogram = load("# Delay (ms), Count\n\n1, 2\n2.5 0\n5\t3\n  10 , 5  \n");
+        Map<Long, Integer> counts = new HashMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < SAMPLES; i++) {
+            counts.merge(histogram.sample(random), 1, Integer::sum);
+        }
+        Assert.assertEquals(counts.keySet().size(), 3, "Invalid delays: " + counts.keySet());
+        Assert.assertEquals(counts.get(millis(1)) / (double) SAMPLES, 0.2, 0.01, "Invalid probability of 1ms");
+        Assert.assertEquals(counts.get(millis(5)) / (double) SAMPLES, 0.3, 0.01, "Invalid probability of 5ms");
+        Assert.assertEquals(counts.get(millis(10)) / (double) SAMPLES, 0.5, 0.01, "Invalid probability of 10ms");
+    }
+
+    @Test
+    private void testSingleValue() throws IOException {
+        DelayHistogram histogram = load("0.5 0\n0.25 7\n");
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(histogram.sample(random), millis(0.25));
+        }
+    }
+
+    @DataProvider(name = "invalidHistograms")
+    public Object[][] invalidHistograms() {
+        return new Object[][]{
+                {""},
+                {"# Only comments\n\n"},
+                {"10 0\n"},
+                {"10\n"},
+                {"10 1 2\n"},
+                {"ten 1\n"},
+                {"10 1.5\n"},
+                {"-10 1\n"},
+                {"10 -1\n"},
+        };
+    }
+
+    @Test(dataProvider = "invalidHistograms", expectedExceptions = IOException.class)
+    private void testInvalidHistogram(String content) throws IOException {
+        load(content);
+    }
+}
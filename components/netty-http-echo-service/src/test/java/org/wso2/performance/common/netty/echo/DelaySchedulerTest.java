@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delay scheduler tests.
+ */
+public class DelaySchedulerTest {
+
+    private static final long DELAY = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long MAX_DELAY = TimeUnit.MILLISECONDS.toNanos(30);
+    private static final long TICK_DURATION = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int SAMPLES = 100000;
+
+    @Test
+    private void testFixedDelay() {
+        DelayScheduler scheduler = new DelayScheduler(DelayDistribution.FIXED, DELAY, 0, null, TICK_DURATION);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(scheduler.nextDelay(), DELAY);
+        }
+        scheduler.stop();
+    }
+
+    @Test
+    private void testUniformDelay() {
+        DelayScheduler scheduler = new DelayScheduler(DelayDistribution.UNIFORM, DELAY, MAX_DELAY, null,
+                TICK_DURATION);
+        double sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            long delay = scheduler.nextDelay();
+            Assert.assertTrue(delay >= DELAY && delay <= MAX_DELAY, "Delay is out of range: " + delay);
+            sum += delay;
+        }
+        Assert.assertEquals(sum / SAMPLES, (DELAY + MAX_DELAY) / 2.0, DELAY * 0.05, "Invalid mean delay");
+        scheduler.stop();
+    }
+
+    @Test
+    private void testExponentialDelay() {
+        DelayScheduler scheduler = new DelayScheduler(DelayDistribution.EXPONENTIAL, DELAY, 0, null, TICK_DURATION);
+        double sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            long delay = scheduler.nextDelay();
+            Assert.assertTrue(delay >= 0, "Negative delay: " + delay);
+            sum += delay;
+        }
+        Assert.assertEquals(sum / SAMPLES, DELAY, DELAY * 0.05, "Invalid mean delay");
+        scheduler.stop();
+    }
+
+    @Test
+    private void testExponentialMaxDelay() {
+        DelayScheduler scheduler = new DelayScheduler(DelayDistribution.EXPONENTIAL, DELAY, MAX_DELAY, null,
+                TICK_DURATION);
+        boolean limited = false;
+        for (int i = 0; i < SAMPLES; i++) {
+            long delay = scheduler.nextDelay();
+            Assert.assertTrue(delay >= 0 && delay <= MAX_DELAY, "Delay is out of range: " + delay);
+            limited |= delay == MAX_DELAY;
+        }
+        Assert.assertTrue(limited, "Delays are not limited to the max delay");
+        scheduler.stop();
+    }
+
+    @Test
+    private void testHistogramDelay() throws IOException {
+        Path file = Files.createTempFile("delay-histogram", ".txt");
+        try {
+            Files.write(file, "10 1\n30 3\n".getBytes(StandardCharsets.UTF_8));
+            DelayScheduler scheduler = new DelayScheduler(DelayDistribution.HISTOGRAM, 0, 0,
+                    DelayHistogram.load(file), TICK_DURATION);
+            int count = 0;
+            for (int i = 0; i < SAMPLES; i++) {
+                long delay = scheduler.nextDelay();
+                Assert.assertTrue(delay == DELAY || delay == MAX_DELAY, "Delay is not in the histogram: " + delay);
+                if (delay == DELAY) {
+                    count++;
+                }
+            }
+            Assert.assertEquals(count / (double) SAMPLES, 0.25, 0.01, "Invalid probability of the delay");
+            scheduler.stop();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    private void testNextDeadline() {
+        DelayScheduler scheduler = new DelayScheduler(DelayDistribution.FIXED, DELAY, 0, null, TICK_DURATION);
+        long start = System.nanoTime();
+        long deadline = scheduler.nextDeadline(Long.MIN_VALUE);
+        Assert.assertTrue(deadline - start >= DELAY, "Deadline is earlier than the delay");
+        long previousDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        Assert.assertEquals(scheduler.nextDeadline(previousDeadline), previousDeadline,
+                "Deadline is earlier than the previous deadline");
+        scheduler.stop();
+    }
+}
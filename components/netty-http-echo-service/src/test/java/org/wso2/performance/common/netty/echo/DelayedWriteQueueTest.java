@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delayed write queue tests. The writes run in a separate executor, since the timer of the delay scheduler runs
+ * the writes in the executor of the channel handler context.
+ */
+public class DelayedWriteQueueTest {
+
+    private static final long TICK_DURATION = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private EventExecutorGroup executorGroup;
+    private EmbeddedChannel channel;
+    private ChannelHandlerContext ctx;
+
+    @BeforeClass
+    private void setUp() throws Exception {
+        executorGroup = new DefaultEventExecutorGroup(1);
+        channel = new EmbeddedChannel();
+        CompletableFuture<ChannelHandlerContext> future = new CompletableFuture<>();
+        channel.pipeline().addLast(executorGroup, new ChannelInboundHandlerAdapter() {
+            @Override
+            public void handlerAdded(ChannelHandlerContext ctx) {
+                future.complete(ctx);
+            }
+        });
+        ctx = future.get(10, TimeUnit.SECONDS);
+    }
+
+    @AfterClass
+    private void tearDown() {
+        channel.finishAndReleaseAll();
+        executorGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+
+    private void runInExecutor(Runnable task) throws Exception {
+        ctx.executor().submit(task).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    private void testWritesBeforeFirstResponse() throws Exception {
+        DelayScheduler scheduler = new DelayScheduler(DelayDistribution.FIXED, TimeUnit.SECONDS.toNanos(10), 0, null,
+                TICK_DURATION);
+        List<Integer> writes = new ArrayList<>();
+        runInExecutor(() -> {
+            DelayedWriteQueue queue = new DelayedWriteQueue(scheduler);
+            queue.add(ctx, () -> writes.add(0));
+            queue.add(ctx, () -> writes.add(1));
+        });
+        Assert.assertEquals(writes.size(), 2, "Writes before the first response are delayed");
+        scheduler.stop();
+    }
+
+    @Test
+    private void testDueWrite() throws Exception {
+        DelayScheduler scheduler = new DelayScheduler(DelayDistribution.FIXED, 0, 0, null, TICK_DURATION);
+        List<Integer> writes = new ArrayList<>();
+        runInExecutor(() -> {
+            DelayedWriteQueue queue = new DelayedWriteQueue(scheduler);
+            for (int i = 0; i < 3; i++) {
+                queue.nextResponse();
+                queue.add(ctx, () -> writes.add(writes.size()));
+                Assert.assertEquals(writes.size(), i + 1, "Due write is not written immediately");
+            }
+        });
+        scheduler.stop();
+    }
+
+    @Test
+    private void testFixedDelay() throws Exception {
+        long delay = TimeUnit.MILLISECONDS.toNanos(50);
+        DelayScheduler scheduler = new DelayScheduler(DelayDistribution.FIXED, delay, 0, null, TICK_DURATION);
+        int responses = 3;
+        int writesPerResponse = 2;
+        List<Integer> writes = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(responses * writesPerResponse);
+        long start = System.nanoTime();
+        runInExecutor(() -> {
+            DelayedWriteQueue queue = new DelayedWriteQueue(scheduler);
+            for (int i = 0; i < responses; i++) {
+                queue.nextResponse();
+                for (int j = 0; j < writesPerResponse; j++) {
+                    int write = i * writesPerResponse + j;
+                    queue.add(ctx, () -> {
+                        writes.add(write);
+                        latch.countDown();
+                    });
+                }
+            }
+            Assert.assertTrue(writes.isEmpty(), "Writes are not delayed");
+        });
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS), "Delayed writes are not written");
+        Assert.assertTrue(System.nanoTime() - start >= delay, "Writes are written before the delay");
+        runInExecutor(() -> Assert.assertEquals(writes, sequence(responses * writesPerResponse)));
+        scheduler.stop();
+    }
+
+    @Test
+    private void testWriteOrder() throws Exception {
+        DelayScheduler scheduler = new DelayScheduler(DelayDistribution.UNIFORM, 0, TimeUnit.MILLISECONDS.toNanos(20),
+                null, TICK_DURATION);
+        int responses = 100;
+        List<Integer> writes = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(responses);
+        DelayedWriteQueue queue = new DelayedWriteQueue(scheduler);
+        for (int i = 0; i < responses; i++) {
+            int write = i;
+            // Add the writes in separate tasks, so that some writes are due before the later writes are added
+            ctx.executor().execute(() -> {
+                queue.nextResponse();
+                queue.add(ctx, () -> {
+                    writes.add(write);
+                    latch.countDown();
+                });
+            });
+            if (i % 10 == 0) {
+                Thread.sleep(1);
+            }
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS), "Delayed writes are not written");
+        runInExecutor(() -> Assert.assertEquals(writes, sequence(responses), "Writes are not in order"));
+        scheduler.stop();
+    }
+
+    private static List<Integer> sequence(int size) {
+        List<Integer> sequence = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sequence.add(i);
+        }
+        return sequence;
+    }
+}
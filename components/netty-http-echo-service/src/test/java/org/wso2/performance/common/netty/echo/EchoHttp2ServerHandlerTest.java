@@ -0,0 +1,181 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http2.DefaultHttp2DataFrame;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.DefaultHttp2HeadersFrame;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2DataFrame;
+import io.netty.handler.codec.http2.Http2Error;
+import io.netty.handler.codec.http2.Http2FrameStream;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.handler.codec.http2.Http2HeadersFrame;
+import io.netty.handler.codec.http2.Http2ResetFrame;
+import io.netty.handler.codec.http2.Http2Stream;
+import io.netty.handler.codec.http2.Http2WindowUpdateFrame;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HTTP/2 echo handler tests. The frames are written to the handler as the frame codec would read them.
+ */
+public class EchoHttp2ServerHandlerTest {
+
+    private static final int MAX_CONTENT_LENGTH = 16;
+
+    private static EmbeddedChannel newChannel() {
+        return new EmbeddedChannel(new EchoHttp2ServerHandler(null, MAX_CONTENT_LENGTH,
+                Http2CodecUtil.DEFAULT_WINDOW_SIZE));
+    }
+
+    private static Http2HeadersFrame requestHeaders(Http2FrameStream stream, Long contentLength) {
+        Http2Headers headers = new DefaultHttp2Headers().method("POST").path("/").scheme("https");
+        if (contentLength != null) {
+            headers.setLong(HttpHeaderNames.CONTENT_LENGTH, contentLength);
+        }
+        return new DefaultHttp2HeadersFrame(headers, false).stream(stream);
+    }
+
+    private static Http2DataFrame data(Http2FrameStream stream, String content, boolean endStream) {
+        return new DefaultHttp2DataFrame(Unpooled.copiedBuffer(content, StandardCharsets.US_ASCII), endStream)
+                .stream(stream);
+    }
+
+    private static <T> T readOutbound(EmbeddedChannel channel, Class<T> frameType) {
+        Object frame = channel.readOutbound();
+        Assert.assertTrue(frameType.isInstance(frame), "Expected " + frameType.getSimpleName() + ": " + frame);
+        return frameType.cast(frame);
+    }
+
+    @Test
+    private void testEcho() {
+        EmbeddedChannel channel = newChannel();
+        Http2FrameStream stream = new TestStream(3);
+        channel.writeInbound(requestHeaders(stream, 11L), data(stream, "hello", false));
+        channel.writeInbound(data(stream, " world", true));
+        channel.runPendingTasks();
+
+        Http2HeadersFrame headers = readOutbound(channel, Http2HeadersFrame.class);
+        Assert.assertEquals(headers.headers().status().toString(), "200");
+        Assert.assertFalse(headers.isEndStream(), "Response without content");
+        Assert.assertSame(headers.stream(), stream);
+        StringBuilder content = new StringBuilder();
+        int windowUpdate = 0;
+        boolean endStream = false;
+        Object frame;
+        while ((frame = channel.readOutbound()) != null) {
+            if (frame instanceof Http2DataFrame) {
+                Http2DataFrame data = (Http2DataFrame) frame;
+                Assert.assertFalse(endStream, "Data after the end of the stream");
+                content.append(data.content().toString(StandardCharsets.US_ASCII));
+                endStream = data.isEndStream();
+                data.release();
+            } else {
+                Assert.assertTrue(frame instanceof Http2WindowUpdateFrame, "Unexpected frame: " + frame);
+                windowUpdate += ((Http2WindowUpdateFrame) frame).windowSizeIncrement();
+            }
+        }
+        Assert.assertEquals(content.toString(), "hello world");
+        Assert.assertTrue(endStream, "Stream is not ended");
+        Assert.assertEquals(windowUpdate, 11, "Received bytes are not consumed");
+        Assert.assertFalse(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    private void testRequestWithoutContent() {
+        EmbeddedChannel channel = newChannel();
+        Http2FrameStream stream = new TestStream(3);
+        channel.writeInbound(new DefaultHttp2HeadersFrame(new DefaultHttp2Headers().method("GET"), true)
+                .stream(stream));
+        Assert.assertEquals(readOutbound(channel, Http2HeadersFrame.class).headers().status().toString(), "200");
+        Http2DataFrame data = readOutbound(channel, Http2DataFrame.class);
+        Assert.assertTrue(data.isEndStream() && !data.content().isReadable(), "Invalid end of the stream");
+        Assert.assertFalse(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    private void testContentLengthTooLarge() {
+        EmbeddedChannel channel = newChannel();
+        Http2FrameStream stream = new TestStream(3);
+        channel.writeInbound(requestHeaders(stream, MAX_CONTENT_LENGTH + 1L));
+        Http2HeadersFrame headers = readOutbound(channel, Http2HeadersFrame.class);
+        Assert.assertEquals(headers.headers().status().toString(), "413");
+        Assert.assertTrue(headers.isEndStream(), "Response is not ended");
+        Assert.assertNull(channel.readOutbound(), "Stream is reset after the response");
+
+        // The content is discarded and the received bytes are returned to the client
+        channel.writeInbound(data(stream, "0123456789", false));
+        channel.writeInbound(data(stream, "abcdefghij", true));
+        channel.runPendingTasks();
+        int windowUpdate = 0;
+        Object frame;
+        while ((frame = channel.readOutbound()) != null) {
+            Assert.assertTrue(frame instanceof Http2WindowUpdateFrame, "Unexpected frame: " + frame);
+            windowUpdate += ((Http2WindowUpdateFrame) frame).windowSizeIncrement();
+        }
+        Assert.assertEquals(windowUpdate, 20, "Received bytes are not consumed");
+        Assert.assertFalse(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    private void testContentTooLarge() {
+        EmbeddedChannel channel = newChannel();
+        Http2FrameStream stream = new TestStream(3);
+        channel.writeInbound(requestHeaders(stream, null), data(stream, "0123456789", false));
+        channel.writeInbound(data(stream, "abcdefghij", true));
+        channel.runPendingTasks();
+        Assert.assertEquals(readOutbound(channel, Http2HeadersFrame.class).headers().status().toString(), "200");
+        Http2DataFrame data = readOutbound(channel, Http2DataFrame.class);
+        Assert.assertEquals(data.content().toString(StandardCharsets.US_ASCII), "0123456789");
+        data.release();
+        Object frame;
+        Http2ResetFrame reset = null;
+        while ((frame = channel.readOutbound()) != null) {
+            Assert.assertFalse(frame instanceof Http2DataFrame, "Content exceeding the max content length is echoed");
+            if (frame instanceof Http2ResetFrame) {
+                reset = (Http2ResetFrame) frame;
+            }
+        }
+        Assert.assertNotNull(reset, "Stream is not reset");
+        Assert.assertEquals(reset.errorCode(), Http2Error.CANCEL.code());
+        Assert.assertFalse(channel.finishAndReleaseAll());
+    }
+
+    private static final class TestStream implements Http2FrameStream {
+
+        private final int id;
+
+        private TestStream(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int id() {
+            return id;
+        }
+
+        @Override
+        public Http2Stream.State state() {
+            return Http2Stream.State.OPEN;
+        }
+    }
+}
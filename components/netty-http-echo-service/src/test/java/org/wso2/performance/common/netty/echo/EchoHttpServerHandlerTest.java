@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseDecoder;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Aggregated echo handler tests.
+ */
+public class EchoHttpServerHandlerTest {
+
+    private static EmbeddedChannel newChannel(RequestTransform transform, ResponseCompressor compressor) {
+        return new EmbeddedChannel(new HttpServerCodec(), new HttpObjectAggregator(1024),
+                new EchoHttpServerHandler(null, false, transform, compressor));
+    }
+
+    private static FullHttpResponse exchange(EmbeddedChannel channel, String request) {
+        channel.writeInbound(Unpooled.copiedBuffer(request, StandardCharsets.US_ASCII));
+        EmbeddedChannel client = new EmbeddedChannel(new HttpResponseDecoder(), new HttpObjectAggregator(1024));
+        ByteBuf buffer;
+        while ((buffer = channel.readOutbound()) != null) {
+            client.writeInbound(buffer);
+        }
+        FullHttpResponse response = client.readInbound();
+        Assert.assertNotNull(response, "Response is not written");
+        Assert.assertFalse(client.finishAndReleaseAll());
+        return response;
+    }
+
+    @Test
+    private void testEcho() {
+        EmbeddedChannel channel = newChannel(RequestTransform.NONE, null);
+        FullHttpResponse response = exchange(channel, "POST / HTTP/1.1\r\nHost: localhost\r\n"
+                + "Content-Type: text/plain\r\nContent-Length: 5\r\n\r\nhello");
+        Assert.assertEquals(response.status(), HttpResponseStatus.OK);
+        Assert.assertEquals(response.headers().get(HttpHeaderNames.CONTENT_TYPE), "text/plain");
+        Assert.assertEquals(response.content().toString(StandardCharsets.US_ASCII), "hello");
+        Assert.assertTrue(channel.isOpen(), "Connection is closed");
+        response.release();
+        Assert.assertFalse(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    private void testInvalidJson() {
+        EmbeddedChannel channel = newChannel(RequestTransform.JSON, null);
+        FullHttpResponse response = exchange(channel, "POST / HTTP/1.1\r\nHost: localhost\r\n"
+                + "Content-Type: application/json\r\nContent-Length: 6\r\n\r\n{\"a\":1");
+        Assert.assertEquals(response.status(), HttpResponseStatus.BAD_REQUEST);
+        Assert.assertEquals(response.headers().getInt(HttpHeaderNames.CONTENT_LENGTH).intValue(), 0);
+        Assert.assertTrue(channel.isOpen(), "Connection is closed");
+        response.release();
+        Assert.assertFalse(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    private void testCompressedJson() throws IOException {
+        ResponseCompressor compressor = new ResponseCompressor(Collections.singletonList(ContentEncoding.GZIP), null);
+        EmbeddedChannel channel = newChannel(RequestTransform.JSON, compressor);
+        FullHttpResponse response = exchange(channel, "POST / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n"
+                + "Accept-Encoding: gzip\r\nContent-Length: 12\r\n\r\n{ \"a\" : 1 }\n");
+        Assert.assertEquals(response.status(), HttpResponseStatus.OK);
+        Assert.assertEquals(response.headers().get(HttpHeaderNames.CONTENT_ENCODING), "gzip");
+        try (InputStream inputStream = new GZIPInputStream(new ByteBufInputStream(response.content(), true));
+             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            byte[] buffer = new byte[1024];
+            int length;
+            while ((length = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, length);
+            }
+            Assert.assertEquals(new String(outputStream.toByteArray(), StandardCharsets.UTF_8), "{\"a\":1}");
+        }
+        Assert.assertFalse(channel.isOpen(), "Connection is not closed");
+        channel.finishAndReleaseAll();
+    }
+}
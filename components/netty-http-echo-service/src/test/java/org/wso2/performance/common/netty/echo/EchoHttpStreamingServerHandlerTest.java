@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpServerCodec;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming echo handler tests.
+ */
+public class EchoHttpStreamingServerHandlerTest {
+
+    private static final int MAX_CONTENT_LENGTH = 16;
+
+    private static EmbeddedChannel newChannel() {
+        return new EmbeddedChannel(new HttpServerCodec(),
+                new EchoHttpStreamingServerHandler(null, MAX_CONTENT_LENGTH));
+    }
+
+    private static void writeRequest(EmbeddedChannel channel, String request) {
+        channel.writeInbound(Unpooled.copiedBuffer(request, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Read the bytes written by the handler.
+     */
+    static String readOutbound(EmbeddedChannel channel) {
+        StringBuilder output = new StringBuilder();
+        ByteBuf buffer;
+        while ((buffer = channel.readOutbound()) != null) {
+            output.append(buffer.toString(StandardCharsets.US_ASCII));
+            buffer.release();
+        }
+        return output.toString();
+    }
+
+    @Test
+    private void testEcho() {
+        EmbeddedChannel channel = newChannel();
+        writeRequest(channel, "POST / HTTP/1.1\r\nHost: localhost\r\nContent-Type: text/plain\r\n"
+                + "Content-Length: 5\r\n\r\nhello");
+        String response = readOutbound(channel);
+        Assert.assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"), "Invalid response: " + response);
+        Assert.assertTrue(response.contains("\r\ncontent-length: 5\r\n"), "Invalid response: " + response);
+        Assert.assertTrue(response.contains("\r\ncontent-type: text/plain\r\n"), "Invalid response: " + response);
+        Assert.assertTrue(response.endsWith("\r\n\r\nhello"), "Invalid response: " + response);
+        Assert.assertTrue(channel.isOpen(), "Connection is closed");
+        Assert.assertFalse(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    private void testChunkedEcho() {
+        EmbeddedChannel channel = newChannel();
+        writeRequest(channel, "POST / HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5\r\nhello\r\n6\r\n world\r\n0\r\n\r\n");
+        String response = readOutbound(channel);
+        Assert.assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"), "Invalid response: " + response);
+        Assert.assertTrue(response.contains("\r\ntransfer-encoding: chunked\r\n"), "Invalid response: " + response);
+        Assert.assertTrue(response.endsWith("\r\n\r\n5\r\nhello\r\n6\r\n world\r\n0\r\n\r\n"),
+                "Invalid response: " + response);
+        Assert.assertTrue(channel.isOpen(), "Connection is closed");
+        Assert.assertFalse(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    private void testPipelinedRequests() {
+        EmbeddedChannel channel = newChannel();
+        writeRequest(channel, "POST /1 HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n\r\nfirst"
+                + "POST /2 HTTP/1.1\r\nHost: localhost\r\nContent-Length: 6\r\n\r\nsecond"
+                + "GET /3 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+        String response = readOutbound(channel);
+        int first = response.indexOf("first");
+        int second = response.indexOf("second");
+        int third = response.lastIndexOf("HTTP/1.1 200 OK");
+        Assert.assertTrue(first > 0 && second > first && third > second, "Invalid response order: " + response);
+        Assert.assertTrue(response.endsWith("\r\ncontent-length: 0\r\n\r\n"), "Invalid response: " + response);
+        Assert.assertFalse(channel.isOpen(), "Connection is not closed");
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    private void testContinue() {
+        EmbeddedChannel channel = newChannel();
+        writeRequest(channel, "POST / HTTP/1.1\r\nHost: localhost\r\nExpect: 100-continue\r\n"
+                + "Content-Length: 5\r\n\r\n");
+        String response = readOutbound(channel);
+        Assert.assertTrue(response.startsWith("HTTP/1.1 100 Continue\r\n\r\nHTTP/1.1 200 OK\r\n"),
+                "Invalid response: " + response);
+        writeRequest(channel, "hello");
+        Assert.assertEquals(readOutbound(channel), "hello");
+        Assert.assertFalse(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    private void testContentLengthTooLarge() {
+        EmbeddedChannel channel = newChannel();
+        writeRequest(channel, "POST / HTTP/1.1\r\nHost: localhost\r\nExpect: 100-continue\r\nContent-Length: "
+                + (MAX_CONTENT_LENGTH + 1) + "\r\n\r\n");
+        String response = readOutbound(channel);
+        Assert.assertTrue(response.startsWith("HTTP/1.1 413 Request Entity Too Large\r\n"),
+                "Invalid response: " + response);
+        Assert.assertTrue(response.contains("\r\ncontent-length: 0\r\n"), "Invalid response: " + response);
+        Assert.assertFalse(channel.isOpen(), "Connection is not closed");
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    private void testChunkedContentTooLarge() {
+        EmbeddedChannel channel = newChannel();
+        writeRequest(channel, "POST / HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "a\r\n0123456789\r\n");
+        String response = readOutbound(channel);
+        Assert.assertTrue(response.endsWith("\r\n\r\na\r\n0123456789\r\n"), "Invalid response: " + response);
+        Assert.assertTrue(channel.isOpen(), "Connection is closed");
+        writeRequest(channel, "a\r\nabcdefghij\r\n0\r\n\r\n");
+        Assert.assertEquals(readOutbound(channel), "", "Content exceeding the max content length is echoed");
+        Assert.assertFalse(channel.isOpen(), "Connection is not closed");
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    private void testMalformedChunk() {
+        EmbeddedChannel channel = newChannel();
+        writeRequest(channel, "POST / HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5\r\nhello\r\n");
+        String response = readOutbound(channel);
+        Assert.assertTrue(response.endsWith("\r\n\r\n5\r\nhello\r\n"), "Invalid response: " + response);
+        writeRequest(channel, "xyz\r\nworld\r\n0\r\n\r\n");
+        Assert.assertEquals(readOutbound(channel), "", "Malformed chunk is echoed");
+        Assert.assertFalse(channel.isOpen(), "Connection is not closed");
+        channel.finishAndReleaseAll();
+    }
+
+    @DataProvider(name = "malformedRequests")
+    public Object[][] malformedRequests() {
+        return new Object[][]{
+                {"POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: abc\r\n\r\n"},
+                {"POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 1\r\nContent-Length: 2\r\n\r\n"},
+                {"GET / HTTP/1.1\r\nHost : localhost\r\n\r\n"},
+        };
+    }
+
+    @Test(dataProvider = "malformedRequests")
+    private void testMalformedRequest(String request) {
+        EmbeddedChannel channel = newChannel();
+        writeRequest(channel, request);
+        String response = readOutbound(channel);
+        Assert.assertTrue(response.startsWith("HTTP/1.1 400 Bad Request\r\n"), "Invalid response: " + response);
+        Assert.assertFalse(channel.isOpen(), "Connection is not closed");
+        channel.finishAndReleaseAll();
+    }
+}
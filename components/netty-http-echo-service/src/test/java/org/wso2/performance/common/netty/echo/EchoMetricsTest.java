@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpServerCodec;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Server metrics tests. The scraped metrics are validated against the Prometheus text format.
+ */
+public class EchoMetricsTest {
+
+    private static final String NAME = "([a-zA-Z_:][a-zA-Z0-9_:]*)";
+    private static final String LABEL = "[a-zA-Z_][a-zA-Z0-9_]*=\"[^\"\\\\\\n]*\"";
+    private static final Pattern HELP = Pattern.compile("# HELP " + NAME + " \\S.*");
+    private static final Pattern TYPE = Pattern.compile("# TYPE " + NAME + " (counter|gauge|summary)");
+    private static final Pattern SAMPLE = Pattern.compile(NAME + "(\\{" + LABEL + "(," + LABEL + ")*\\})? (\\S+)");
+    private static final List<String> SUMMARY_SUFFIXES = Arrays.asList("_sum", "_count");
+
+    private static EmbeddedChannel newChannel(EchoMetrics metrics) {
+        return new EmbeddedChannel(new TrafficMetricsHandler(metrics), new HttpServerCodec(),
+                new HttpMetricsHandler(metrics), new EchoHttpStreamingServerHandler(null, 1024));
+    }
+
+    /**
+     * Validate the metrics and get the values of the samples by the name and the labels.
+     */
+    private static Map<String, Double> parse(String metrics) {
+        Assert.assertTrue(metrics.endsWith("\n"), "Metrics do not end with a line feed");
+        Map<String, Double> samples = new HashMap<>();
+        Map<String, String> types = new HashMap<>();
+        Set<String> helps = new HashSet<>();
+        for (String line : metrics.split("\n")) {
+            Matcher matcher;
+            if ((matcher = HELP.matcher(line)).matches()) {
+                Assert.assertTrue(helps.add(matcher.group(1)), "Duplicate HELP: " + line);
+            } else if ((matcher = TYPE.matcher(line)).matches()) {
+                String name = matcher.group(1);
+                Assert.assertTrue(helps.contains(name), "TYPE without HELP: " + line);
+                Assert.assertNull(types.put(name, matcher.group(2)), "Duplicate TYPE: " + line);
+                if ("counter".equals(matcher.group(2))) {
+                    Assert.assertTrue(name.endsWith("_total"), "Counter name does not end with _total: " + line);
+                }
+            } else {
+                matcher = SAMPLE.matcher(line);
+                Assert.assertTrue(matcher.matches(), "Invalid line: " + line);
+                Assert.assertTrue(isDeclared(types, matcher.group(1)), "Sample without TYPE: " + line);
+                double value = Double.parseDouble(matcher.group(4));
+                String labels = matcher.group(2) != null ? matcher.group(2) : "";
+                Assert.assertNull(samples.put(matcher.group(1) + labels, value), "Duplicate sample: " + line);
+            }
+        }
+        return samples;
+    }
+
+    private static boolean isDeclared(Map<String, String> types, String name) {
+        if (types.containsKey(name)) {
+            return true;
+        }
+        for (String suffix : SUMMARY_SUFFIXES) {
+            if (name.endsWith(suffix)
+                    && "summary".equals(types.get(name.substring(0, name.length() - suffix.length())))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    private void testEmpty() {
+        Map<String, Double> samples = parse(new EchoMetrics().scrape());
+        Assert.assertEquals(samples.get("echo_pending_write_bytes"), 0D);
+        Assert.assertEquals(samples.get("echo_processing_time_seconds_count"), 0D);
+        Assert.assertEquals(samples.get("echo_processing_time_seconds{quantile=\"0.99\"}"), 0D);
+        Assert.assertFalse(samples.containsKey("echo_compression_cache_hits_total"), "Cache metrics without a cache");
+    }
+
+    @Test
+    private void testRequests() {
+        EchoMetrics metrics = new EchoMetrics();
+        EmbeddedChannel channel = newChannel(metrics);
+        String eventLoop = "{event_loop=\"" + Thread.currentThread().getName() + "\"}";
+        String requests = "POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n\r\nhello"
+                + "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n";
+        channel.writeInbound(Unpooled.copiedBuffer(requests, StandardCharsets.US_ASCII));
+        long sentBytes = EchoHttpStreamingServerHandlerTest.readOutbound(channel).length();
+
+        Map<String, Double> samples = parse(metrics.scrape());
+        Assert.assertEquals(samples.get("echo_requests_total" + eventLoop), 2D);
+        Assert.assertEquals(samples.get("echo_responses_total" + eventLoop), 2D);
+        Assert.assertEquals(samples.get("echo_aborted_requests_total" + eventLoop), 0D);
+        Assert.assertEquals(samples.get("echo_requests_in_flight" + eventLoop), 0D);
+        Assert.assertEquals(samples.get("echo_received_bytes_total" + eventLoop), (double) requests.length());
+        Assert.assertEquals(samples.get("echo_sent_bytes_total" + eventLoop), (double) sentBytes);
+        Assert.assertEquals(samples.get("echo_connections" + eventLoop), 1D);
+        Assert.assertEquals(samples.get("echo_unwritable_connections" + eventLoop), 0D);
+        Assert.assertEquals(samples.get("echo_processing_time_seconds_count"), 2D);
+        Assert.assertTrue(samples.get("echo_processing_time_seconds_sum") >= 0D, "Negative processing time");
+
+        // A request without a response is aborted when the connection is closed
+        channel.writeInbound(Unpooled.copiedBuffer("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n\r\n",
+                StandardCharsets.US_ASCII));
+        Assert.assertEquals(parse(metrics.scrape()).get("echo_requests_in_flight" + eventLoop), 1D);
+        channel.finishAndReleaseAll();
+        samples = parse(metrics.scrape());
+        Assert.assertEquals(samples.get("echo_requests_total" + eventLoop), 3D);
+        Assert.assertEquals(samples.get("echo_aborted_requests_total" + eventLoop), 1D);
+        Assert.assertEquals(samples.get("echo_requests_in_flight" + eventLoop), 0D);
+        Assert.assertEquals(samples.get("echo_connections" + eventLoop), 0D);
+        // The processing times are not counted twice
+        Assert.assertEquals(samples.get("echo_processing_time_seconds_count"), 2D);
+    }
+
+    @Test
+    private void testCompressionCache() {
+        EchoMetrics metrics = new EchoMetrics();
+        CompressedContentCache cache = new CompressedContentCache(1024);
+        metrics.setCompressionCache(cache);
+        ByteBuf content = Unpooled.copiedBuffer("hello", StandardCharsets.US_ASCII);
+        cache.getOrCompress(ContentEncoding.GZIP, content);
+        cache.getOrCompress(ContentEncoding.GZIP, content);
+        content.release();
+        Map<String, Double> samples = parse(metrics.scrape());
+        Assert.assertEquals(samples.get("echo_compression_cache_hits_total"), 1D);
+        Assert.assertEquals(samples.get("echo_compression_cache_misses_total"), 1D);
+        Assert.assertEquals(samples.get("echo_compression_cache_evictions_total"), 0D);
+        Assert.assertEquals(samples.get("echo_compression_cache_entries"), 1D);
+        Assert.assertEquals(samples.get("echo_compression_cache_bytes"), (double) cache.getSize());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpRequestDecoder;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed response handler tests.
+ */
+public class FixedHttpResponseHandlerTest {
+
+    private static final byte[] BODY = "{\"message\":\"Hello\"}".getBytes(StandardCharsets.UTF_8);
+    private static final String KEEP_ALIVE_RESPONSE = "HTTP/1.1 200 OK\r\ncontent-type: application/json\r\n"
+            + "content-length: 19\r\nconnection: keep-alive\r\n\r\n{\"message\":\"Hello\"}";
+    private static final String CLOSE_RESPONSE = "HTTP/1.1 200 OK\r\ncontent-type: application/json\r\n"
+            + "content-length: 19\r\nconnection: close\r\n\r\n{\"message\":\"Hello\"}";
+
+    private final ByteBuf keepAliveResponse = FixedHttpResponseHandler.encodeResponse(BODY, "application/json", true);
+    private final ByteBuf closeResponse = FixedHttpResponseHandler.encodeResponse(BODY, "application/json", false);
+
+    @AfterClass
+    private void tearDown() {
+        keepAliveResponse.release();
+        closeResponse.release();
+    }
+
+    private EmbeddedChannel newChannel() {
+        return new EmbeddedChannel(new HttpRequestDecoder(),
+                new FixedHttpResponseHandler(keepAliveResponse, closeResponse, null));
+    }
+
+    private static void writeRequest(EmbeddedChannel channel, String request) {
+        channel.writeInbound(Unpooled.copiedBuffer(request, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    private void testKeepAlive() {
+        EmbeddedChannel channel = newChannel();
+        writeRequest(channel, "POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n\r\nhello"
+                + "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        Assert.assertEquals(EchoHttpStreamingServerHandlerTest.readOutbound(channel),
+                KEEP_ALIVE_RESPONSE + KEEP_ALIVE_RESPONSE);
+        Assert.assertTrue(channel.isOpen(), "Connection is closed");
+        Assert.assertFalse(channel.finishAndReleaseAll());
+        Assert.assertEquals(keepAliveResponse.refCnt(), 1, "Fixed response is released");
+    }
+
+    @Test
+    private void testClose() {
+        EmbeddedChannel channel = newChannel();
+        writeRequest(channel, "GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+        Assert.assertEquals(EchoHttpStreamingServerHandlerTest.readOutbound(channel), CLOSE_RESPONSE);
+        Assert.assertFalse(channel.isOpen(), "Connection is not closed");
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    private void testHttp10() {
+        EmbeddedChannel channel = newChannel();
+        writeRequest(channel, "GET / HTTP/1.0\r\n\r\n");
+        Assert.assertEquals(EchoHttpStreamingServerHandlerTest.readOutbound(channel), CLOSE_RESPONSE);
+        Assert.assertFalse(channel.isOpen(), "Connection is not closed");
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    private void testContinue() {
+        EmbeddedChannel channel = newChannel();
+        writeRequest(channel, "POST / HTTP/1.1\r\nHost: localhost\r\nExpect: 100-continue\r\n"
+                + "Content-Length: 5\r\n\r\n");
+        Assert.assertEquals(EchoHttpStreamingServerHandlerTest.readOutbound(channel), "HTTP/1.1 100 Continue\r\n\r\n");
+        writeRequest(channel, "hello");
+        Assert.assertEquals(EchoHttpStreamingServerHandlerTest.readOutbound(channel), KEEP_ALIVE_RESPONSE);
+        writeRequest(channel, "POST / HTTP/1.1\r\nHost: localhost\r\nExpect: 100-continue\r\n"
+                + "Content-Length: 5\r\n\r\n");
+        Assert.assertEquals(EchoHttpStreamingServerHandlerTest.readOutbound(channel), "HTTP/1.1 100 Continue\r\n\r\n",
+                "Continue response is consumed");
+        Assert.assertTrue(channel.isOpen(), "Connection is closed");
+        Assert.assertFalse(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    private void testMalformedRequest() {
+        EmbeddedChannel channel = newChannel();
+        writeRequest(channel, "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                + "POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: abc\r\n\r\n"
+                + "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        Assert.assertEquals(EchoHttpStreamingServerHandlerTest.readOutbound(channel), KEEP_ALIVE_RESPONSE
+                + "HTTP/1.1 400 Bad Request\r\ncontent-length: 0\r\nconnection: close\r\n\r\n");
+        Assert.assertFalse(channel.isOpen(), "Connection is not closed");
+        channel.finishAndReleaseAll();
+    }
+}
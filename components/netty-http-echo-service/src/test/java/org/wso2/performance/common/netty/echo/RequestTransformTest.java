@@ -0,0 +1,244 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.AbstractByteBufAllocator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.buffer.UnpooledHeapByteBuf;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Request transformation tests.
+ */
+public class RequestTransformTest {
+
+    private static final ByteBufAllocator ALLOC = UnpooledByteBufAllocator.DEFAULT;
+
+    private static ByteBuf content(String content) {
+        return Unpooled.copiedBuffer(content, StandardCharsets.UTF_8);
+    }
+
+    @DataProvider(name = "validJson")
+    public Object[][] validJson() {
+        return new Object[][]{
+                {"{}", "{}"},
+                {" [ ] ", "[]"},
+                {"{ \"a\" : [ 1, 2.50, -3e2, true, false, null, \"x y\" ],\n \"b\" : { \"c\" : \"\\u00e9\" } }",
+                        "{\"a\":[1,2.50,-3e2,true,false,null,\"x y\"],\"b\":{\"c\":\"\u00e9\"}}"},
+        };
+    }
+
+    @Test(dataProvider = "validJson")
+    private void testJson(String json, String expected) {
+        ByteBuf content = content(json);
+        ByteBuf output = RequestTransform.JSON.apply(ALLOC, content, new DefaultHttpHeaders());
+        try {
+            Assert.assertEquals(output.toString(StandardCharsets.UTF_8), expected);
+            Assert.assertEquals(content.readerIndex(), 0, "Reader index is changed");
+        } finally {
+            output.release();
+            content.release();
+        }
+    }
+
+    @DataProvider(name = "invalidJson")
+    public Object[][] invalidJson() {
+        return new Object[][]{
+                {""},
+                {"   "},
+                {"not json"},
+                {"{"},
+                {"[1, 2"},
+                {"{\"a\" 1}"},
+                {"{\"a\": 1}}"},
+                {"{\"a\": 1} {\"b\": 2}"},
+                {"\"unterminated"},
+        };
+    }
+
+    @Test(dataProvider = "invalidJson")
+    private void testInvalidJson(String json) {
+        List<ByteBuf> buffers = new ArrayList<>();
+        // Keep the allocated buffers to check whether the output is released
+        ByteBufAllocator alloc = new AbstractByteBufAllocator(false) {
+            @Override
+            protected ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity) {
+                ByteBuf buffer = new UnpooledHeapByteBuf(this, initialCapacity, maxCapacity);
+                buffers.add(buffer);
+                return buffer;
+            }
+
+            @Override
+            protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
+                return newHeapBuffer(initialCapacity, maxCapacity);
+            }
+
+            @Override
+            public boolean isDirectBufferPooled() {
+                return false;
+            }
+        };
+        ByteBuf content = content(json);
+        try {
+            RequestTransform.JSON.apply(alloc, content, new DefaultHttpHeaders());
+            Assert.fail("Invalid JSON is accepted: " + json);
+        } catch (IllegalArgumentException e) {
+            Assert.assertFalse(buffers.isEmpty(), "Output is not allocated");
+            for (ByteBuf buffer : buffers) {
+                Assert.assertEquals(buffer.refCnt(), 0, "Output is not released");
+            }
+        } finally {
+            content.release();
+        }
+    }
+
+    @DataProvider(name = "validXml")
+    public Object[][] validXml() {
+        return new Object[][]{
+                {"<a/>", "<?xml version=\"1.0\" encoding=\"UTF-8\"?><a></a>"},
+                {"<?xml version=\"1.0\"?>\n<a x=\"1\"><b>x &amp; y</b><!-- c --><![CDATA[<d>]]></a>",
+                        "<?xml version=\"1.0\" encoding=\"UTF-8\"?><a x=\"1\"><b>x &amp; y</b><!-- c -->"
+                                + "&lt;d&gt;</a>"},
+                {"<p:a xmlns:p=\"urn:p\"><p:b>\u00e9</p:b></p:a>",
+                        "<?xml version=\"1.0\" encoding=\"UTF-8\"?><p:a xmlns:p=\"urn:p\"><p:b>\u00e9</p:b></p:a>"},
+        };
+    }
+
+    @Test(dataProvider = "validXml")
+    private void testXml(String xml, String expected) {
+        ByteBuf content = content(xml);
+        ByteBuf output = RequestTransform.XML.apply(ALLOC, content, new DefaultHttpHeaders());
+        try {
+            Assert.assertEquals(output.toString(StandardCharsets.UTF_8), expected);
+            Assert.assertEquals(content.readerIndex(), 0, "Reader index is changed");
+        } finally {
+            output.release();
+            content.release();
+        }
+    }
+
+    @Test
+    private void testXmlEncoding() {
+        ByteBuf content = Unpooled.copiedBuffer("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><a>\u00e9</a>",
+                StandardCharsets.ISO_8859_1);
+        ByteBuf output = RequestTransform.XML.apply(ALLOC, content, new DefaultHttpHeaders());
+        try {
+            Assert.assertEquals(output.toString(StandardCharsets.UTF_8),
+                    "<?xml version=\"1.0\" encoding=\"UTF-8\"?><a>\u00e9</a>");
+        } finally {
+            output.release();
+            content.release();
+        }
+    }
+
+    @DataProvider(name = "invalidXml")
+    public Object[][] invalidXml() {
+        return new Object[][]{
+                {""},
+                {"not xml"},
+                {"<a>"},
+                {"<a></b>"},
+                {"<a/><b/>"},
+                {"<a x=1/>"},
+                {"<!DOCTYPE a [<!ENTITY e \"x\">]><a>&e;</a>"},
+        };
+    }
+
+    @Test(dataProvider = "invalidXml")
+    private void testInvalidXml(String xml) {
+        ByteBuf content = content(xml);
+        try {
+            RequestTransform.XML.apply(ALLOC, content, new DefaultHttpHeaders());
+            Assert.fail("Invalid XML is accepted: " + xml);
+        } catch (IllegalArgumentException e) {
+            // Expected
+        } finally {
+            content.release();
+        }
+    }
+
+    @Test
+    private void testNone() {
+        ByteBuf content = content("hello");
+        ByteBuf output = RequestTransform.NONE.apply(ALLOC, content, new DefaultHttpHeaders());
+        Assert.assertEquals(content.refCnt(), 2, "Content is not retained");
+        Assert.assertTrue(ByteBufUtil.equals(output, content), "Content is not echoed");
+        output.release();
+        content.release();
+    }
+
+    @Test
+    private void testDigest() throws NoSuchAlgorithmException {
+        ByteBuf content = content("hello");
+        HttpHeaders headers = new DefaultHttpHeaders();
+        ByteBuf output = RequestTransform.DIGEST.apply(ALLOC, content, headers);
+        try {
+            String digest = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256")
+                    .digest("hello".getBytes(StandardCharsets.UTF_8)));
+            Assert.assertEquals(headers.get("Digest"), "SHA-256=" + digest);
+            Assert.assertTrue(ByteBufUtil.equals(output, content), "Content is not echoed");
+            Assert.assertEquals(content.readerIndex(), 0, "Reader index is changed");
+        } finally {
+            output.release();
+            content.release();
+        }
+    }
+
+    @Test
+    private void testGzip() throws IOException {
+        ByteBuf content = content("hello, hello, hello");
+        HttpHeaders headers = new DefaultHttpHeaders();
+        ByteBuf output = RequestTransform.GZIP.apply(ALLOC, content, headers);
+        try {
+            Assert.assertEquals(headers.get(HttpHeaderNames.CONTENT_ENCODING), "gzip");
+            try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(ByteBufUtil.getBytes(output)));
+                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+                byte[] buffer = new byte[1024];
+                int length;
+                while ((length = inputStream.read(buffer)) > 0) {
+                    outputStream.write(buffer, 0, length);
+                }
+                Assert.assertEquals(new String(outputStream.toByteArray(), StandardCharsets.UTF_8),
+                        "hello, hello, hello");
+            }
+            Assert.assertEquals(content.readerIndex(), 0, "Reader index is changed");
+        } finally {
+            output.release();
+            content.release();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+/**
+ * Response compressor tests.
+ */
+public class ResponseCompressorTest {
+
+    private static final byte[] CONTENT = "{\"message\":\"Hello, World!\",\"message\":\"Hello, World!\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final ResponseCompressor compressor = new ResponseCompressor(
+            Arrays.asList(ContentEncoding.GZIP, ContentEncoding.DEFLATE), null);
+
+    @DataProvider(name = "acceptEncodings")
+    public Object[][] acceptEncodings() {
+        return new Object[][]{
+                {"gzip", ContentEncoding.GZIP},
+                {"deflate", ContentEncoding.DEFLATE},
+                {"GZip", ContentEncoding.GZIP},
+                {"identity", null},
+                {"br", null},
+                {"", null},
+                // The server preference breaks the ties
+                {"deflate, gzip", ContentEncoding.GZIP},
+                {"deflate;q=0.5, gzip;q=0.5", ContentEncoding.GZIP},
+                {"gzip;q=0.5, deflate", ContentEncoding.DEFLATE},
+                {"gzip;q=0.5, deflate;q=0.8", ContentEncoding.DEFLATE},
+                {" gzip ; q=0.8 , deflate ; q=0.5 ", ContentEncoding.GZIP},
+                {"gzip;level=1;q=0.5, deflate;q=0.4", ContentEncoding.GZIP},
+                // An encoding with zero quality is not acceptable
+                {"gzip;q=0", null},
+                {"gzip;q=0, deflate", ContentEncoding.DEFLATE},
+                {"gzip;q=0, deflate;q=0", null},
+                {"gzip;q=invalid", null},
+                {"gzip;Q=0, deflate;Q=0.5", ContentEncoding.DEFLATE},
+                {"gzip;q = 0.4, deflate ;q= 0.5", ContentEncoding.DEFLATE},
+                {"gzip; Q = 0, deflate", ContentEncoding.DEFLATE},
+                {"gzip;qq=0.1, deflate;q=0.5", ContentEncoding.GZIP},
+                // The wildcard matches the encodings, which are not listed
+                {"*", ContentEncoding.GZIP},
+                {"*;q=0", null},
+                {"gzip;q=0, *", ContentEncoding.DEFLATE},
+                {"gzip;q=0.2, *;q=0.5", ContentEncoding.DEFLATE},
+                {"*;q=0.5, gzip", ContentEncoding.GZIP},
+                {"*, gzip;q=0, deflate;q=0", null},
+        };
+    }
+
+    @Test(dataProvider = "acceptEncodings")
+    private void testSelect(String acceptEncoding, ContentEncoding expected) {
+        Assert.assertEquals(compressor.select(acceptEncoding), expected, "Invalid encoding for " + acceptEncoding);
+    }
+
+    private static FullHttpResponse newResponse(HttpResponseStatus status, byte[] content) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, status, Unpooled.wrappedBuffer(content));
+        response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, content.length);
+        return response;
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(compressed));
+             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            byte[] buffer = new byte[1024];
+            int length;
+            while ((length = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, length);
+            }
+            return outputStream.toByteArray();
+        }
+    }
+
+    @Test
+    private void testAvailability() {
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            Assert.assertEquals(encoding.unavailabilityReason() == null, encoding.isAvailable(),
+                    "Invalid unavailability reason of " + encoding);
+        }
+        Assert.assertTrue(ContentEncoding.GZIP.isAvailable(), "gzip is not available");
+        Assert.assertTrue(ContentEncoding.DEFLATE.isAvailable(), "deflate is not available");
+    }
+
+    @Test
+    private void testCompress() throws IOException {
+        FullHttpResponse response = newResponse(HttpResponseStatus.OK, CONTENT);
+        FullHttpResponse compressed = compressor.compress("gzip, deflate;q=0.5", response);
+        try {
+            Assert.assertNotSame(compressed, response);
+            Assert.assertEquals(response.refCnt(), 0, "Uncompressed response is not released");
+            Assert.assertEquals(compressed.headers().get(HttpHeaderNames.CONTENT_ENCODING), "gzip");
+            Assert.assertEquals(compressed.headers().get(HttpHeaderNames.VARY),
+                    HttpHeaderNames.ACCEPT_ENCODING.toString());
+            Assert.assertEquals(compressed.headers().getInt(HttpHeaderNames.CONTENT_LENGTH).intValue(),
+                    compressed.content().readableBytes());
+            Assert.assertEquals(decompress(ByteBufUtil.getBytes(compressed.content())), CONTENT);
+        } finally {
+            compressed.release();
+        }
+    }
+
+    @Test
+    private void testCompressWithCache() throws IOException {
+        CompressedContentCache cache = new CompressedContentCache(1024 * 1024);
+        ResponseCompressor cachingCompressor = new ResponseCompressor(Arrays.asList(ContentEncoding.values()), cache);
+        for (int i = 0; i < 2; i++) {
+            FullHttpResponse compressed = cachingCompressor.compress("gzip",
+                    newResponse(HttpResponseStatus.OK, CONTENT));
+            Assert.assertEquals(decompress(ByteBufUtil.getBytes(compressed.content())), CONTENT);
+            compressed.release();
+        }
+        Assert.assertEquals(cache.getMisses(), 1, "Invalid cache misses");
+        Assert.assertEquals(cache.getHits(), 1, "Invalid cache hits");
+    }
+
+    @DataProvider(name = "uncompressedResponses")
+    public Object[][] uncompressedResponses() {
+        FullHttpResponse encoded = newResponse(HttpResponseStatus.OK, CONTENT);
+        encoded.headers().set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP);
+        return new Object[][]{
+                {null, newResponse(HttpResponseStatus.OK, CONTENT)},
+                {"identity", newResponse(HttpResponseStatus.OK, CONTENT)},
+                {"gzip", newResponse(HttpResponseStatus.BAD_REQUEST, CONTENT)},
+                {"gzip", newResponse(HttpResponseStatus.OK, new byte[0])},
+                {"gzip", encoded},
+        };
+    }
+
+    @Test(dataProvider = "uncompressedResponses")
+    private void testNotCompressed(String acceptEncoding, FullHttpResponse response) {
+        FullHttpResponse result = compressor.compress(acceptEncoding, response);
+        try {
+            Assert.assertSame(result, response, "Response is compressed");
+            Assert.assertFalse(result.headers().contains(HttpHeaderNames.VARY), "Vary header is added");
+        } finally {
+            result.release();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.netty.echo;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport tests. The native transports are tested only if they are available in the test environment.
+ */
+public class TransportTest {
+
+    @DataProvider(name = "transports")
+    public Object[][] transports() {
+        Transport[] transports = Transport.values();
+        Object[][] data = new Object[transports.length][1];
+        for (int i = 0; i < transports.length; i++) {
+            data[i][0] = transports[i];
+        }
+        return data;
+    }
+
+    @Test(dataProvider = "transports")
+    private void testFallback(Transport transport) {
+        Transport availableTransport = transport.orFallback();
+        if (transport.isAvailable()) {
+            Assert.assertSame(availableTransport, transport);
+            Assert.assertNull(transport.unavailabilityCause(), "Available transport has an unavailability cause");
+        } else {
+            Assert.assertSame(availableTransport, Transport.NIO, "Unavailable transport does not fall back to NIO");
+            Assert.assertNotNull(transport.unavailabilityCause(), "Unavailability cause is not given");
+        }
+        Assert.assertTrue(availableTransport.isAvailable(), "Fallback transport is not available");
+    }
+
+    @Test
+    private void testNioReusePort() {
+        Assert.assertTrue(Transport.NIO.isAvailable(), "NIO transport is not available");
+        Assert.assertNull(Transport.NIO.reusePortOption(), "NIO transport supports SO_REUSEPORT");
+    }
+
+    @Test(dataProvider = "transports")
+    private void testEcho(Transport transport) throws Exception {
+        Transport availableTransport = transport.orFallback();
+        EventLoopGroup group = availableTransport.newEventLoopGroup(1);
+        try {
+            ServerBootstrap b = new ServerBootstrap()
+                    .group(group)
+                    .channel(availableTransport.serverChannelClass())
+                    .childHandler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            ctx.writeAndFlush(msg);
+                        }
+                    });
+            if (availableTransport.reusePortOption() != null) {
+                b.option(availableTransport.reusePortOption(), true);
+            }
+            Channel serverChannel = b.bind(InetAddress.getLoopbackAddress(), 0).sync().channel();
+            try (Socket socket = new Socket()) {
+                socket.connect(serverChannel.localAddress(), 10_000);
+                socket.setSoTimeout(10_000);
+                Assert.assertEquals(echo(socket, "hello"), "hello");
+            } finally {
+                serverChannel.close().sync();
+            }
+            Assert.assertTrue(serverChannel.localAddress() instanceof InetSocketAddress, "Invalid local address");
+        } finally {
+            // Do not wait indefinitely as the io_uring event loop may not complete the cleanup on some kernels
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).await(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static String echo(Socket socket, String message) throws IOException {
+        OutputStream outputStream = socket.getOutputStream();
+        outputStream.write(message.getBytes("US-ASCII"));
+        outputStream.flush();
+        InputStream inputStream = socket.getInputStream();
+        byte[] buffer = new byte[message.length()];
+        int read = 0;
+        while (read < buffer.length) {
+            int n = inputStream.read(buffer, read, buffer.length - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        return new String(buffer, 0, read, "US-ASCII");
+    }
+}
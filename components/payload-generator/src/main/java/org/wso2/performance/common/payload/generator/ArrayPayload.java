@@ -15,10 +15,12 @@
  */
 package org.wso2.performance.common.payload.generator;
 
+import java.io.IOException;
+
 /**
  * Generate an array payload.
  */
-public class ArrayPayload extends Payload {
+public class ArrayPayload extends JsonPayload {
 
     private final int payloadMinLength;
 
@@ -28,28 +30,28 @@ public class ArrayPayload extends Payload {
     }
 
     @Override
-    protected void generatePayloadObject(StringBuilder payloadBuilder) {
-        payloadBuilder.append("[\"");
+    protected void generatePayloadObject(PayloadWriter writer) throws IOException {
+        writer.write("[\"");
         final String arrayContinueString = "\",\"";
         final String payloadCompletionString = "\"]}";
-        final int limit = payloadSize - (payloadBuilder.toString().getBytes(payloadCharset).length +
-                payloadCompletionString.length());
-        char c = START_CHAR;
-        // Counter to check item length
-        int j = 0;
-        for (int i = 0; i < limit; i++) {
-            payloadBuilder.append(c);
-            c = getNextChar(c);
-            j++;
-            if (j >= payloadMinLength) {
-                j = 0;
-                int r = limit - i - 1;
+        final int limit = payloadSize - (writer.getPosition() + payloadCompletionString.length());
+        // Each item has at least one character
+        final int itemLength = Math.max(payloadMinLength, 1);
+        // Index of the next character in the character cycle
+        int c = 0;
+        int i = 0;
+        while (i < limit) {
+            int n = Math.min(itemLength, limit - i);
+            c = writeCharacters(writer, c, n);
+            i += n;
+            if (n == itemLength) {
+                int r = limit - i;
                 if (r > arrayContinueString.length()) {
-                    payloadBuilder.append(arrayContinueString);
+                    writer.write(arrayContinueString);
                     i += arrayContinueString.length();
                 }
             }
         }
-        payloadBuilder.append(payloadCompletionString);
+        writer.write(payloadCompletionString);
     }
 }
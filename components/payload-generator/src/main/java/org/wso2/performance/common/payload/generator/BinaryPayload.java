@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.payload.generator;
+
+import java.io.IOException;
+
+/**
+ * Generate a binary payload with length-prefixed records. The payload is a message in the Protocol Buffers wire format
+ * with the following schema.
+ * <pre>
+ * message Payload {
+ *     string size = 1;
+ *     repeated bytes payload = 2;
+ *     string id = 3;
+ * }
+ * </pre>
+ * Each record is a "payload" field with a varint length. The last record takes the remaining bytes.
+ */
+public class BinaryPayload extends Payload {
+
+    // Length of the request ID field with the tag and the length
+    static final int REQUEST_ID_FIELD_LENGTH = 2 + PayloadWriter.REQUEST_ID_LENGTH;
+
+    // Field tags with the length-delimited wire type
+    private static final int SIZE_TAG = (1 << 3) | 2;
+    private static final int RECORD_TAG = (2 << 3) | 2;
+    private static final int ID_TAG = (3 << 3) | 2;
+    // Size of a record with a single byte
+    private static final int MIN_RECORD_SIZE = 3;
+
+    private final int payloadMinLength;
+
+    public BinaryPayload(int payloadSize, int payloadMinLength) {
+        super(payloadSize);
+        this.payloadMinLength = payloadMinLength;
+    }
+
+    @Override
+    protected void generatePayload(PayloadWriter writer, boolean requestId) throws IOException {
+        if (requestId) {
+            writer.writeByte(ID_TAG);
+            writeVarint(writer, PayloadWriter.REQUEST_ID_LENGTH);
+            writer.writeRequestId();
+        }
+        String size = payloadSize + "B";
+        writer.writeByte(SIZE_TAG);
+        writeVarint(writer, size.length());
+        writer.write(size);
+        // Each record has at least one byte
+        final int recordLength = Math.max(payloadMinLength, 1);
+        final int fullRecordSize = recordSize(recordLength);
+        // Index of the next character in the character cycle
+        int c = 0;
+        int remaining = payloadSize - writer.getPosition();
+        while (remaining > 0) {
+            int length;
+            if (remaining > fullRecordSize && isRecordSize(remaining - fullRecordSize)) {
+                length = recordLength;
+            } else {
+                length = recordLengthForSize(remaining);
+                if (length < 0) {
+                    // The varint length cannot make a record of the remaining size. Write two records.
+                    length = 1;
+                }
+            }
+            writer.writeByte(RECORD_TAG);
+            writeVarint(writer, length);
+            c = writeCharacters(writer, c, length);
+            remaining -= recordSize(length);
+        }
+    }
+
+    private static void writeVarint(PayloadWriter writer, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            writer.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writer.writeByte(value);
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int recordSize(int length) {
+        return 1 + varintSize(length) + length;
+    }
+
+    private static boolean isRecordSize(int size) {
+        return size >= MIN_RECORD_SIZE && recordLengthForSize(size) > 0;
+    }
+
+    /**
+     * Get the length of a record with the given size.
+     *
+     * @return The length or -1 if there is no record with the given size
+     */
+    private static int recordLengthForSize(int size) {
+        for (int varintSize = 1; varintSize <= 5; varintSize++) {
+            int length = size - 1 - varintSize;
+            if (length > 0 && varintSize(length) == varintSize) {
+                return length;
+            }
+        }
+        return -1;
+    }
+}
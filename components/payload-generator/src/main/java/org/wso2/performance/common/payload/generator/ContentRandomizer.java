@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.payload.generator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * Random content and request IDs of the random payloads. The content characters are replaced in groups, so that the
+ * rest of the content keeps the compressible character cycle. Each random character has 6 bits of entropy.
+ * <p>
+ * The same sequence of random numbers is used whether a payload is randomized in memory or while it is written, so
+ * that the same seed gives the same payloads.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class ContentRandomizer {
+
+    // Number of content characters replaced with a single random number
+    static final int GROUP_SIZE = 10;
+
+    // URL and filename safe Base64 alphabet, which does not need escaping in JSON, XML or URL encoded forms
+    private static final byte[] ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz-_".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final double entropy;
+    private final SplittableRandom random;
+    // Random bits of the current group
+    private long bits;
+
+    ContentRandomizer(double entropy, SplittableRandom random) {
+        this.entropy = entropy;
+        this.random = random;
+    }
+
+    /**
+     * Create a randomizer with the same entropy and a different sequence of random numbers.
+     */
+    ContentRandomizer split() {
+        return new ContentRandomizer(entropy, random.split());
+    }
+
+    /**
+     * Whether any content is replaced. The random numbers are not used for the content if the entropy is zero.
+     */
+    boolean hasEntropy() {
+        return entropy > 0;
+    }
+
+    /**
+     * Start the next group of content characters.
+     *
+     * @return {@code true} if the characters of the group should be replaced with {@link #nextChar()}
+     */
+    boolean nextGroup() {
+        if (entropy >= 1 || random.nextDouble() < entropy) {
+            bits = random.nextLong();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the next random character of the current group.
+     */
+    byte nextChar() {
+        byte c = ALPHABET[(int) (bits & 0x3F)];
+        bits >>>= 6;
+        return c;
+    }
+
+    /**
+     * Write a random 64-bit request ID in hexadecimal.
+     *
+     * @param bytes  The destination
+     * @param offset The offset of the request ID in the destination
+     */
+    void nextRequestId(byte[] bytes, int offset) {
+        long id = random.nextLong();
+        for (int i = offset + PayloadWriter.REQUEST_ID_LENGTH - 1; i >= offset; i--) {
+            bytes[i] = HEX_DIGITS[(int) (id & 0xF)];
+            id >>>= 4;
+        }
+    }
+}
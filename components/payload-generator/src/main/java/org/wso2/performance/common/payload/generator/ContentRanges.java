@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.payload.generator;
+
+import java.util.Arrays;
+
+/**
+ * Ranges of the content characters in a payload. Adjacent ranges are merged.
+ */
+final class ContentRanges {
+
+    private int[] offsets = new int[16];
+    private int[] lengths = new int[16];
+    private int size;
+
+    void add(int offset, int length) {
+        if (length <= 0) {
+            return;
+        }
+        if (size > 0 && offsets[size - 1] + lengths[size - 1] == offset) {
+            lengths[size - 1] += length;
+            return;
+        }
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+        offsets[size] = offset;
+        lengths[size] = length;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int offset(int index) {
+        return offsets[index];
+    }
+
+    int length(int index) {
+        return lengths[index];
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.payload.generator;
+
+import java.io.IOException;
+
+/**
+ * Generate an "application/x-www-form-urlencoded" payload with multiple parameters. The parameter values do not need
+ * to be encoded.
+ */
+public class FormPayload extends Payload {
+
+    // Length of the request ID parameter including the separator
+    static final int REQUEST_ID_FIELD_LENGTH = "id=&".length() + PayloadWriter.REQUEST_ID_LENGTH;
+
+    private final int payloadMinLength;
+
+    public FormPayload(int payloadSize, int payloadMinLength) {
+        super(payloadSize);
+        this.payloadMinLength = payloadMinLength;
+    }
+
+    @Override
+    protected void generatePayload(PayloadWriter writer, boolean requestId) throws IOException {
+        if (requestId) {
+            writer.write("id=");
+            writer.writeRequestId();
+            writer.write('&');
+        }
+        writer.write("size=");
+        writer.write(Integer.toString(payloadSize));
+        writer.write("B&");
+        // Counter for parameters
+        int n = 0;
+        writer.write(getNextParameterStart(++n));
+        final int limit = payloadSize - writer.getPosition();
+        // Each value has at least one character
+        final int valueLength = Math.max(payloadMinLength, 1);
+        // Index of the next character in the character cycle
+        int c = 0;
+        int i = 0;
+        while (i < limit) {
+            int k = Math.min(valueLength, limit - i);
+            c = writeCharacters(writer, c, k);
+            i += k;
+            if (k == valueLength) {
+                int r = limit - i;
+                final String parameterContinueString = "&" + getNextParameterStart(++n);
+                if (r > parameterContinueString.length()) {
+                    writer.write(parameterContinueString);
+                    i += parameterContinueString.length();
+                }
+            }
+        }
+    }
+
+    private String getNextParameterStart(int n) {
+        return "payload" + n + "=";
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.payload.generator;
+
+import java.io.IOException;
+
+/**
+ * Generate JSON payload. Subclasses define the payload object and complete the payload.
+ */
+public abstract class JsonPayload extends Payload {
+
+    // Length of the request ID field including the separator
+    static final int REQUEST_ID_FIELD_LENGTH = "\"id\":\"\",".length() + PayloadWriter.REQUEST_ID_LENGTH;
+
+    public JsonPayload(int payloadSize) {
+        super(payloadSize);
+    }
+
+    /**
+     * Get the payload as a JSON byte array.
+     */
+    public byte[] getJson() {
+        return getBytes();
+    }
+
+    @Override
+    protected void generatePayload(PayloadWriter writer, boolean requestId) throws IOException {
+        if (requestId) {
+            writer.write("{\"id\":\"");
+            writer.writeRequestId();
+            writer.write("\",\"size\":\"");
+        } else {
+            writer.write("{\"size\":\"");
+        }
+        writer.write(Integer.toString(payloadSize));
+        writer.write("B\",\"payload\":");
+        generatePayloadObject(writer);
+    }
+
+    protected abstract void generatePayloadObject(PayloadWriter writer) throws IOException;
+}
@@ -15,10 +15,12 @@
  */
 package org.wso2.performance.common.payload.generator;
 
+import java.io.IOException;
+
 /**
  * Generate a payload object with multiple members.
  */
-public class ObjectPayload extends Payload {
+public class ObjectPayload extends JsonPayload {
 
     private final int payloadMinLength;
 
@@ -28,32 +30,32 @@ public class ObjectPayload extends Payload {
     }
 
     @Override
-    protected void generatePayloadObject(StringBuilder payloadBuilder) {
-        payloadBuilder.append("{");
+    protected void generatePayloadObject(PayloadWriter writer) throws IOException {
+        writer.write("{");
         // Counter for object members
         int n = 0;
-        payloadBuilder.append(getNextMemberStart(++n));
+        writer.write(getNextMemberStart(++n));
         final String payloadCompletionString = "\"}}";
-        final int limit = payloadSize - (payloadBuilder.toString().getBytes(payloadCharset).length +
-                payloadCompletionString.length());
-        char c = START_CHAR;
-        // Counter to check value length
-        int j = 0;
-        for (int i = 0; i < limit; i++) {
-            payloadBuilder.append(c);
-            c = getNextChar(c);
-            j++;
-            if (j >= payloadMinLength) {
-                j = 0;
-                int r = limit - i - 1;
+        final int limit = payloadSize - (writer.getPosition() + payloadCompletionString.length());
+        // Each value has at least one character
+        final int valueLength = Math.max(payloadMinLength, 1);
+        // Index of the next character in the character cycle
+        int c = 0;
+        int i = 0;
+        while (i < limit) {
+            int k = Math.min(valueLength, limit - i);
+            c = writeCharacters(writer, c, k);
+            i += k;
+            if (k == valueLength) {
+                int r = limit - i;
                 final String memberContinueString = "\"," + getNextMemberStart(++n);
                 if (r > memberContinueString.length()) {
-                    payloadBuilder.append(memberContinueString);
+                    writer.write(memberContinueString);
                     i += memberContinueString.length();
                 }
             }
         }
-        payloadBuilder.append(payloadCompletionString);
+        writer.write(payloadCompletionString);
     }
 
     private String getNextMemberStart(int n) {
@@ -15,34 +15,149 @@
  */
 package org.wso2.performance.common.payload.generator;
 
-import java.nio.charset.Charset;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 
 /**
- * Generate JSON payload. Subclasses defined the object type and completes the payload.
+ * Generate a payload with the exact size. Subclasses define the format of the payload.
+ * <p>
+ * The payload is written through a fixed size buffer, so that a large payload can be written to a file or a socket
+ * without keeping the whole payload in memory.
  */
 public abstract class Payload {
 
+    /**
+     * Minimum payload size of all payload types in bytes. Smaller payloads cannot have the exact size. See
+     * {@link PayloadType#getMinPayloadSize(boolean)} for the minimum size of each type.
+     */
+    public static final int MIN_PAYLOAD_SIZE = 50;
+
     // Characters start with '0'
     protected static final int START_CHAR = '0';
 
-    protected final int payloadSize;
+    // Cycle of the characters returned by getNextChar, starting with START_CHAR
+    private static final byte[] CHARACTERS = createCharacters();
+
+    // Size of the buffer used to write the payload
+    static final int BUFFER_SIZE = 64 * 1024;
 
-    protected final Charset payloadCharset = Charset.forName("UTF-8");
+    protected final int payloadSize;
 
     public Payload(int payloadSize) {
         this.payloadSize = payloadSize;
     }
 
-    public byte[] getJson() {
-        StringBuilder payloadBuilder = new StringBuilder();
-        payloadBuilder.append("{\"size\":\"").append(payloadSize).append("B\",\"payload\":");
-        generatePayloadObject(payloadBuilder);
-        return payloadBuilder.toString().getBytes(payloadCharset);
+    /**
+     * Get the payload as a byte array.
+     */
+    public byte[] getBytes() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(payloadSize);
+        try {
+            writeTo(outputStream);
+        } catch (IOException e) {
+            // Writing to a byte array does not throw an IOException
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Write the payload to an output stream. The stream is not closed.
+     *
+     * @param outputStream The output stream
+     * @return The number of bytes written
+     * @throws IOException If an I/O error occurs
+     */
+    public int writeTo(OutputStream outputStream) throws IOException {
+        return writeTo(Channels.newChannel(outputStream));
+    }
+
+    /**
+     * Write the payload to a channel. The channel is not closed.
+     *
+     * @param channel The channel
+     * @return The number of bytes written
+     * @throws IOException If an I/O error occurs
+     */
+    public int writeTo(WritableByteChannel channel) throws IOException {
+        return writeTo(channel, BUFFER_SIZE);
+    }
+
+    int writeTo(WritableByteChannel channel, int bufferSize) throws IOException {
+        PayloadWriter writer = new PayloadWriter(channel, Math.min(bufferSize, Math.max(payloadSize, 1)));
+        write(writer, false);
+        return writer.getPosition();
     }
 
-    protected abstract void generatePayloadObject(StringBuilder payloadBuilder);
+    /**
+     * Write the payload with random content and an optional random request ID to a channel. The payload is the same
+     * as the payload generated by a {@link RandomPayloadGenerator} with the same seed, but it is not kept in memory.
+     *
+     * @param channel    The channel
+     * @param randomizer The randomizer of the content and the request ID
+     * @param requestId  Whether to write a request ID field
+     * @return The number of bytes written
+     * @throws IOException If an I/O error occurs
+     */
+    int writeTo(WritableByteChannel channel, ContentRandomizer randomizer, boolean requestId) throws IOException {
+        PayloadWriter writer = new PayloadWriter(channel, Math.min(BUFFER_SIZE, Math.max(payloadSize, 1)), null,
+                randomizer);
+        write(writer, requestId);
+        return writer.getPosition();
+    }
+
+    /**
+     * Write the payload and flush the writer. The size of the payload includes the request ID field.
+     *
+     * @param writer    The payload writer
+     * @param requestId Whether to write a request ID field with a placeholder ID
+     * @throws IOException If an I/O error occurs
+     */
+    void write(PayloadWriter writer, boolean requestId) throws IOException {
+        generatePayload(writer, requestId);
+        writer.flush();
+    }
+
+    /**
+     * Generate the payload. The content characters should be written with
+     * {@link #writeCharacters(PayloadWriter, int, int)} and the request ID with {@link PayloadWriter#writeRequestId()}.
+     *
+     * @param writer    The payload writer
+     * @param requestId Whether to write a request ID field
+     * @throws IOException If an I/O error occurs
+     */
+    protected abstract void generatePayload(PayloadWriter writer, boolean requestId) throws IOException;
+
+    /**
+     * Write characters from the character cycle.
+     *
+     * @param writer The payload writer
+     * @param index  The index of the first character in the cycle
+     * @param length The number of characters to write
+     * @return The index of the next character in the cycle
+     * @throws IOException If an I/O error occurs
+     */
+    protected int writeCharacters(PayloadWriter writer, int index, int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int n = Math.min(remaining, CHARACTERS.length - index);
+            writer.writeContent(CHARACTERS, index, n);
+            index = (index + n) % CHARACTERS.length;
+            remaining -= n;
+        }
+        return index;
+    }
 
     protected char getNextChar(char c) {
+        return nextChar(c);
+    }
+
+    private static char nextChar(char c) {
         c++;
         if (c - 1 == '9') {
             c = 'A';
@@ -54,4 +169,14 @@ public abstract class Payload {
         return c;
     }
 
+    private static byte[] createCharacters() {
+        StringBuilder characters = new StringBuilder();
+        char c = START_CHAR;
+        do {
+            characters.append(c);
+            c = nextChar(c);
+        } while (c != START_CHAR);
+        return characters.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
 }
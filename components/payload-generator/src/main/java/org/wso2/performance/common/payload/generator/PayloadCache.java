@@ -0,0 +1,229 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.payload.generator;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of generated payloads, which can be used to get payloads without generating them for every
+ * request. For example, a load generator can get the same payload for every request with no copy.
+ * <p>
+ * The payloads are kept by the type and size in a concurrent map, so that the hits do not take a lock. A missing
+ * payload is generated once even if it is requested by many threads at the same time. The payloads are evicted when
+ * the total size of the payloads exceeds the max size, using the second-chance (clock) algorithm to approximate the
+ * least recently used order: a payload, which was used after it was added or after the previous eviction attempt, is
+ * kept for another round. A payload larger than the max size is generated for every call.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class PayloadCache {
+
+    /**
+     * Default max size of the cached payloads in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Default minimum length of the payload strings of the ARRAY and OBJECT payloads in bytes.
+     */
+    public static final int DEFAULT_PAYLOAD_MIN_LENGTH = 10;
+
+    private final long maxSize;
+    private final int payloadMinLength;
+    private final ConcurrentMap<Key, Entry> payloads = new ConcurrentHashMap<>();
+    // Generated payloads in the eviction order. The queue and the size are guarded by this cache.
+    private final ArrayDeque<Entry> evictionQueue = new ArrayDeque<>();
+    private long size;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create a cache with the default max size and payload min length.
+     */
+    public PayloadCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_PAYLOAD_MIN_LENGTH);
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param maxSize          The max size of the cached payloads in bytes
+     * @param payloadMinLength The minimum length of the payload strings of the ARRAY and OBJECT payloads in bytes
+     */
+    public PayloadCache(long maxSize, int payloadMinLength) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The max size cannot be negative");
+        }
+        if (payloadMinLength <= 0) {
+            throw new IllegalArgumentException("The payload min length should be positive");
+        }
+        this.maxSize = maxSize;
+        this.payloadMinLength = payloadMinLength;
+    }
+
+    /**
+     * Get a payload. The payload is generated if it is not in the cache.
+     * <p>
+     * The returned buffer is a read-only view of the cached payload with its own position and limit, so that each
+     * caller can read it independently.
+     *
+     * @param payloadType The payload type
+     * @param payloadSize The payload size in bytes
+     * @return A read-only buffer with the payload
+     */
+    public ByteBuffer get(PayloadType payloadType, int payloadSize) {
+        if (payloadType == null) {
+            throw new IllegalArgumentException("The payload type is required");
+        }
+        PayloadSizeValidator.validatePayloadSize(payloadType, payloadSize, false);
+        if (payloadSize > maxSize) {
+            misses.increment();
+            return generate(payloadType, payloadSize).duplicate();
+        }
+        Key key = new Key(payloadType, payloadSize);
+        Entry entry = payloads.get(key);
+        if (entry == null) {
+            entry = payloads.computeIfAbsent(key, Entry::new);
+        }
+        ByteBuffer payload = entry.payload;
+        if (payload == null) {
+            // Generate the payload once. The other callers of the same payload wait for it.
+            synchronized (entry) {
+                payload = entry.payload;
+                if (payload == null) {
+                    misses.increment();
+                    payload = generate(payloadType, payloadSize);
+                    entry.payload = payload;
+                    added(entry);
+                    return payload.duplicate();
+                }
+            }
+        }
+        hits.increment();
+        if (!entry.referenced) {
+            // Avoid writing to the shared entry on every hit
+            entry.referenced = true;
+        }
+        return payload.duplicate();
+    }
+
+    private ByteBuffer generate(PayloadType payloadType, int payloadSize) {
+        return ByteBuffer.wrap(payloadType.createPayload(payloadSize, payloadMinLength).getBytes()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Add a generated payload to the eviction queue and evict the payloads until the total size does not exceed the
+     * max size.
+     */
+    private synchronized void added(Entry entry) {
+        if (payloads.get(entry.key) != entry) {
+            // The cache was cleared while generating the payload
+            return;
+        }
+        evictionQueue.add(entry);
+        size += entry.payload.capacity();
+        while (size > maxSize) {
+            Entry head = evictionQueue.poll();
+            if (head.referenced) {
+                // Give a second chance to the payload used after the previous attempt
+                head.referenced = false;
+                evictionQueue.add(head);
+            } else {
+                payloads.remove(head.key, head);
+                size -= head.payload.capacity();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Remove all payloads from the cache.
+     */
+    public synchronized void clear() {
+        payloads.clear();
+        evictionQueue.clear();
+        size = 0;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized int getEntries() {
+        return evictionQueue.size();
+    }
+
+    /**
+     * Get the total size of the cached payloads in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    private static final class Entry {
+
+        private final Key key;
+        // The payload is set once after generating it
+        private volatile ByteBuffer payload;
+        // Whether the payload was used after it was added or after the previous eviction attempt
+        private volatile boolean referenced;
+
+        private Entry(Key key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Key {
+
+        private final PayloadType payloadType;
+        private final int payloadSize;
+
+        private Key(PayloadType payloadType, int payloadSize) {
+            this.payloadType = payloadType;
+            this.payloadSize = payloadSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return payloadType == key.payloadType && payloadSize == key.payloadSize;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * payloadType.hashCode() + payloadSize;
+        }
+    }
+}
@@ -18,28 +18,59 @@ package org.wso2.performance.common.payload.generator;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Generate a JSON payload for a given size
+ * Generate payloads for the given sizes and types. The payloads are generated in parallel in a single JVM.
  */
 public final class PayloadGenerator {
 
-    @Parameter(names = {"-s", "--size"}, description = "Size in bytes (B)", required = true,
-            validateWith = PayloadSizeValidator.class)
-    private int payloadSize;
+    @Parameter(names = {"-s", "--size"}, description = "Size in bytes (B). You can give multiple sizes",
+            required = true, validateWith = PayloadSizeValidator.class)
+    private List<Integer> payloadSizes;
 
-    @Parameter(names = {"-t", "--payload-type"}, description = "Type of payload object to generate")
-    private PayloadType payloadType = PayloadType.SIMPLE;
+    @Parameter(names = {"-t", "--payload-type"}, description = "Type of payload object to generate. You can give " +
+            "multiple types. The payloads of each type are written to a separate directory if there are multiple types")
+    private List<PayloadType> payloadTypes = new ArrayList<>(Collections.singletonList(PayloadType.SIMPLE));
 
     @Parameter(names = "--payload-min-length", description = "Minimum length of payload string in bytes (B). " +
             "Use with --payload-type ARRAY or OBJECT", validateWith = PayloadMinLengthValidator.class)
     private int payloadMinLength = 10;
 
+    @Parameter(names = "--entropy", description = "Fraction of the payload content to replace with random " +
+            "characters, from 0 to 1")
+    private double entropy = 0;
+
+    @Parameter(names = "--request-id", description = "Add a field with a random request ID to each payload")
+    private boolean requestId = false;
+
+    @Parameter(names = "--seed", description = "Seed to generate the random content and request IDs")
+    private long seed = 0;
+
+    @Parameter(names = {"-d", "--output-directory"}, description = "Directory to write the payload files")
+    private File outputDirectory = new File(".");
+
+    @Parameter(names = "--parallelism", description = "Number of payloads to generate in parallel")
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
     @Parameter(names = {"-h", "--help"}, description = "Display Help", help = true)
     private boolean help = false;
 
@@ -47,6 +78,19 @@ public final class PayloadGenerator {
     private static PrintStream standardOutput = System.out;
 
     public static void main(String[] args) {
+        int status = run(args);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Parse the arguments and write the payloads.
+     *
+     * @param args The command line arguments
+     * @return The exit status, which is non-zero if the arguments are invalid or a payload could not be written
+     */
+    static int run(String... args) {
         PayloadGenerator payloadGenerator = new PayloadGenerator();
         final JCommander jcmdr = new JCommander(payloadGenerator);
         jcmdr.setProgramName(PayloadGenerator.class.getSimpleName());
@@ -55,43 +99,145 @@ public final class PayloadGenerator {
             jcmdr.parse(args);
         } catch (Exception e) {
             errorOutput.println(e.getMessage());
-            System.exit(1);
-            return;
+            return 1;
         }
 
         if (payloadGenerator.help) {
             jcmdr.usage();
-            return;
+            return 0;
         }
 
-        payloadGenerator.writePayload();
+        if (payloadGenerator.parallelism <= 0) {
+            errorOutput.println("Parameter --parallelism should be positive");
+            return 1;
+        }
+
+        String randomError = payloadGenerator.validateRandomContent();
+        if (randomError != null) {
+            errorOutput.println(randomError);
+            return 1;
+        }
+
+        String sizeError = payloadGenerator.validatePayloadSizes();
+        if (sizeError != null) {
+            errorOutput.println(sizeError);
+            return 1;
+        }
+
+        return payloadGenerator.writePayloads() ? 0 : 1;
     }
 
-    private void writePayload() {
-        Payload payload;
-        switch (payloadType) {
-            case SIMPLE:
-                payload = new SimplePayload(payloadSize);
-                break;
-            case ARRAY:
-                payload = new ArrayPayload(payloadSize, payloadMinLength);
-                break;
-            case OBJECT:
-                payload = new ObjectPayload(payloadSize, payloadMinLength);
+    private String validatePayloadSizes() {
+        try {
+            for (PayloadType type : payloadTypes) {
+                for (int size : payloadSizes) {
+                    PayloadSizeValidator.validatePayloadSize(type, size, requestId);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    private String validateRandomContent() {
+        if (!(entropy >= 0 && entropy <= 1)) {
+            return "Parameter --entropy should be between 0 and 1";
+        }
+        return null;
+    }
+
+    /**
+     * Write the payloads for all sizes and types using a fork-join pool.
+     *
+     * @return {@code true} if all payloads were written
+     */
+    private boolean writePayloads() {
+        // Ignore the duplicates to avoid writing the same file concurrently
+        List<Integer> sizes = new ArrayList<>(new LinkedHashSet<>(payloadSizes));
+        List<PayloadType> types = new ArrayList<>(new LinkedHashSet<>(payloadTypes));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long startTime = System.nanoTime();
+        List<ForkJoinTask<Integer>> tasks = new ArrayList<>(sizes.size() * types.size());
+        // The current directory is normalized to an empty path
+        Path baseDirectory = outputDirectory.toPath().normalize();
+        for (PayloadType type : types) {
+            Path directory = types.size() > 1 ? baseDirectory.resolve(type.name().toLowerCase(Locale.ROOT)) :
+                    baseDirectory;
+            for (int size : sizes) {
+                tasks.add(pool.submit(() -> writePayload(type, size, createPayloadSource(type, size), directory)));
+            }
+        }
+        long totalBytes = 0;
+        int files = 0;
+        for (ForkJoinTask<Integer> task : tasks) {
+            try {
+                int writtenBytes = task.get();
+                if (writtenBytes >= 0) {
+                    totalBytes += writtenBytes;
+                    files++;
+                }
+            } catch (ExecutionException e) {
+                errorOutput.println(e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
                 break;
-            default:
-                throw new IllegalStateException("Unknown payload type.");
+            }
         }
-        byte[] payloadBytes = payload.getJson();
-        String fileName = MessageFormat.format("{0,number,#}B.json", payloadSize);
+        long elapsedTime = System.nanoTime() - startTime;
+        pool.shutdown();
+
+        double seconds = elapsedTime / (double) TimeUnit.SECONDS.toNanos(1);
+        standardOutput.println(MessageFormat.format("Wrote {0} payload files with {1} bytes in {2,number,#.###} " +
+                "seconds with parallelism {3}. Throughput: {4,number,#.##} MiB/s", files, totalBytes, seconds,
+                parallelism, totalBytes / (1024D * 1024D) / seconds));
+        return files == tasks.size();
+    }
+
+    private PayloadSource createPayloadSource(PayloadType type, int size) {
+        if (entropy > 0 || requestId) {
+            // Stream the random content instead of keeping the payload in memory
+            Payload payload = type.createPayload(size, payloadMinLength);
+            ContentRandomizer randomizer = new ContentRandomizer(entropy, new SplittableRandom(seed));
+            return channel -> payload.writeTo(channel, randomizer, requestId);
+        }
+        return type.createPayload(size, payloadMinLength)::writeTo;
+    }
+
+    /**
+     * Write a payload to a file in the given directory.
+     *
+     * @return The number of bytes written or -1 if the payload could not be written
+     */
+    private static int writePayload(PayloadType type, int size, PayloadSource payload, Path directory) {
+        Path file = directory.resolve(MessageFormat.format("{0,number,#}B.{1}", size, type.getFileExtension()));
+        int writtenBytes;
         try {
-            Files.write(Paths.get(fileName), payloadBytes);
+            if (!Files.isDirectory(directory)) {
+                Files.createDirectories(directory);
+            }
+            // Stream the payload to the file without keeping it in memory
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writtenBytes = payload.writeTo(channel);
+            }
         } catch (IOException e) {
-            errorOutput.println(e.getMessage());
+            errorOutput.println(MessageFormat.format("Failed to write {0}: {1}", file, e));
+            return -1;
         }
 
-        standardOutput.println(MessageFormat.format("Wrote {0} bytes JSON payload file to {1}",
-                payloadBytes.length, fileName));
+        standardOutput.println(MessageFormat.format("Wrote {0} bytes {1} payload file to {2}",
+                writtenBytes, type, file));
+        return writtenBytes;
+    }
+
+    /**
+     * Writes a payload to a channel.
+     */
+    @FunctionalInterface
+    private interface PayloadSource {
+
+        int writeTo(WritableByteChannel channel) throws IOException;
     }
 
 }
@@ -24,10 +24,30 @@ import com.beust.jcommander.ParameterException;
 public class PayloadSizeValidator implements IParameterValidator {
 
     public void validate(String name, String value) throws ParameterException {
-        int n = Integer.parseInt(value);
-        if (n < 50) {
-            throw new ParameterException("Parameter " + name +
-                    " should be greater than or equal 50 (found " + value + ")");
+        // Multiple sizes can be given as comma separated values
+        for (String size : value.split(",")) {
+            int n = Integer.parseInt(size.trim());
+            if (n < Payload.MIN_PAYLOAD_SIZE) {
+                throw new ParameterException("Parameter " + name + " should be greater than or equal " +
+                        Payload.MIN_PAYLOAD_SIZE + " (found " + size + ")");
+            }
+        }
+    }
+
+    /**
+     * Validate the payload size for a payload type.
+     *
+     * @param payloadType The payload type
+     * @param payloadSize The payload size in bytes
+     * @param requestId   Whether the payload has a request ID field
+     * @throws IllegalArgumentException If the payload size is smaller than the minimum size of the payload type
+     */
+    static void validatePayloadSize(PayloadType payloadType, int payloadSize, boolean requestId) {
+        int minPayloadSize = payloadType.getMinPayloadSize(requestId);
+        if (payloadSize < minPayloadSize) {
+            throw new IllegalArgumentException("The payload size of type " + payloadType +
+                    (requestId ? " with a request ID" : "") + " should be greater than or equal " + minPayloadSize +
+                    " (found " + payloadSize + ")");
         }
     }
 
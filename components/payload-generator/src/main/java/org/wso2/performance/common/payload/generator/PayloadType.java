@@ -19,7 +19,92 @@ package org.wso2.performance.common.payload.generator;
  * Payload object type to generate.
  */
 public enum PayloadType {
-    SIMPLE,
-    ARRAY,
-    OBJECT
+    SIMPLE("application/json", "json", Payload.MIN_PAYLOAD_SIZE, JsonPayload.REQUEST_ID_FIELD_LENGTH) {
+        @Override
+        public Payload createPayload(int payloadSize, int payloadMinLength) {
+            return new SimplePayload(payloadSize);
+        }
+    },
+    ARRAY("application/json", "json", Payload.MIN_PAYLOAD_SIZE, JsonPayload.REQUEST_ID_FIELD_LENGTH) {
+        @Override
+        public Payload createPayload(int payloadSize, int payloadMinLength) {
+            return new ArrayPayload(payloadSize, payloadMinLength);
+        }
+    },
+    OBJECT("application/json", "json", Payload.MIN_PAYLOAD_SIZE, JsonPayload.REQUEST_ID_FIELD_LENGTH) {
+        @Override
+        public Payload createPayload(int payloadSize, int payloadMinLength) {
+            return new ObjectPayload(payloadSize, payloadMinLength);
+        }
+    },
+    // The XML payloads need more space for the markup
+    XML("application/xml", "xml", 63, XmlPayload.REQUEST_ID_FIELD_LENGTH) {
+        @Override
+        public Payload createPayload(int payloadSize, int payloadMinLength) {
+            return new XmlPayload(payloadSize, payloadMinLength);
+        }
+    },
+    SOAP("text/xml", "xml", 188, XmlPayload.REQUEST_ID_FIELD_LENGTH) {
+        @Override
+        public Payload createPayload(int payloadSize, int payloadMinLength) {
+            return new SoapPayload(payloadSize, payloadMinLength);
+        }
+    },
+    FORM("application/x-www-form-urlencoded", "txt", Payload.MIN_PAYLOAD_SIZE, FormPayload.REQUEST_ID_FIELD_LENGTH) {
+        @Override
+        public Payload createPayload(int payloadSize, int payloadMinLength) {
+            return new FormPayload(payloadSize, payloadMinLength);
+        }
+    },
+    BINARY("application/octet-stream", "bin", Payload.MIN_PAYLOAD_SIZE, BinaryPayload.REQUEST_ID_FIELD_LENGTH) {
+        @Override
+        public Payload createPayload(int payloadSize, int payloadMinLength) {
+            return new BinaryPayload(payloadSize, payloadMinLength);
+        }
+    };
+
+    private final String contentType;
+    private final String fileExtension;
+    private final int minPayloadSize;
+    private final int requestIdFieldLength;
+
+    PayloadType(String contentType, String fileExtension, int minPayloadSize, int requestIdFieldLength) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+        this.minPayloadSize = minPayloadSize;
+        this.requestIdFieldLength = requestIdFieldLength;
+    }
+
+    /**
+     * Create a payload of this type.
+     *
+     * @param payloadSize      The payload size in bytes
+     * @param payloadMinLength The minimum length of a payload string in bytes. Not used by the SIMPLE type
+     * @return The payload
+     */
+    public abstract Payload createPayload(int payloadSize, int payloadMinLength);
+
+    /**
+     * Get the media type of the payloads, which can be used as the content type of a request.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Get the extension of the payload files.
+     */
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Get the minimum size of a payload of this type, which can be generated with the exact size.
+     *
+     * @param requestId Whether the payload has a request ID field
+     * @return The minimum payload size in bytes
+     */
+    public int getMinPayloadSize(boolean requestId) {
+        return requestId ? minPayloadSize + requestIdFieldLength : minPayloadSize;
+    }
 }
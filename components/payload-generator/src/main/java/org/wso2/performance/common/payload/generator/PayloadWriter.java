@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.payload.generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes the characters of a payload to a channel through a fixed size buffer. The text payloads contain only ASCII
+ * characters and each character is written as a single byte, which is the same as the UTF-8 encoding.
+ */
+public final class PayloadWriter {
+
+    // Length of a request ID, which is a 64-bit number in hexadecimal
+    static final int REQUEST_ID_LENGTH = 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    // Ranges of the content characters, if they are recorded
+    private final ContentRanges contentRanges;
+    // Randomizer of the content and the request ID, if the payload is randomized while writing
+    private final ContentRandomizer randomizer;
+    // Bytes written, including the buffered bytes
+    private int position;
+    private int requestIdOffset = -1;
+    // End of the previous content range and the remaining characters of its last group
+    private int contentEnd = -1;
+    private int groupRemaining;
+    private boolean randomGroup;
+
+    PayloadWriter(WritableByteChannel channel, int bufferSize) {
+        this(channel, bufferSize, null);
+    }
+
+    PayloadWriter(WritableByteChannel channel, int bufferSize, ContentRanges contentRanges) {
+        this(channel, bufferSize, contentRanges, null);
+    }
+
+    PayloadWriter(WritableByteChannel channel, int bufferSize, ContentRanges contentRanges,
+                  ContentRandomizer randomizer) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.contentRanges = contentRanges;
+        this.randomizer = randomizer;
+    }
+
+    /**
+     * Write an ASCII character.
+     */
+    public void write(char c) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) c);
+        position++;
+    }
+
+    /**
+     * Write a byte of a binary payload.
+     */
+    public void writeByte(int b) throws IOException {
+        write((char) (b & 0xFF));
+    }
+
+    /**
+     * Write the request ID. A placeholder is written, which is replaced with a unique ID for each random payload,
+     * unless the payload is randomized while writing.
+     */
+    public void writeRequestId() throws IOException {
+        requestIdOffset = position;
+        if (randomizer != null) {
+            byte[] id = new byte[REQUEST_ID_LENGTH];
+            randomizer.nextRequestId(id, 0);
+            write(id, 0, id.length);
+            return;
+        }
+        for (int i = 0; i < REQUEST_ID_LENGTH; i++) {
+            write('0');
+        }
+    }
+
+    /**
+     * Write a string of ASCII characters.
+     */
+    public void write(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            write(s.charAt(i));
+        }
+    }
+
+    /**
+     * Write a range of ASCII characters encoded as bytes.
+     */
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        int end = offset + length;
+        while (offset < end) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int n = Math.min(buffer.remaining(), end - offset);
+            buffer.put(bytes, offset, n);
+            offset += n;
+        }
+        position += length;
+    }
+
+    /**
+     * Write a range of content characters, which can be replaced with random characters without changing the
+     * structure of the payload.
+     */
+    void writeContent(byte[] bytes, int offset, int length) throws IOException {
+        if (contentRanges != null) {
+            contentRanges.add(position, length);
+        }
+        if (randomizer == null || !randomizer.hasEntropy()) {
+            write(bytes, offset, length);
+            return;
+        }
+        // Adjacent content is a single range, which continues the last group
+        if (position != contentEnd) {
+            groupRemaining = 0;
+        }
+        int end = offset + length;
+        while (offset < end) {
+            if (groupRemaining == 0) {
+                groupRemaining = ContentRandomizer.GROUP_SIZE;
+                randomGroup = randomizer.nextGroup();
+            }
+            int n = Math.min(groupRemaining, end - offset);
+            if (randomGroup) {
+                for (int i = 0; i < n; i++) {
+                    write((char) randomizer.nextChar());
+                }
+            } else {
+                write(bytes, offset, n);
+            }
+            offset += n;
+            groupRemaining -= n;
+        }
+        contentEnd = position;
+    }
+
+    /**
+     * Get the number of bytes written so far.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Get the offset of the request ID.
+     *
+     * @return The offset or -1 if the request ID was not written
+     */
+    int getRequestIdOffset() {
+        return requestIdOffset;
+    }
+
+    /**
+     * Write the buffered bytes to the channel.
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.payload.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.SplittableRandom;
+
+/**
+ * Generates payloads with random content, so that the system under test cannot benefit from caching or compressing
+ * identical payloads. Each payload has the exact size and the same structure as the payload of the given type.
+ * <p>
+ * The entropy is the fraction of the content characters replaced with random characters. The content characters are
+ * replaced in groups, so that the rest of the content keeps the compressible character cycle. Each random character
+ * has 6 bits of entropy. An optional request ID field with a random 64-bit ID in hexadecimal is added to each
+ * payload. The IDs do not repeat within a generator.
+ * <p>
+ * The payloads are generated with a seeded {@link SplittableRandom}, so that the same seed gives the same sequence of
+ * payloads. A payload is generated in a buffer reused for every payload, without allocating memory. The generator
+ * keeps the payload template and a copy of it in memory. The {@link PayloadGenerator} streams the random content to
+ * the payload files instead, so that large files can be generated in constant memory.
+ * <p>
+ * This class is not thread-safe. Use {@link #split()} to create a generator for each thread.
+ */
+public final class RandomPayloadGenerator {
+
+    // The payload with the original content, which is shared by the split generators
+    private final byte[] template;
+    private final ContentRanges contentRanges;
+    // Offset of the request ID or -1 if the payloads do not have a request ID
+    private final int requestIdOffset;
+    private final ContentRandomizer randomizer;
+    // The generated payload
+    private final byte[] payload;
+    private final ByteBuffer payloadBuffer;
+
+    /**
+     * Create a generator.
+     *
+     * @param payloadType      The payload type
+     * @param payloadSize      The payload size in bytes
+     * @param payloadMinLength The minimum length of a payload string in bytes. Used only by the ARRAY and OBJECT types
+     * @param entropy          The fraction of the content characters to replace with random characters from 0 to 1
+     * @param requestId        Whether to add a unique request ID field
+     * @param seed             The seed of the random number generator
+     */
+    public RandomPayloadGenerator(PayloadType payloadType, int payloadSize, int payloadMinLength, double entropy,
+                                  boolean requestId, long seed) {
+        if (payloadType == null) {
+            throw new IllegalArgumentException("The payload type is required");
+        }
+        PayloadSizeValidator.validatePayloadSize(payloadType, payloadSize, requestId);
+        if (payloadMinLength <= 0) {
+            throw new IllegalArgumentException("The payload min length should be positive");
+        }
+        if (!(entropy >= 0 && entropy <= 1)) {
+            throw new IllegalArgumentException("The entropy should be between 0 and 1");
+        }
+        this.contentRanges = new ContentRanges();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(payloadSize);
+        PayloadWriter writer = new PayloadWriter(Channels.newChannel(outputStream), Payload.BUFFER_SIZE, contentRanges);
+        try {
+            payloadType.createPayload(payloadSize, payloadMinLength).write(writer, requestId);
+        } catch (IOException e) {
+            // Writing to a byte array does not throw an IOException
+            throw new UncheckedIOException(e);
+        }
+        this.template = outputStream.toByteArray();
+        this.requestIdOffset = writer.getRequestIdOffset();
+        this.randomizer = new ContentRandomizer(entropy, new SplittableRandom(seed));
+        this.payload = template.clone();
+        this.payloadBuffer = ByteBuffer.wrap(payload).asReadOnlyBuffer();
+    }
+
+    private RandomPayloadGenerator(RandomPayloadGenerator parent, ContentRandomizer randomizer) {
+        this.template = parent.template;
+        this.contentRanges = parent.contentRanges;
+        this.requestIdOffset = parent.requestIdOffset;
+        this.randomizer = randomizer;
+        this.payload = template.clone();
+        this.payloadBuffer = ByteBuffer.wrap(payload).asReadOnlyBuffer();
+    }
+
+    /**
+     * Create a new generator, which shares the payload template with this generator and generates a different
+     * sequence of payloads. The new generator can be used by another thread.
+     *
+     * @return The new generator
+     */
+    public RandomPayloadGenerator split() {
+        return new RandomPayloadGenerator(this, randomizer.split());
+    }
+
+    /**
+     * Generate the next payload.
+     * <p>
+     * The returned buffer is a read-only view of the payload, which is reused for every payload. The content of the
+     * buffer changes when the next payload is generated.
+     *
+     * @return A read-only buffer with the payload
+     */
+    public ByteBuffer next() {
+        // The request ID is generated first, as when the payload is streamed
+        if (requestIdOffset >= 0) {
+            randomizer.nextRequestId(payload, requestIdOffset);
+        }
+        if (randomizer.hasEntropy()) {
+            randomizeContent();
+        }
+        payloadBuffer.clear();
+        return payloadBuffer;
+    }
+
+    /**
+     * Generate the next payload and write it to a channel. The channel is not closed.
+     *
+     * @param channel The channel
+     * @return The number of bytes written
+     * @throws IOException If an I/O error occurs
+     */
+    public int writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = next();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return payload.length;
+    }
+
+    private void randomizeContent() {
+        for (int r = 0; r < contentRanges.size(); r++) {
+            int offset = contentRanges.offset(r);
+            int end = offset + contentRanges.length(r);
+            while (offset < end) {
+                int n = Math.min(ContentRandomizer.GROUP_SIZE, end - offset);
+                if (randomizer.nextGroup()) {
+                    for (int i = offset; i < offset + n; i++) {
+                        payload[i] = randomizer.nextChar();
+                    }
+                } else {
+                    // Restore the characters replaced by a previous payload
+                    System.arraycopy(template, offset, payload, offset, n);
+                }
+                offset += n;
+            }
+        }
+    }
+
+    /**
+     * Get the size of the generated payloads in bytes.
+     */
+    public int getPayloadSize() {
+        return payload.length;
+    }
+}
@@ -15,26 +15,23 @@
  */
 package org.wso2.performance.common.payload.generator;
 
+import java.io.IOException;
+
 /**
  * Generate a simple payload.
  */
-public class SimplePayload extends Payload {
+public class SimplePayload extends JsonPayload {
 
     public SimplePayload(int payloadSize) {
         super(payloadSize);
     }
 
     @Override
-    protected void generatePayloadObject(StringBuilder payloadBuilder) {
-        payloadBuilder.append("\"");
+    protected void generatePayloadObject(PayloadWriter writer) throws IOException {
+        writer.write("\"");
         final String payloadCompletionString = "\"}";
-        final int limit = payloadSize - (payloadBuilder.toString().getBytes(payloadCharset).length +
-                payloadCompletionString.length());
-        char c = START_CHAR;
-        for (int i = 0; i < limit; i++) {
-            payloadBuilder.append(c);
-            c = getNextChar(c);
-        }
-        payloadBuilder.append(payloadCompletionString);
+        final int limit = payloadSize - (writer.getPosition() + payloadCompletionString.length());
+        writeCharacters(writer, 0, limit);
+        writer.write(payloadCompletionString);
     }
 }
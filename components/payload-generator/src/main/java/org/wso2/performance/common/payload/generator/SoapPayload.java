@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.payload.generator;
+
+/**
+ * Generate a SOAP 1.1 envelope with a nested XML payload in the body.
+ */
+public class SoapPayload extends XmlPayload {
+
+    public SoapPayload(int payloadSize, int payloadMinLength) {
+        super(payloadSize, payloadMinLength);
+    }
+
+    @Override
+    protected String getDocumentStart() {
+        return "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body>";
+    }
+
+    @Override
+    protected String getDocumentEnd() {
+        return "</soapenv:Body></soapenv:Envelope>";
+    }
+}
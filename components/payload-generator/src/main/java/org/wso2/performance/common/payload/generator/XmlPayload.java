@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.payload.generator;
+
+import java.io.IOException;
+
+/**
+ * Generate a nested XML payload. The root element has records and each record has a number of values.
+ */
+public class XmlPayload extends Payload {
+
+    // Length of the request ID attribute including the separator
+    static final int REQUEST_ID_FIELD_LENGTH = " id=\"\"".length() + PayloadWriter.REQUEST_ID_LENGTH;
+
+    // Number of values in a record
+    private static final int RECORD_VALUES = 4;
+    private static final String VALUE_CONTINUE_STRING = "</value><value>";
+    private static final String RECORD_CONTINUE_STRING = "</value></record><record><value>";
+
+    private final int payloadMinLength;
+
+    public XmlPayload(int payloadSize, int payloadMinLength) {
+        super(payloadSize);
+        this.payloadMinLength = payloadMinLength;
+    }
+
+    @Override
+    protected void generatePayload(PayloadWriter writer, boolean requestId) throws IOException {
+        writer.write(getDocumentStart());
+        writer.write("<payload");
+        if (requestId) {
+            writer.write(" id=\"");
+            writer.writeRequestId();
+            writer.write('"');
+        }
+        writer.write(" size=\"");
+        writer.write(Integer.toString(payloadSize));
+        writer.write("B\"><record><value>");
+        final String payloadCompletionString = "</value></record></payload>" + getDocumentEnd();
+        final int limit = payloadSize - (writer.getPosition() + payloadCompletionString.length());
+        // Each value has at least one character
+        final int valueLength = Math.max(payloadMinLength, 1);
+        // Index of the next character in the character cycle
+        int c = 0;
+        // Counter for the values of the current record
+        int values = 1;
+        int i = 0;
+        while (i < limit) {
+            int k = Math.min(valueLength, limit - i);
+            c = writeCharacters(writer, c, k);
+            i += k;
+            if (k == valueLength) {
+                int r = limit - i;
+                final String continueString = values < RECORD_VALUES ? VALUE_CONTINUE_STRING :
+                        RECORD_CONTINUE_STRING;
+                if (r > continueString.length()) {
+                    writer.write(continueString);
+                    i += continueString.length();
+                    values = values < RECORD_VALUES ? values + 1 : 1;
+                }
+            }
+        }
+        writer.write(payloadCompletionString);
+    }
+
+    /**
+     * Get the markup written before the payload element.
+     */
+    protected String getDocumentStart() {
+        return "";
+    }
+
+    /**
+     * Get the markup written after the payload element.
+     */
+    protected String getDocumentEnd() {
+        return "";
+    }
+}
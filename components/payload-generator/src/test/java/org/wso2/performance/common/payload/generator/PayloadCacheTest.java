@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.payload.generator;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Payload cache tests.
+ */
+public class PayloadCacheTest {
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Test
+    private void testPayload() {
+        PayloadCache cache = new PayloadCache();
+        for (PayloadType payloadType : PayloadType.values()) {
+            ByteBuffer payload = cache.get(payloadType, 1024);
+            Assert.assertTrue(payload.isReadOnly(), "Payload is not read-only");
+            Assert.assertEquals(getBytes(payload), payloadType.createPayload(1024, 10).getBytes(), "Invalid payload");
+        }
+        Assert.assertEquals(cache.getMisses(), PayloadType.values().length);
+        Assert.assertEquals(cache.getHits(), 0);
+        Assert.assertEquals(cache.getSize(), 1024 * PayloadType.values().length);
+    }
+
+    @Test
+    private void testHit() {
+        PayloadCache cache = new PayloadCache();
+        ByteBuffer first = cache.get(PayloadType.OBJECT, 1024);
+        // Reading a payload should not change the payload returned to other callers
+        byte[] expected = getBytes(first);
+        ByteBuffer second = cache.get(PayloadType.OBJECT, 1024);
+        Assert.assertEquals(second.position(), 0);
+        Assert.assertEquals(getBytes(second), expected);
+        Assert.assertEquals(cache.getHits(), 1);
+        Assert.assertEquals(cache.getMisses(), 1);
+        Assert.assertEquals(cache.getEntries(), 1);
+    }
+
+    @Test
+    private void testEviction() {
+        PayloadCache cache = new PayloadCache(2048, 10);
+        cache.get(PayloadType.SIMPLE, 1024);
+        cache.get(PayloadType.ARRAY, 1024);
+        // Use the SIMPLE payload to evict the ARRAY payload
+        cache.get(PayloadType.SIMPLE, 1024);
+        cache.get(PayloadType.OBJECT, 1024);
+        Assert.assertEquals(cache.getEvictions(), 1);
+        Assert.assertEquals(cache.getEntries(), 2);
+        Assert.assertEquals(cache.getSize(), 2048);
+        cache.get(PayloadType.SIMPLE, 1024);
+        Assert.assertEquals(cache.getHits(), 2);
+        cache.get(PayloadType.ARRAY, 1024);
+        Assert.assertEquals(cache.getMisses(), 4);
+    }
+
+    @Test
+    private void testEvictionAfterSecondChance() {
+        PayloadCache cache = new PayloadCache(2048, 10);
+        cache.get(PayloadType.SIMPLE, 1024);
+        cache.get(PayloadType.ARRAY, 1024);
+        cache.get(PayloadType.SIMPLE, 1024);
+        cache.get(PayloadType.OBJECT, 1024);
+        // The SIMPLE payload is not used after its second chance
+        cache.get(PayloadType.OBJECT, 1024);
+        cache.get(PayloadType.ARRAY, 1024);
+        Assert.assertEquals(cache.getEvictions(), 2);
+        cache.get(PayloadType.OBJECT, 1024);
+        cache.get(PayloadType.SIMPLE, 1024);
+        Assert.assertEquals(cache.getMisses(), 5, "OBJECT payload is evicted");
+    }
+
+    @Test
+    private void testConcurrentGet() throws Exception {
+        int threads = 8;
+        int iterations = 1000;
+        PayloadType[] payloadTypes = PayloadType.values();
+        PayloadCache cache = new PayloadCache();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < iterations; j++) {
+                        PayloadType payloadType = payloadTypes[j % payloadTypes.length];
+                        Assert.assertEquals(getBytes(cache.get(payloadType, 1024)),
+                                payloadType.createPayload(1024, 10).getBytes(), "Invalid payload");
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        Assert.assertEquals(cache.getMisses(), payloadTypes.length, "Payload is generated more than once");
+        Assert.assertEquals(cache.getHits(), (long) threads * iterations - payloadTypes.length);
+        Assert.assertEquals(cache.getEntries(), payloadTypes.length);
+    }
+
+    @Test
+    private void testConcurrentEviction() throws Exception {
+        int threads = 8;
+        PayloadType[] payloadTypes = PayloadType.values();
+        PayloadCache cache = new PayloadCache(4096, 10);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int offset = i;
+                futures.add(executorService.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        cache.get(payloadTypes[(j + offset) % payloadTypes.length], 1024 + (j % 8) * 128);
+                        Assert.assertTrue(cache.getSize() <= 4096, "Cache exceeds the max size");
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        Assert.assertTrue(cache.getEvictions() > 0, "Payloads are not evicted");
+        Assert.assertEquals(cache.getHits() + cache.getMisses(), threads * 1000L);
+    }
+
+    @Test
+    private void testLargePayload() {
+        PayloadCache cache = new PayloadCache(1000, 10);
+        Assert.assertEquals(cache.get(PayloadType.SIMPLE, 1024).remaining(), 1024);
+        Assert.assertEquals(cache.getEntries(), 0);
+        Assert.assertEquals(cache.getSize(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    private void testInvalidSize() {
+        new PayloadCache().get(PayloadType.SIMPLE, Payload.MIN_PAYLOAD_SIZE - 1);
+    }
+}
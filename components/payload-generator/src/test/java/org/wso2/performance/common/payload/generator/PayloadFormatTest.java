@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.payload.generator;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * XML, SOAP, form and binary payload tests.
+ */
+public class PayloadFormatTest {
+
+    private static final PayloadType[] PAYLOAD_TYPES = {PayloadType.XML, PayloadType.SOAP, PayloadType.FORM,
+            PayloadType.BINARY};
+
+    @DataProvider(name = "payloads")
+    public Object[][] payloads() {
+        List<Object[]> payloads = new ArrayList<>();
+        for (PayloadType payloadType : PAYLOAD_TYPES) {
+            int minPayloadSize = payloadType.getMinPayloadSize(false);
+            for (int size = minPayloadSize; size < minPayloadSize + 300; size++) {
+                payloads.add(new Object[]{payloadType, size});
+            }
+            // The binary records have a two byte length from 128 bytes
+            for (int size = 16000; size < 16500; size += 7) {
+                payloads.add(new Object[]{payloadType, size});
+            }
+            payloads.add(new Object[]{payloadType, 1024});
+            payloads.add(new Object[]{payloadType, 10240});
+            payloads.add(new Object[]{payloadType, 102400});
+        }
+        return payloads.toArray(new Object[payloads.size()][2]);
+    }
+
+    @Test(dataProvider = "payloads")
+    private void testPayload(PayloadType payloadType, int size) {
+        for (int payloadMinLength : new int[]{1, 10, 126, 127, 128, 1000}) {
+            byte[] payload = payloadType.createPayload(size, payloadMinLength).getBytes();
+            Assert.assertEquals(payload.length, size, "Invalid size");
+            Assert.assertNull(PayloadParser.parse(payloadType, payload), "Unexpected request ID");
+        }
+    }
+
+    @Test(dataProvider = "payloads")
+    private void testStreamingPayload(PayloadType payloadType, int size) throws IOException {
+        Payload payload = payloadType.createPayload(size, 10);
+        // Use a small buffer to flush many times
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        int writtenBytes = payload.writeTo(Channels.newChannel(outputStream), 7);
+        Assert.assertEquals(writtenBytes, outputStream.size(), "Invalid written bytes");
+        Assert.assertEquals(outputStream.toByteArray(), payload.getBytes(), "Streamed payload is different");
+    }
+
+    @Test
+    private void testContentType() {
+        Assert.assertEquals(PayloadType.XML.getContentType(), "application/xml");
+        Assert.assertEquals(PayloadType.SOAP.getContentType(), "text/xml");
+        Assert.assertEquals(PayloadType.FORM.getContentType(), "application/x-www-form-urlencoded");
+        Assert.assertEquals(PayloadType.BINARY.getContentType(), "application/octet-stream");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    private void testInvalidSize() {
+        PayloadSizeValidator.validatePayloadSize(PayloadType.SOAP, PayloadType.SOAP.getMinPayloadSize(false) - 1,
+                false);
+    }
+}
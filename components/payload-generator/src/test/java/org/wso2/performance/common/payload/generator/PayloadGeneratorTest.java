@@ -23,9 +23,17 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.stream.Stream;
 
 /**
  * JSON payload generator tests.
@@ -138,8 +146,88 @@ public class PayloadGeneratorTest {
         testPayload(new ObjectPayload(size, 10).getJson(), expected);
     }
 
+    @Test(dataProvider = "sizes")
+    private void testStreamingPayload(int size) throws IOException {
+        testStreamingPayload(new SimplePayload(size));
+        testStreamingPayload(new ArrayPayload(size, 10));
+        testStreamingPayload(new ObjectPayload(size, 10));
+    }
+
+    private void testStreamingPayload(Payload payload) throws IOException {
+        // Use a small buffer to flush many times
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        int writtenBytes = payload.writeTo(Channels.newChannel(outputStream), 7);
+        Assert.assertEquals(writtenBytes, outputStream.size(), "Invalid written bytes");
+        Assert.assertEquals(outputStream.toByteArray(), payload.getBytes(), "Streamed payload is different");
+    }
+
     private void testPayload(byte[] payload, String expected) {
         String json = new String(payload);
         Assert.assertEquals(json, expected, "Unexpected Json\n" + json);
     }
+
+    private static Path createTempDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("payload-generator");
+        directory.toFile().deleteOnExit();
+        return directory;
+    }
+
+    /**
+     * Get the names of the files in a directory and delete the files on exit.
+     */
+    private static List<String> listFiles(Path directory) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                file.toFile().deleteOnExit();
+                names.add(file.getFileName().toString());
+            });
+        }
+        names.sort(null);
+        return names;
+    }
+
+    @Test
+    private void testWritePayloads() throws IOException {
+        Path directory = createTempDirectory();
+        int status = PayloadGenerator.run("-s", "100", "-s", "1024", "-s", "100", "-t", "ARRAY",
+                "-d", directory.toString(), "--parallelism", "2");
+        Assert.assertEquals(status, 0, "Invalid exit status");
+        Assert.assertEquals(listFiles(directory), Arrays.asList("100B.json", "1024B.json"));
+        Assert.assertEquals(Files.readAllBytes(directory.resolve("100B.json")), new ArrayPayload(100, 10).getJson());
+        Assert.assertEquals(Files.size(directory.resolve("1024B.json")), 1024L);
+    }
+
+    @Test
+    private void testWritePayloadsOfTypes() throws IOException {
+        Path directory = createTempDirectory();
+        int status = PayloadGenerator.run("-s", "100", "-s", "2048", "-t", "SIMPLE", "-t", "XML", "-t", "FORM",
+                "-d", directory.toString());
+        Assert.assertEquals(status, 0, "Invalid exit status");
+        // A directory for each type
+        Assert.assertEquals(listFiles(directory), Arrays.asList("form", "simple", "xml"));
+        Assert.assertEquals(listFiles(directory.resolve("simple")), Arrays.asList("100B.json", "2048B.json"));
+        Assert.assertEquals(listFiles(directory.resolve("xml")), Arrays.asList("100B.xml", "2048B.xml"));
+        Assert.assertEquals(listFiles(directory.resolve("form")), Arrays.asList("100B.txt", "2048B.txt"));
+        Assert.assertEquals(Files.size(directory.resolve("simple").resolve("2048B.json")), 2048L);
+        Assert.assertEquals(Files.size(directory.resolve("xml").resolve("2048B.xml")), 2048L);
+        Assert.assertEquals(Files.size(directory.resolve("form").resolve("2048B.txt")), 2048L);
+        String xml = new String(Files.readAllBytes(directory.resolve("xml").resolve("100B.xml")),
+                StandardCharsets.UTF_8);
+        Assert.assertTrue(xml.startsWith("<"), "Invalid XML payload: " + xml);
+    }
+
+    @Test
+    private void testWritePayloadsFailure() throws IOException {
+        Path directory = createTempDirectory();
+        // The directory of the XML payloads cannot be created
+        Path xmlDirectory = Files.createFile(directory.resolve("xml"));
+        int status = PayloadGenerator.run("-s", "100", "-s", "200", "-t", "SIMPLE", "-t", "XML",
+                "-d", directory.toString());
+        Assert.assertNotEquals(status, 0, "Exit status is zero when a payload is not written");
+        Assert.assertEquals(listFiles(directory), Arrays.asList("simple", "xml"));
+        Assert.assertTrue(Files.isRegularFile(xmlDirectory), "File is replaced");
+        // The other payloads are written
+        Assert.assertEquals(listFiles(directory.resolve("simple")), Arrays.asList("100B.json", "200B.json"));
+    }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.payload.generator;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.testng.Assert;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Parse the generated payloads to validate the format of each payload type.
+ */
+final class PayloadParser {
+
+    private static final String SOAP_NAMESPACE = "http://schemas.xmlsoap.org/soap/envelope/";
+
+    private PayloadParser() {
+    }
+
+    /**
+     * Validate the format of a payload.
+     *
+     * @param payloadType The payload type
+     * @param payload     The payload
+     * @return The request ID or {@code null} if the payload does not have a request ID
+     */
+    static String parse(PayloadType payloadType, byte[] payload) {
+        String text = new String(payload, StandardCharsets.US_ASCII);
+        switch (payloadType) {
+            case SIMPLE:
+            case ARRAY:
+            case OBJECT:
+                return parseJson(text, payload.length);
+            case XML:
+                return parseXml(parseDocument(payload).getDocumentElement(), payload.length, text);
+            case SOAP:
+                return parseSoap(parseDocument(payload), payload.length, text);
+            case FORM:
+                return parseForm(text, payload.length);
+            case BINARY:
+                return parseBinary(payload);
+            default:
+                throw new IllegalArgumentException("Unknown payload type " + payloadType);
+        }
+    }
+
+    private static String parseJson(String json, int size) {
+        Assert.assertFalse(json.contains("\"\""), "Empty values are not allowed\n" + json);
+        JsonElement element = new JsonParser().parse(json);
+        Assert.assertTrue(element.isJsonObject(), "Invalid Json object\n" + json);
+        JsonObject object = element.getAsJsonObject();
+        Assert.assertEquals(object.get("size").getAsString(), size + "B", "Invalid size field\n" + json);
+        return object.has("id") ? object.get("id").getAsString() : null;
+    }
+
+    private static Document parseDocument(byte[] payload) {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        try {
+            return factory.newDocumentBuilder().parse(new ByteArrayInputStream(payload));
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new AssertionError("Invalid XML\n" + new String(payload, StandardCharsets.US_ASCII), e);
+        }
+    }
+
+    private static String parseSoap(Document document, int size, String xml) {
+        Element envelope = document.getDocumentElement();
+        Assert.assertEquals(envelope.getNamespaceURI(), SOAP_NAMESPACE, "Invalid envelope\n" + xml);
+        Assert.assertEquals(envelope.getLocalName(), "Envelope", "Invalid envelope\n" + xml);
+        Node body = envelope.getFirstChild();
+        Assert.assertEquals(body.getNamespaceURI(), SOAP_NAMESPACE, "Invalid body\n" + xml);
+        Assert.assertEquals(body.getLocalName(), "Body", "Invalid body\n" + xml);
+        Assert.assertNull(body.getNextSibling(), "Unexpected element after the body\n" + xml);
+        Assert.assertEquals(body.getChildNodes().getLength(), 1, "Invalid body\n" + xml);
+        return parseXml((Element) body.getFirstChild(), size, xml);
+    }
+
+    private static String parseXml(Element element, int size, String xml) {
+        Assert.assertEquals(element.getTagName(), "payload", "Invalid payload element\n" + xml);
+        Assert.assertEquals(element.getAttribute("size"), size + "B", "Invalid size attribute\n" + xml);
+        NodeList records = element.getChildNodes();
+        Assert.assertTrue(records.getLength() > 0, "No records\n" + xml);
+        for (int i = 0; i < records.getLength(); i++) {
+            Node record = records.item(i);
+            Assert.assertEquals(record.getNodeName(), "record", "Invalid record\n" + xml);
+            NodeList values = record.getChildNodes();
+            Assert.assertTrue(values.getLength() > 0 && values.getLength() <= 4, "Invalid values\n" + xml);
+            for (int j = 0; j < values.getLength(); j++) {
+                Node value = values.item(j);
+                Assert.assertEquals(value.getNodeName(), "value", "Invalid value\n" + xml);
+                Assert.assertFalse(value.getTextContent().isEmpty(), "Empty values are not allowed\n" + xml);
+            }
+        }
+        return element.hasAttribute("id") ? element.getAttribute("id") : null;
+    }
+
+    private static String parseForm(String form, int size) {
+        Set<String> names = new HashSet<>();
+        String sizeValue = null;
+        String id = null;
+        for (String parameter : form.split("&", -1)) {
+            int index = parameter.indexOf('=');
+            Assert.assertTrue(index > 0, "Invalid parameter\n" + form);
+            String name = parameter.substring(0, index);
+            String value = parameter.substring(index + 1);
+            Assert.assertFalse(value.isEmpty(), "Empty values are not allowed\n" + form);
+            Assert.assertTrue(names.add(name), "Duplicate parameter " + name + "\n" + form);
+            if ("size".equals(name)) {
+                sizeValue = value;
+            } else if ("id".equals(name)) {
+                id = value;
+            }
+        }
+        Assert.assertEquals(sizeValue, size + "B", "Invalid size parameter\n" + form);
+        return id;
+    }
+
+    private static String parseBinary(byte[] payload) {
+        String size = null;
+        String id = null;
+        int records = 0;
+        int i = 0;
+        while (i < payload.length) {
+            int tag = payload[i++];
+            // Read the varint length
+            int length = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = payload[i++];
+                length |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            Assert.assertTrue(length > 0 && i + length <= payload.length, "Invalid length " + length);
+            String value = new String(payload, i, length, StandardCharsets.US_ASCII);
+            i += length;
+            switch (tag) {
+                case (1 << 3) | 2:
+                    size = value;
+                    break;
+                case (2 << 3) | 2:
+                    records++;
+                    break;
+                case (3 << 3) | 2:
+                    id = value;
+                    break;
+                default:
+                    Assert.fail("Invalid tag " + tag);
+            }
+        }
+        Assert.assertEquals(size, payload.length + "B", "Invalid size field");
+        Assert.assertTrue(records > 0, "No records");
+        return id;
+    }
+}
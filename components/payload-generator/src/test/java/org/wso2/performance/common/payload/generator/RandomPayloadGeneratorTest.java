@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 WSO2 Inc. (http://wso2.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.performance.common.payload.generator;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Random payload generator tests.
+ */
+public class RandomPayloadGeneratorTest {
+
+    @DataProvider(name = "payloads")
+    public Object[][] payloads() {
+        List<Object[]> payloads = new ArrayList<>();
+        for (PayloadType payloadType : PayloadType.values()) {
+            int minPayloadSize = payloadType.getMinPayloadSize(true);
+            for (int size = minPayloadSize; size < minPayloadSize + 200; size++) {
+                payloads.add(new Object[]{payloadType, size});
+            }
+            payloads.add(new Object[]{payloadType, 1024});
+            payloads.add(new Object[]{payloadType, 102400});
+        }
+        return payloads.toArray(new Object[payloads.size()][2]);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        return new String(getBytes(buffer), StandardCharsets.US_ASCII);
+    }
+
+    @Test(dataProvider = "payloads")
+    private void testPayload(PayloadType payloadType, int size) {
+        RandomPayloadGenerator generator = new RandomPayloadGenerator(payloadType, size, 10, 0.5, true, size);
+        for (int i = 0; i < 3; i++) {
+            ByteBuffer payload = generator.next();
+            Assert.assertTrue(payload.isReadOnly(), "Payload is not read-only");
+            Assert.assertEquals(payload.remaining(), size, "Invalid size");
+            String id = PayloadParser.parse(payloadType, getBytes(payload));
+            Assert.assertTrue(id != null && id.matches("[0-9a-f]{16}"), "Invalid request ID " + id);
+        }
+    }
+
+    @Test(dataProvider = "payloads")
+    private void testDeterministicPayload(PayloadType payloadType, int size) {
+        RandomPayloadGenerator generator = new RandomPayloadGenerator(payloadType, size, 10, 0, false, 0);
+        String expected = new String(payloadType.createPayload(size, 10).getBytes(), StandardCharsets.US_ASCII);
+        Assert.assertEquals(getString(generator.next()), expected);
+        Assert.assertEquals(getString(generator.next()), expected);
+    }
+
+    @Test(dataProvider = "payloads")
+    private void testStreamingPayload(PayloadType payloadType, int size) throws IOException {
+        for (double entropy : new double[]{0, 0.3, 1}) {
+            RandomPayloadGenerator generator = new RandomPayloadGenerator(payloadType, size, 10, entropy, true, size);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            int writtenBytes = payloadType.createPayload(size, 10).writeTo(Channels.newChannel(outputStream),
+                    new ContentRandomizer(entropy, new SplittableRandom(size)), true);
+            Assert.assertEquals(writtenBytes, size, "Invalid written bytes");
+            Assert.assertEquals(outputStream.toByteArray(), getBytes(generator.next()),
+                    "Streamed payload is different");
+        }
+    }
+
+    @Test
+    private void testSeed() {
+        RandomPayloadGenerator first = new RandomPayloadGenerator(PayloadType.OBJECT, 1024, 10, 0.5, true, 42);
+        RandomPayloadGenerator second = new RandomPayloadGenerator(PayloadType.OBJECT, 1024, 10, 0.5, true, 42);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(getString(first.next()), getString(second.next()));
+        }
+        Assert.assertNotEquals(getString(first.split().next()), getString(first.next()));
+    }
+
+    @Test
+    private void testUniquePayloads() {
+        RandomPayloadGenerator generator = new RandomPayloadGenerator(PayloadType.SIMPLE, 1024, 10, 0, true, 0);
+        Set<String> payloads = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertTrue(payloads.add(getString(generator.next())), "Duplicate payload");
+        }
+    }
+
+    @Test
+    private void testEntropy() {
+        String original = new String(PayloadType.ARRAY.createPayload(10240, 10).getBytes(), StandardCharsets.US_ASCII);
+        int previousChanges = -1;
+        for (double entropy : new double[]{0, 0.25, 0.5, 1}) {
+            String json = getString(new RandomPayloadGenerator(PayloadType.ARRAY, 10240, 10, entropy, false, 1)
+                    .next());
+            int changes = 0;
+            for (int i = 0; i < json.length(); i++) {
+                if (json.charAt(i) != original.charAt(i)) {
+                    changes++;
+                }
+            }
+            Assert.assertTrue(changes > previousChanges, "Entropy " + entropy + " did not change more characters");
+            previousChanges = changes;
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    private void testInvalidEntropy() {
+        new RandomPayloadGenerator(PayloadType.SIMPLE, 1024, 10, 1.5, false, 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    private void testInvalidSize() {
+        new RandomPayloadGenerator(PayloadType.SIMPLE, PayloadType.SIMPLE.getMinPayloadSize(true) - 1, 10, 0, true, 0);
+    }
+}
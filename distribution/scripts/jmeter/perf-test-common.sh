@@ -528,7 +528,7 @@ function exit_handler() {
     if [[ "$estimate" == false ]] && [[ -d results ]]; then
         echo "Zipping results directory..."
         # Create zip file without JTLs first (in case of limited disc space)
-        zip -9qr results-without-jtls.zip results/ -x '*jtls.zip'
+        zip -9qr results-without-jtls.zip results/ -x '*jtls.zip' '*.jtl.gz'
         zip -9qr results.zip results/
     fi
     print_durations
@@ -654,9 +654,8 @@ function test_scenarios() {
                             # Delete the original JTL file to save space.
                             # Can merge files using the command: awk 'FNR==1 && NR!=1{next;}{print}'
                             # However, the merged file may not be same as original and that should be okay
-                            $HOME/jtl-splitter/jtl-splitter.sh -- -f ${report_location}/results.jtl -d -t $warmup_time -u SECONDS -s
-                            echo "Zipping JTL files in ${report_location}"
-                            zip -jm ${report_location}/jtls.zip ${report_location}/results*.jtl
+                            # Warmup and measurement JTL files are written compressed
+                            $HOME/jtl-splitter/jtl-splitter.sh -- -f ${report_location}/results.jtl -d -t $warmup_time -u SECONDS -s -j $(nproc) -z --lookahead 100000
                         fi
 
                         if [[ $sleep_time -ge 0 ]]; then
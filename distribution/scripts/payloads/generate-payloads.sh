@@ -59,7 +59,10 @@ if [[ ${#payloads[@]} -eq 0 ]]; then
     payloads=("50 1024 10240 102400")
 fi
 
+# Generate all payloads in a single JVM
+size_args=()
 for s in ${payloads[*]}; do
-    echo "Generating ${s}B file"
-    java -jar $script_dir/payload-generator-${performance.common.version}.jar --size $s --payload-type ${payload_type}
+    size_args+=(--size "$s")
 done
+echo "Generating payloads: ${payloads[*]}"
+java -jar $script_dir/payload-generator-${performance.common.version}.jar "${size_args[@]}" --payload-type ${payload_type}